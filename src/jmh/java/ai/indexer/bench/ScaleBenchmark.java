@@ -0,0 +1,194 @@
+package ai.indexer.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * End-to-end scale benchmark: generates synthetic repos ({@link SyntheticRepo}) at several sizes,
+ * runs the indexer on each in a fresh JVM ({@link ScaleRun}) and records wall time, peak RSS,
+ * files/sec and output bytes. Results are printed as a table and written as JSON.
+ * <p>
+ * Options: {@code --sizes=1000,10000,100000} (approximate type counts), {@code --workDir=<dir>},
+ * {@code --results=<file.json>}, {@code --jvmArgs="<args>"}, {@code --indexerArgs="<args>"}.
+ * Generated repos are kept in the work dir and reused by later runs.
+ */
+public final class ScaleBenchmark {
+
+    private static final int CLASSES_PER_MODULE = 250;
+
+    private ScaleBenchmark() {
+    }
+
+    public record Result(
+            int targetTypes,
+            int modules,
+            long files,
+            long types,
+            long wallMillis,
+            long indexMillis,
+            long peakRssKb,
+            long filesPerSec,
+            long outputBytes
+    ) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = List.of(1_000, 10_000, 100_000);
+        Path workDir = Paths.get("build/scale");
+        Path resultsFile = null;
+        List<String> jvmArgs = List.of();
+        List<String> indexerArgs = List.of();
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring("--sizes=".length()).split(","))
+                        .map(String::trim).filter(s -> !s.isEmpty()).map(Integer::valueOf).toList();
+            } else if (arg.startsWith("--workDir=")) {
+                workDir = Paths.get(arg.substring("--workDir=".length()));
+            } else if (arg.startsWith("--results=")) {
+                resultsFile = Paths.get(arg.substring("--results=".length()));
+            } else if (arg.startsWith("--jvmArgs=")) {
+                jvmArgs = splitArgs(arg.substring("--jvmArgs=".length()));
+            } else if (arg.startsWith("--indexerArgs=")) {
+                indexerArgs = splitArgs(arg.substring("--indexerArgs=".length()));
+            } else {
+                System.err.println("ERROR: unknown argument: " + arg);
+                System.exit(2);
+            }
+        }
+
+        final List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            results.add(run(workDir, size, jvmArgs, indexerArgs));
+        }
+
+        System.out.printf("%10s %8s %9s %9s %10s %10s %12s %14s%n",
+                "types", "modules", "files", "wall ms", "index ms", "RSS MB", "files/sec", "output bytes");
+        for (Result r : results) {
+            System.out.printf("%10d %8d %9d %9d %10d %10d %12d %14d%n",
+                    r.types(), r.modules(), r.files(), r.wallMillis(), r.indexMillis(),
+                    r.peakRssKb() < 0 ? -1 : r.peakRssKb() / 1024, r.filesPerSec(), r.outputBytes());
+        }
+
+        if (resultsFile != null) {
+            Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+            final Map<String, Object> json = new TreeMap<>();
+            json.put("indexerArgs", indexerArgs);
+            json.put("jvmArgs", jvmArgs);
+            json.put("javaVersion", System.getProperty("java.version"));
+            json.put("results", results);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultsFile.toFile(), json);
+            System.out.println("Results written to: " + resultsFile);
+        }
+    }
+
+    private static Result run(Path workDir, int targetTypes, List<String> jvmArgs, List<String> indexerArgs)
+            throws IOException, InterruptedException {
+        // roughly 1.2 types per file (nested classes), 4 modules per group
+        final int files = Math.max(5, (int) Math.round(targetTypes / 1.2));
+        final int modules = Math.max(4, files / CLASSES_PER_MODULE);
+        final int classesPerModule = Math.max(5, files / modules);
+
+        final Path repo = workDir.resolve("repo-" + targetTypes).toAbsolutePath();
+        final Path marker = repo.resolve(".generated-" + modules + "x" + classesPerModule);
+        if (!Files.exists(marker)) {
+            System.out.println("Generating " + modules + " modules x " + classesPerModule + " classes in " + repo);
+            new SyntheticRepo(repo, modules, classesPerModule, 42L).generate();
+            Files.createFile(marker);
+        }
+        final Path outDir = workDir.resolve("out-" + targetTypes).toAbsolutePath();
+        deleteTree(outDir);
+
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(jvmArgs);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ScaleRun.class.getName());
+        cmd.add(repo.toString());
+        cmd.add("--outDir=" + outDir);
+        cmd.add("--incremental=false");
+        cmd.addAll(indexerArgs);
+
+        final Map<String, String> values = new TreeMap<>();
+        final long t0 = System.nanoTime();
+        final Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("ScaleRun.")) {
+                    final int eq = line.indexOf('=');
+                    values.put(line.substring("ScaleRun.".length(), eq), line.substring(eq + 1));
+                } else if (line.startsWith("Files: ") || line.startsWith("Modules: ")) {
+                    parseCounts(line, values);
+                } else if (!line.startsWith("WARN: parse problems")) {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+        final int exit = p.waitFor();
+        final long wallMillis = (System.nanoTime() - t0) / 1_000_000;
+        if (exit != 0) {
+            throw new IOException("Indexer failed with exit code " + exit + " for size " + targetTypes);
+        }
+
+        final long indexMillis = Long.parseLong(values.getOrDefault("millis", "0"));
+        final long fileCount = Long.parseLong(values.getOrDefault("files", "0"));
+        return new Result(
+                targetTypes,
+                modules,
+                fileCount,
+                Long.parseLong(values.getOrDefault("types", "0")),
+                wallMillis,
+                indexMillis,
+                Long.parseLong(values.getOrDefault("peakRssKb", "-1")),
+                indexMillis > 0 ? fileCount * 1000 / indexMillis : 0,
+                treeSize(outDir));
+    }
+
+    /**
+     * Picks "Files: N" and "types: N" out of the indexer's summary lines.
+     */
+    private static void parseCounts(String line, Map<String, String> values) {
+        for (String part : line.split(",")) {
+            final String[] kv = part.trim().split(":\\s*");
+            if (kv.length == 2 && ("Files".equals(kv[0]) || "types".equals(kv[0]))) {
+                values.put("Files".equals(kv[0]) ? "files" : "types", kv[1].trim());
+            }
+        }
+    }
+
+    private static List<String> splitArgs(String s) {
+        return Arrays.stream(s.trim().split("\\s+")).filter(a -> !a.isEmpty()).toList();
+    }
+
+    private static long treeSize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(f);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ai.indexer.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import ai.indexer.Main;
+
+/**
+ * Child-process entry point for {@link ScaleBenchmark}: runs {@link Main} in-process, then prints the
+ * indexing time and the process' peak RSS so the parent can record them.
+ */
+public final class ScaleRun {
+
+    private ScaleRun() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final long t0 = System.nanoTime();
+        Main.main(args);
+        final long millis = (System.nanoTime() - t0) / 1_000_000;
+        System.out.println("ScaleRun.millis=" + millis);
+        System.out.println("ScaleRun.peakRssKb=" + peakRssKb());
+    }
+
+    /**
+     * @return VmHWM from /proc/self/status, or -1 where that is not available
+     */
+    static long peakRssKb() throws IOException {
+        final Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,203 @@
+package ai.indexer.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a fake Jakarta EE Gradle monorepo for end-to-end runs of the indexer.
+ * <p>
+ * Modules come in groups of four: {@code svcN} at {@code svcN/}, {@code svcN:api} nested at
+ * {@code svcN/api}, {@code svcN:impl} nested at {@code svcN/impl} and {@code svcN:web} mapped to
+ * {@code web/svcN}. Sources cycle through {@code @Local}/{@code @Remote} interfaces, {@code @Stateless}
+ * beans with {@code @EJB}/{@code @PersistenceContext} fields and {@code @Inject} setters, CDI beans with
+ * generic injection points, entities with nested classes and generic base classes. Injected types
+ * reference other modules so resolution crosses module boundaries. Output is deterministic for a seed.
+ * <p>
+ * Usage: {@code SyntheticRepo <dir> <modules> <classesPerModule> [seed]}
+ */
+public final class SyntheticRepo {
+
+    private static final String[] SUFFIXES = {"", ":api", ":impl", ":web"};
+
+    private final Path root;
+    private final int modules;
+    private final int classesPerModule;
+    private final Random random;
+
+    public SyntheticRepo(Path root, int modules, int classesPerModule, long seed) {
+        if (modules < 1 || classesPerModule < 1) {
+            throw new IllegalArgumentException("modules and classesPerModule must be positive");
+        }
+        this.root = root;
+        this.modules = modules;
+        this.classesPerModule = classesPerModule;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: SyntheticRepo <dir> <modules> <classesPerModule> [seed]");
+            System.exit(2);
+        }
+        final SyntheticRepo repo = new SyntheticRepo(Paths.get(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), args.length > 3 ? Long.parseLong(args[3]) : 42L);
+        final int files = repo.generate();
+        System.out.println("Generated " + files + " source files in " + args[0]);
+    }
+
+    /**
+     * Writes settings.gradle and all sources.
+     *
+     * @return number of source files written
+     */
+    public int generate() throws IOException {
+        Files.createDirectories(root);
+        final List<String> ids = new ArrayList<>(modules);
+        for (int i = 0; i < modules; i++) {
+            ids.add("svc" + (i / SUFFIXES.length) + SUFFIXES[i % SUFFIXES.length]);
+        }
+        writeSettings(ids);
+
+        int files = 0;
+        for (int i = 0; i < modules; i++) {
+            final Path srcRoot = root.resolve(moduleDir(ids.get(i))).resolve("src/main/java");
+            final String pkg = "com.acme." + ids.get(i).replace(':', '.');
+            final Path pkgDir = srcRoot.resolve(pkg.replace('.', '/'));
+            Files.createDirectories(pkgDir);
+            for (int c = 0; c < classesPerModule; c++) {
+                final String name = typeName(c);
+                write(pkgDir.resolve(name + ".java"), source(c, pkg, ids));
+                files++;
+            }
+        }
+        return files;
+    }
+
+    private void writeSettings(List<String> ids) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(root.resolve("settings.gradle"), StandardCharsets.UTF_8)) {
+            w.write("rootProject.name = 'synthetic'\n");
+            for (String id : ids) {
+                w.write("include ':" + id + "'\n");
+            }
+            for (String id : ids) {
+                if (id.indexOf(':') >= 0) {
+                    w.write("project(':" + id + "').projectDir = new File(settingsDir, '" + moduleDir(id) + "')\n");
+                }
+            }
+        }
+    }
+
+    private static String moduleDir(String id) {
+        final int colon = id.indexOf(':');
+        if (colon < 0) {
+            return id;
+        }
+        final String base = id.substring(0, colon);
+        final String sub = id.substring(colon + 1);
+        return "web".equals(sub) ? "web/" + base : base + "/" + sub;
+    }
+
+    private static String typeName(int c) {
+        return switch (c % 5) {
+            case 0 -> "Order" + c + "Service";
+            case 1 -> "Order" + (c - 1) + "ServiceBean";
+            case 2 -> "Order" + c + "Controller";
+            case 3 -> "Order" + c + "Entity";
+            default -> "Abstract" + c + "Repository";
+        };
+    }
+
+    /**
+     * A type from another (random) module, with the package needed to import it.
+     */
+    private String foreignService(List<String> ids) {
+        final String id = ids.get(random.nextInt(ids.size()));
+        final int c = random.nextInt(Math.max(1, classesPerModule / 5)) * 5;
+        return "com.acme." + id.replace(':', '.') + "." + typeName(c);
+    }
+
+    private String source(int c, String pkg, List<String> ids) {
+        final String name = typeName(c);
+        final StringBuilder sb = new StringBuilder(2048);
+        sb.append("package ").append(pkg).append(";\n\n");
+        switch (c % 5) {
+            case 0 -> {
+                final boolean remote = c % 3 == 0;
+                sb.append("import java.util.List;\n\n");
+                sb.append("import jakarta.ejb.").append(remote ? "Remote" : "Local").append(";\n\n");
+                sb.append('@').append(remote ? "Remote" : "Local").append('\n');
+                sb.append("public interface ").append(name).append(" {\n\n");
+                sb.append("    List<String> find(long id);\n\n");
+                sb.append("    void update(long id, String value);\n}\n");
+            }
+            case 1 -> {
+                final String other = foreignService(ids);
+                sb.append("import java.util.ArrayList;\nimport java.util.List;\n\n");
+                sb.append("import jakarta.ejb.EJB;\nimport jakarta.ejb.Stateless;\nimport jakarta.inject.Inject;\n");
+                sb.append("import jakarta.persistence.EntityManager;\nimport jakarta.persistence.PersistenceContext;\n\n");
+                sb.append("import ").append(other).append(";\n\n");
+                sb.append("@Stateless\npublic class ").append(name).append(" implements Order").append(c - 1)
+                        .append("Service {\n\n");
+                sb.append("    @PersistenceContext\n    private EntityManager em;\n\n");
+                sb.append("    @EJB\n    private ").append(simple(other)).append(" delegate;\n\n");
+                sb.append("    private Auditor<String> auditor;\n\n");
+                sb.append("    @Inject\n    void setAuditor(Auditor<String> auditor) {\n        this.auditor = auditor;\n    }\n\n");
+                sb.append("    @Override\n    public List<String> find(long id) {\n");
+                sb.append("        final List<String> out = new ArrayList<>(delegate.find(id));\n");
+                sb.append("        out.add(String.valueOf(em.find(Object.class, id)));\n        return out;\n    }\n\n");
+                sb.append("    @Override\n    public void update(long id, String value) {\n");
+                sb.append("        auditor.record(value);\n    }\n\n");
+                sb.append("    public interface Auditor<T> {\n        void record(T value);\n    }\n}\n");
+            }
+            case 2 -> {
+                final String other = foreignService(ids);
+                sb.append("import java.util.List;\nimport java.util.Map;\n\n");
+                sb.append("import jakarta.enterprise.context.RequestScoped;\nimport jakarta.enterprise.inject.Instance;\n");
+                sb.append("import jakarta.inject.Inject;\n\n");
+                sb.append("import ").append(other).append(";\n\n");
+                sb.append("@RequestScoped\npublic class ").append(name).append(" {\n\n");
+                sb.append("    @Inject\n    private ").append(simple(other)).append(" service;\n\n");
+                sb.append("    @Inject\n    private Instance<Map<String, List<Long>>> lookups;\n\n");
+                sb.append("    private Order").append(c - 2).append("Service local;\n\n");
+                sb.append("    @Inject\n    public void init(Order").append(c - 2).append("Service local, String[] tags) {\n");
+                sb.append("        this.local = local;\n    }\n\n");
+                sb.append("    public List<String> show(long id) {\n        return service.find(id);\n    }\n}\n");
+            }
+            case 3 -> {
+                sb.append("import java.io.Serializable;\nimport java.util.List;\n\n");
+                sb.append("public class ").append(name).append(" extends Abstract").append(c + 1)
+                        .append("Repository<Long, ").append(name).append(".Line> implements Serializable {\n\n");
+                sb.append("    private long id;\n    private List<Line> lines;\n\n");
+                for (int f = 0; f < 3 + random.nextInt(6); f++) {
+                    sb.append("    private String attr").append(f).append(";\n");
+                }
+                sb.append("\n    public static class Line implements Serializable {\n");
+                sb.append("        private String sku;\n        private int quantity;\n    }\n\n");
+                sb.append("    enum Status { OPEN, CLOSED }\n}\n");
+            }
+            default -> {
+                sb.append("import java.util.List;\nimport java.util.Optional;\n\n");
+                sb.append("public abstract class ").append(name).append("<ID, T> {\n\n");
+                sb.append("    protected abstract Optional<T> load(ID id);\n\n");
+                sb.append("    public List<T> loadAll(List<ID> ids) {\n");
+                sb.append("        return ids.stream().map(this::load).flatMap(Optional::stream).toList();\n    }\n}\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String simple(String fqcn) {
+        return fqcn.substring(fqcn.lastIndexOf('.') + 1);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package ai.indexer.graph;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Name resolution against a populated symbol table. Packages hold 100 types each; one simple name in
+ * ten is declared in two packages, so it only resolves within its own package or through an
+ * on-demand import of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SymbolTableBenchmark {
+
+    private static final int TYPES_PER_PACKAGE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int symbols;
+
+    private SymbolTable table;
+    private String[] simpleNames;
+    private String[] packages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new SymbolTable();
+        final int packageCount = symbols / TYPES_PER_PACKAGE;
+        packages = new String[packageCount];
+        for (int p = 0; p < packageCount; p++) {
+            packages[p] = "com.acme.module" + (p % 50) + ".pkg" + p;
+        }
+        simpleNames = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            final int p = i / TYPES_PER_PACKAGE;
+            // packages 2k and 2k+1 declare the same "Shared" names
+            simpleNames[i] = i % 10 == 0
+                    ? "Shared" + ((p / 2) * TYPES_PER_PACKAGE + i % TYPES_PER_PACKAGE) + "Service"
+                    : "Type" + i + "Bean";
+            table.registerType(packages[p] + "." + simpleNames[i]);
+        }
+        table.finalizeIndex();
+    }
+
+    private int nextIndex() {
+        next = (next + 7919) % simpleNames.length;
+        return next;
+    }
+
+    @Benchmark
+    public String resolveSamePackage() {
+        final int i = nextIndex();
+        return table.resolveToFqcnIfPossible(simpleNames[i], packages[i / TYPES_PER_PACKAGE]);
+    }
+
+    @Benchmark
+    public String resolveUniqueSimpleName() {
+        final int i = nextIndex();
+        return table.resolveToFqcnIfPossible(simpleNames[i], "com.acme.other");
+    }
+
+    @Benchmark
+    public String resolveOnDemandImport() {
+        final int i = nextIndex();
+        final List<String> imports = List.of("com.acme.other", packages[i / TYPES_PER_PACKAGE]);
+        return table.toTypeId(simpleNames[i], null, "com.acme.other", imports);
+    }
+
+    @Benchmark
+    public String toTypeIdArray() {
+        final int i = nextIndex();
+        return table.toTypeId(simpleNames[i] + "[]", packages[i / TYPES_PER_PACKAGE]);
+    }
+
+    @Benchmark
+    public String toTypeIdQualified() {
+        final int i = nextIndex();
+        return table.toTypeId(packages[i / TYPES_PER_PACKAGE] + "." + simpleNames[i], null);
+    }
+}
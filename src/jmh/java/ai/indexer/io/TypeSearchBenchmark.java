@@ -0,0 +1,104 @@
+package ai.indexer.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Top-10 lookups in a mapped {@link TypeSearchIndex}, one benchmark per kind of query. Names are
+ * {@code TypeNBean}/{@code TypeNService} in 50 modules plus a handful of camel-case service names
+ * repeated in every module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TypeSearchBenchmark {
+
+    private static final int K = 10;
+    private static final String[] NAMES = {
+            "OrderService", "OrderServiceImpl", "OrderRepository", "InvoiceRepository", "HTTPServerConfig",
+            "BillingFacade", "CustomerOrderService", "AbstractOrderHandler"
+    };
+
+    @Param({"10000", "100000"})
+    public int types;
+
+    private Path file;
+    private TypeSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final List<String> ids = new ArrayList<>(types);
+        for (int i = 0; ids.size() < types; i++) {
+            final String pkg = "com.acme.module" + (i % 50) + ".pkg" + (i % 7);
+            ids.add("t:" + pkg + ".Type" + i + (i % 3 == 0 ? "Bean" : "Service"));
+            if (i < 50) {
+                for (String name : NAMES) {
+                    ids.add("t:" + pkg + "." + name);
+                }
+            }
+        }
+        file = Files.createTempFile("ai-indexer-jmh", ".bin");
+        TypeSearchIndex.write(file, ids);
+        index = TypeSearchIndex.open(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<String> exactName() {
+        return index.search("OrderService", K);
+    }
+
+    @Benchmark
+    public List<String> namePrefix() {
+        return index.search("Type123", K);
+    }
+
+    @Benchmark
+    public List<String> camelHumps() {
+        return index.search("OrdSerImp", K);
+    }
+
+    @Benchmark
+    public List<String> initials() {
+        return index.search("HSC", K);
+    }
+
+    @Benchmark
+    public List<String> qualified() {
+        return index.search("module7.Order", K);
+    }
+
+    @Benchmark
+    public List<String> glob() {
+        return index.search("*Repository", K);
+    }
+
+    @Benchmark
+    public List<String> typo() {
+        return index.search("OredrService", K);
+    }
+
+    @Benchmark
+    public List<String> partialTypo() {
+        return index.search("Ordr", K);
+    }
+}
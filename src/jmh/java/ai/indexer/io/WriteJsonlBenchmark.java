@@ -0,0 +1,133 @@
+package ai.indexer.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectionVia;
+import ai.indexer.model.TypeLine;
+
+/**
+ * JSONL serialization throughput, reported per line written. The {@code write*} benchmarks go through
+ * {@link GraphWriter#writeJsonl} (files on disk); {@code serialize*} compare the streaming
+ * {@link LineWriter} with per-line {@code writeValueAsString} on a discarding stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriteJsonlBenchmark {
+
+    private static final int LINES = 10_000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Path dir;
+    private GraphWriter writer;
+    private List<TypeLine> typeLines;
+    private List<InjectLine> injectLines;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ai-indexer-jmh");
+        writer = new GraphWriter(dir);
+        typeLines = new ArrayList<>(LINES);
+        injectLines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            final String fqcn = "com.acme.module" + (i % 50) + ".service.Type" + i + "Bean";
+            typeLines.add(new TypeLine(
+                    "t:" + fqcn,
+                    "class",
+                    "module" + (i % 50) + "/src/main/java/" + fqcn.replace('.', '/') + ".java",
+                    List.of("t:com.acme.api.Service" + i, "t:java.io.Serializable"),
+                    List.of("t:com.acme.core.AbstractBean"),
+                    i % 3 == 0 ? "stateless" : null,
+                    i % 3 == 0 ? List.of("t:com.acme.api.Service" + i) : List.of(),
+                    List.of(),
+                    List.of("f:" + fqcn + "#repository", "f:" + fqcn + "#em"),
+                    List.of("f:" + fqcn + "#em", "f:" + fqcn + "#repository", "m:" + fqcn + "#setAudit(AuditLog)")));
+            injectLines.add(new InjectLine("t:" + fqcn, "field", "repository",
+                    "t:com.acme.core.Repository" + (i % 200), InjectionVia.CDI));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir.resolve("types.jsonl"));
+        Files.deleteIfExists(dir.resolve("inject.jsonl"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void writeTypeLines() throws IOException {
+        writer.writeJsonl(dir.resolve("types.jsonl"), typeLines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void writeInjectLines() throws IOException {
+        writer.writeJsonl(dir.resolve("inject.jsonl"), injectLines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void serializeTypeLinesStreaming() throws IOException {
+        streaming(typeLines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void serializeTypeLinesMapper() throws IOException {
+        perLineString(typeLines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void serializeInjectLinesStreaming() throws IOException {
+        streaming(injectLines);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void serializeInjectLinesMapper() throws IOException {
+        perLineString(injectLines);
+    }
+
+    private void streaming(List<?> lines) throws IOException {
+        try (LineWriter out = new LineWriter(mapper, OutputStream.nullOutputStream())) {
+            for (Object line : lines) {
+                out.write(line);
+            }
+        }
+    }
+
+    private void perLineString(List<?> lines) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8))) {
+            for (Object line : lines) {
+                bw.write(mapper.writeValueAsString(line));
+                bw.newLine();
+            }
+        }
+    }
+}
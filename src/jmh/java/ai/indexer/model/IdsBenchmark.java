@@ -0,0 +1,35 @@
+package ai.indexer.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link Ids#normalizeTypeName} on plain, generic-heavy and array-heavy type strings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IdsBenchmark {
+
+    @Param({
+            "CustomerRepository",
+            "Map<String, List<Set<Long>>>",
+            "Event<? extends Instance<Provider<com.acme.billing.api.InvoiceService>>>",
+            "byte[][]",
+            "List<Map<String, Object[]>>[]",
+            "String..."
+    })
+    public String typeName;
+
+    @Benchmark
+    public String normalizeTypeName() {
+        return Ids.normalizeTypeName(typeName);
+    }
+}
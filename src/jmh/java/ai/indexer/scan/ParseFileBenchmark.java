@@ -0,0 +1,58 @@
+package ai.indexer.scan;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.javaparser.JavaParser;
+
+/**
+ * Full JavaParser parse + extraction of one source file, per {@link ParseProfile}; run with
+ * {@code -prof gc} (the default in the build) for allocation per file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParseFileBenchmark {
+
+    @Param({"statelessBean", "cdiBean", "localInterface", "plainDto"})
+    public String source;
+
+    @Param({"lean", "full"})
+    public String profile;
+
+    private TypeScanner scanner;
+    private JavaParser parser;
+    private TypeScanner.SourceFile sourceFile;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scanner = new TypeScanner(Path.of("."));
+        parser = ParseProfile.of(profile).newParser();
+        content = Sources.get(source).getBytes(StandardCharsets.UTF_8);
+        final String fileRel = "bench/src/main/java/com/acme/" + source + ".java";
+        sourceFile = new TypeScanner.SourceFile(Path.of(fileRel), fileRel, content.length, 0L, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scanner.close();
+    }
+
+    @Benchmark
+    public TypeScanner.FileScan parseFile() {
+        return scanner.parseFile(sourceFile, content, parser);
+    }
+}
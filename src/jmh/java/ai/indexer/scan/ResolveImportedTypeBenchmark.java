@@ -0,0 +1,73 @@
+package ai.indexer.scan;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.NodeList;
+
+/**
+ * Simple-name lookup against a compilation unit's import map (first, last and missing name), and
+ * building that map, which happens once per parsed file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResolveImportedTypeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int imports;
+
+    private NodeList<ImportDeclaration> importList;
+    private ImportMap importMap;
+    private String first;
+    private String last;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        importList = new NodeList<>();
+        for (int i = 0; i < imports; i++) {
+            // a few static and wildcard imports, as in real files; the last one stays resolvable
+            final boolean isStatic = i < imports - 1 && i % 17 == 5;
+            final boolean isAsterisk = i < imports - 1 && i % 23 == 7;
+            importList.add(new ImportDeclaration("com.acme.pkg" + (i % 50) + ".Type" + i, isStatic, isAsterisk));
+        }
+        importMap = ImportMap.of(importList);
+        first = "Type0";
+        last = "Type" + (imports - 1);
+    }
+
+    @Benchmark
+    public ImportMap build() {
+        return ImportMap.of(importList);
+    }
+
+    @Benchmark
+    public String hitFirst() {
+        return importMap.resolve(first);
+    }
+
+    @Benchmark
+    public String hitLast() {
+        return importMap.resolve(last);
+    }
+
+    @Benchmark
+    public String hitNested() {
+        return importMap.resolve(last + ".Inner");
+    }
+
+    @Benchmark
+    public String miss() {
+        return importMap.resolve("NotImported");
+    }
+}
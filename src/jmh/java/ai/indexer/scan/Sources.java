@@ -0,0 +1,206 @@
+package ai.indexer.scan;
+
+/**
+ * Representative sources for the scanner benchmarks.
+ */
+final class Sources {
+
+    private static final String STATELESS_BEAN = """
+            package com.acme.billing;
+
+            import java.math.BigDecimal;
+            import java.util.List;
+            import java.util.Map;
+
+            import jakarta.ejb.EJB;
+            import jakarta.ejb.Stateless;
+            import jakarta.ejb.TransactionAttribute;
+            import jakarta.ejb.TransactionAttributeType;
+            import jakarta.inject.Inject;
+            import jakarta.persistence.EntityManager;
+            import jakarta.persistence.PersistenceContext;
+
+            import com.acme.core.AuditLog;
+            import com.acme.core.CustomerRepository;
+            import com.acme.billing.api.InvoiceService;
+            import com.acme.billing.api.InvoiceServiceRemote;
+
+            /**
+             * Creates and settles invoices.
+             */
+            @Stateless
+            public class InvoiceServiceBean implements InvoiceService, InvoiceServiceRemote {
+
+                @PersistenceContext(unitName = "billing")
+                private EntityManager em;
+
+                @EJB
+                private CustomerRepository customers;
+
+                @Inject
+                private AuditLog audit;
+
+                private TaxCalculator taxCalculator;
+
+                @Inject
+                void setTaxCalculator(TaxCalculator taxCalculator) {
+                    this.taxCalculator = taxCalculator;
+                }
+
+                @Override
+                @TransactionAttribute(TransactionAttributeType.REQUIRED)
+                public Invoice create(long customerId, List<LineItem> items) {
+                    final var customer = customers.find(customerId);
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (LineItem item : items) {
+                        total = total.add(item.price().multiply(BigDecimal.valueOf(item.quantity())));
+                    }
+                    final Invoice invoice = new Invoice(customer, items, total.add(taxCalculator.tax(total)));
+                    em.persist(invoice);
+                    audit.record("invoice.created", Map.of("id", invoice.getId()));
+                    return invoice;
+                }
+
+                @Override
+                public void settle(long invoiceId) {
+                    final Invoice invoice = em.find(Invoice.class, invoiceId);
+                    if (invoice == null) {
+                        throw new IllegalArgumentException("unknown invoice " + invoiceId);
+                    }
+                    invoice.markPaid();
+                    audit.record("invoice.settled", Map.of("id", invoiceId));
+                }
+
+                public static final class Invoice {
+                    private Long id;
+                    private final Object customer;
+                    private final List<LineItem> items;
+                    private final BigDecimal total;
+                    private boolean paid;
+
+                    Invoice(Object customer, List<LineItem> items, BigDecimal total) {
+                        this.customer = customer;
+                        this.items = items;
+                        this.total = total;
+                    }
+
+                    Long getId() {
+                        return id;
+                    }
+
+                    void markPaid() {
+                        paid = true;
+                    }
+                }
+
+                public record LineItem(String sku, BigDecimal price, int quantity) {
+                }
+            }
+            """;
+
+    private static final String CDI_BEAN = """
+            package com.acme.web;
+
+            import java.io.Serializable;
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.Optional;
+
+            import jakarta.annotation.PostConstruct;
+            import jakarta.enterprise.context.SessionScoped;
+            import jakarta.enterprise.event.Event;
+            import jakarta.inject.Inject;
+            import jakarta.inject.Named;
+
+            import com.acme.billing.api.InvoiceService;
+            import com.acme.core.CustomerRepository;
+
+            @Named
+            @SessionScoped
+            public class CartController implements Serializable {
+
+                private static final long serialVersionUID = 1L;
+
+                @Inject
+                private InvoiceService invoices;
+
+                @Inject
+                private Event<CartChanged> cartChanged;
+
+                private final CustomerRepository customers;
+                private final List<String> skus = new ArrayList<>();
+
+                @Inject
+                public CartController(CustomerRepository customers) {
+                    this.customers = customers;
+                }
+
+                @PostConstruct
+                void init() {
+                    skus.clear();
+                }
+
+                public void add(String sku) {
+                    skus.add(sku);
+                    cartChanged.fire(new CartChanged(skus.size()));
+                }
+
+                public Optional<String> first() {
+                    return skus.stream().findFirst();
+                }
+
+                public record CartChanged(int size) {
+                }
+            }
+            """;
+
+    private static final String LOCAL_INTERFACE = """
+            package com.acme.billing.api;
+
+            import java.util.List;
+
+            import jakarta.ejb.Local;
+
+            @Local
+            public interface InvoiceService extends InvoiceLookup<Long> {
+
+                Object create(long customerId, List<?> items);
+
+                void settle(long invoiceId);
+            }
+            """;
+
+    private Sources() {
+    }
+
+    static String get(String name) {
+        return switch (name) {
+            case "statelessBean" -> STATELESS_BEAN;
+            case "cdiBean" -> CDI_BEAN;
+            case "localInterface" -> LOCAL_INTERFACE;
+            case "plainDto" -> plainDto(40);
+            default -> throw new IllegalArgumentException("unknown source: " + name);
+        };
+    }
+
+    private static String plainDto(int fields) {
+        final StringBuilder sb = new StringBuilder("""
+                package com.acme.model;
+
+                import java.time.Instant;
+                import java.util.Objects;
+
+                public class CustomerDto {
+                """);
+        for (int i = 0; i < fields; i++) {
+            sb.append("    private String field").append(i).append(";\n");
+        }
+        for (int i = 0; i < fields; i++) {
+            sb.append("    public String getField").append(i).append("() {\n")
+                    .append("        return field").append(i).append(";\n    }\n\n")
+                    .append("    public void setField").append(i).append("(String value) {\n")
+                    .append("        this.field").append(i).append(" = Objects.requireNonNull(value);\n    }\n\n");
+        }
+        return sb.append("}\n").toString();
+    }
+}
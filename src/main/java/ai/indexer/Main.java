@@ -5,16 +5,36 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import ai.indexer.cache.ParseCache;
+import ai.indexer.cache.ScanManifest;
+import ai.indexer.graph.Graph;
 import ai.indexer.graph.GraphBuilder;
+import ai.indexer.graph.InjectClosure;
+import ai.indexer.graph.ShardFile;
 import ai.indexer.io.GraphWriter;
+import ai.indexer.metrics.RunMetrics;
 import ai.indexer.modules.ModuleLayout;
+import ai.indexer.scan.GitFiles;
+import ai.indexer.scan.ParseProfile;
+import ai.indexer.scan.ScanOptions;
+import ai.indexer.serve.GraphQueryIndex;
+import ai.indexer.serve.QueryServer;
+import ai.indexer.watch.IndexWatcher;
 
 public final class Main {
 
+    /**
+     * Each of a module's two line sort buffers and the reverse injection sites get 1/{@value} of
+     * --maxHeapMb; the rest is left for the symbol table, the global indices and the writer.
+     */
+    private static final long SORT_BUFFERS_PER_HEAP = 8;
+
     public static void main(String[] args) {
         final int code = run(args);
         if (code != 0) {
@@ -23,10 +43,29 @@ public final class Main {
     }
 
     private static int run(String[] args) {
+        if (args.length > 0 && "merge".equals(args[0])) {
+            return runMerge(Arrays.copyOfRange(args, 1, args.length));
+        }
         Path repoRoot = null;
         Path outDir = null;
         Path moduleFile = null;
         boolean includeTests = true;
+        int threads = 1;
+        boolean incremental = false;
+        Path cacheDir = null;
+        long cacheMaxMb = 1024;
+        boolean prefilter = false;
+        ParseProfile parseProfile = ParseProfile.LEAN;
+        boolean streaming = false;
+        long maxHeapMb = 0;
+        boolean compress = false;
+        boolean git = false;
+        String since = null;
+        boolean watch = false;
+        boolean serve = false;
+        int port = 8765;
+        int shardIndex = 0;
+        int shardCount = 0;
         final Set<String> moduleFilter = new LinkedHashSet<>();
 
         try {
@@ -43,6 +82,124 @@ public final class Main {
                     includeTests = Boolean.parseBoolean(arg.substring("--includeTests=".length()));
                     continue;
                 }
+                if (arg.startsWith("--incremental=")) {
+                    incremental = Boolean.parseBoolean(arg.substring("--incremental=".length()));
+                    continue;
+                }
+                if ("--watch".equals(arg)) {
+                    watch = true;
+                    continue;
+                }
+                if ("--serve".equals(arg)) {
+                    serve = true;
+                    continue;
+                }
+                if (arg.startsWith("--port=")) {
+                    final String value = arg.substring("--port=".length()).trim();
+                    try {
+                        port = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        port = -1;
+                    }
+                    if (port < 0 || port > 65535) {
+                        System.err.println("ERROR: --port must be between 0 and 65535: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--streaming=")) {
+                    streaming = Boolean.parseBoolean(arg.substring("--streaming=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--maxHeapMb=")) {
+                    final String value = arg.substring("--maxHeapMb=".length()).trim();
+                    try {
+                        maxHeapMb = Long.parseLong(value);
+                    } catch (NumberFormatException ex) {
+                        maxHeapMb = 0;
+                    }
+                    if (maxHeapMb < 1) {
+                        System.err.println("ERROR: --maxHeapMb must be a positive integer: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--shard=")) {
+                    final String value = arg.substring("--shard=".length()).trim();
+                    final int slash = value.indexOf('/');
+                    try {
+                        shardIndex = Integer.parseInt(value.substring(0, Math.max(0, slash)).trim());
+                        shardCount = Integer.parseInt(value.substring(slash + 1).trim());
+                    } catch (NumberFormatException ex) {
+                        shardCount = 0;
+                    }
+                    if (shardCount < 1 || shardIndex < 1 || shardIndex > shardCount) {
+                        System.err.println("ERROR: --shard must be i/n with 1 <= i <= n: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--compress=")) {
+                    compress = Boolean.parseBoolean(arg.substring("--compress=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--git=")) {
+                    git = Boolean.parseBoolean(arg.substring("--git=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--since=")) {
+                    since = arg.substring("--since=".length()).trim();
+                    if (since.isEmpty() || since.startsWith("-")) {
+                        System.err.println("ERROR: --since needs a git revision or range: " + since);
+                        return 2;
+                    }
+                    git = true;
+                    continue;
+                }
+                if (arg.startsWith("--prefilter=")) {
+                    prefilter = Boolean.parseBoolean(arg.substring("--prefilter=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--parser=")) {
+                    final String value = arg.substring("--parser=".length()).trim();
+                    try {
+                        parseProfile = ParseProfile.of(value);
+                    } catch (IllegalArgumentException ex) {
+                        System.err.println("ERROR: --parser must be lean or full: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--cacheDir=")) {
+                    cacheDir = Paths.get(arg.substring("--cacheDir=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--cacheMaxMb=")) {
+                    final String value = arg.substring("--cacheMaxMb=".length()).trim();
+                    try {
+                        cacheMaxMb = Long.parseLong(value);
+                    } catch (NumberFormatException ex) {
+                        cacheMaxMb = 0;
+                    }
+                    if (cacheMaxMb < 1) {
+                        System.err.println("ERROR: --cacheMaxMb must be a positive integer: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--threads=")) {
+                    final String value = arg.substring("--threads=".length()).trim();
+                    try {
+                        threads = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("ERROR: --threads must be a positive integer: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
                 if (arg.startsWith("--modules=")) {
                     final String list = arg.substring("--modules=".length()).trim();
                     if (!list.isEmpty()) {
@@ -90,23 +247,154 @@ public final class Main {
             }
             Files.createDirectories(outDir);
 
+            ParseCache parseCache = null;
+            if (cacheDir != null) {
+                parseCache = ParseCache.open(cacheDir.toAbsolutePath().normalize(), cacheMaxMb * 1024 * 1024);
+            }
+
+            final ScanOptions baseOptions = ScanOptions.defaults()
+                    .withThreads(threads)
+                    .withParseCache(parseCache)
+                    .withPrefilter(prefilter)
+                    .withParser(parseProfile);
+
+            if (shardCount > 0 && (watch || serve || streaming || maxHeapMb > 0 || compress)) {
+                System.err.println("ERROR: --shard only scans; --watch, --serve, --streaming, --maxHeapMb and --compress do not apply");
+                return 2;
+            }
+            if (maxHeapMb > 0) {
+                if (serve || watch) {
+                    System.err.println("ERROR: --maxHeapMb keeps lines on disk and cannot be combined with --watch or --serve");
+                    return 2;
+                }
+                streaming = true;
+            }
+            if (serve && (watch || streaming)) {
+                System.err.println("ERROR: --serve keeps the graph in memory and cannot be combined with --watch or --streaming");
+                return 2;
+            }
+            if (watch) {
+                if (git) {
+                    System.err.println("ERROR: --git and --since read one snapshot of the git index and cannot be combined with --watch");
+                    return 2;
+                }
+                if (streaming) {
+                    System.err.println("ERROR: --watch keeps the graph in memory and cannot be combined with --streaming");
+                    return 2;
+                }
+                new IndexWatcher(repoRoot, outDir, includeTests, moduleFilter, baseOptions, compress).run();
+                return 0;
+            }
+
             ModuleLayout layout = ModuleLayout.load(repoRoot);
             layout = layout.filterModules(moduleFilter);
 
-            final GraphBuilder builder = new GraphBuilder(repoRoot, layout, includeTests);
-            final var graph = builder.build(); // full scan (fast enough for you)
+            GitFiles gitFiles = null;
+            if (git) {
+                try {
+                    gitFiles = GitFiles.load(repoRoot, since);
+                } catch (java.io.IOException ex) {
+                    if (since != null) {
+                        throw ex;
+                    }
+                    System.err.println("WARN: not using git, scanning the file system -> " + safeMsg(ex.getMessage()));
+                }
+            }
+            if (since != null && !incremental) {
+                System.err.println("WARN: --since without --incremental reparses every tracked file");
+            }
 
-            final GraphWriter writer = new GraphWriter(outDir);
-            writer.writeAll(graph, Instant.now().toString());
+            // mapped, so that checking for changes does not decode every record
+            final ScanOptions scanOptions = baseOptions
+                    .withManifest(incremental ? ScanManifest.open(outDir) : null)
+                    .withGit(gitFiles);
 
-            System.out.println("AI graph written to: " + outDir);
-            System.out.println("Schema: " + GraphWriter.SCHEMA_VERSION);
-            System.out.println("Modules: " + graph.modules().size()
-                    + ", types: " + graph.typeIndex().size()
-                    + ", EJB-ifaces: " + graph.ejbIndex().size());
+            final GraphBuilder builder = new GraphBuilder(repoRoot, layout, includeTests, scanOptions);
+            final RunMetrics metrics = builder.metrics();
+            if (shardCount > 0) {
+                final ShardFile shard = builder.scanShard(shardIndex, shardCount);
+                final Path shardPath = outDir.resolve(ShardFile.fileName(shardIndex, shardCount));
+                final RunMetrics.Timer saveTimer = metrics.phase("saveCaches");
+                shard.save(shardPath);
+                if (builder.scanManifest() != null) {
+                    builder.scanManifest().save(outDir);
+                }
+                if (parseCache != null) {
+                    parseCache.trim();
+                }
+                saveTimer.close();
+                metrics.write(outDir, Instant.now().toString());
+
+                System.out.println("Shard " + shardIndex + "/" + shardCount + " written to: " + shardPath);
+                System.out.println("Modules: " + shard.records().size() + " of " + shard.moduleIds().size()
+                        + ", types: " + shard.typeCount());
+                System.out.println("Files: " + builder.filesSeen() + ", parsed: " + builder.filesParsed()
+                        + ", lexed: " + builder.filesLexed());
+                return 0;
+            }
+            final String outputOptions = "schema=" + GraphWriter.SCHEMA_VERSION + " compress=" + compress;
+            // serving needs the graph in memory, so it always builds (from the manifest's records)
+            if (incremental && !serve && Files.exists(outDir.resolve(GraphWriter.INDEX_FILE))) {
+                final RunMetrics.Timer checkTimer = metrics.phase("upToDate");
+                final boolean upToDate = builder.upToDate(outputOptions);
+                checkTimer.close();
+                if (upToDate) {
+                    metrics.write(outDir, Instant.now().toString());
+                    System.out.println("AI graph up to date: " + outDir + " (no source file or option changed)");
+                    return 0;
+                }
+            }
+            final GraphWriter writer = new GraphWriter(outDir, compress);
+            final String generatedAt = Instant.now().toString();
+            final Graph graph;
+            if (streaming) {
+                graph = maxHeapMb > 0
+                        ? builder.buildStreaming(writer::writeModule, writer::writeReverseShard,
+                                maxHeapMb * 1024 * 1024 / SORT_BUFFERS_PER_HEAP)
+                        : builder.buildStreaming(writer::writeModule, writer::writeReverseShard);
+                final RunMetrics.Timer writeTimer = metrics.phase("write");
+                writer.writeIndices(graph, generatedAt);
+                writeTimer.close();
+                // the reverse index went to disk only
+                final RunMetrics.Timer closureTimer = metrics.phase("closure");
+                writer.writeClosure(InjectClosure.compute(writer::readReverseShards, threads));
+                closureTimer.close();
+            } else {
+                graph = builder.build();
+                final RunMetrics.Timer writeTimer = metrics.phase("write");
+                writer.writeAll(graph, generatedAt);
+                writeTimer.close();
+                writeClosure(writer, graph, metrics, threads);
+            }
+            metrics.outputs(writer.filesWritten(), writer.filesUnchanged(), writer.filesDeleted());
+            final RunMetrics.Timer cacheTimer = metrics.phase("saveCaches");
+            if (builder.scanManifest() != null) {
+                builder.scanManifest().save(outDir, builder.fingerprint(outputOptions));
+            }
+            if (parseCache != null) {
+                parseCache.trim();
+            }
+            cacheTimer.close();
+            metrics.write(outDir, generatedAt);
+
+            printGraphSummary(outDir, writer, graph);
+            System.out.println("Files: " + builder.filesSeen() + ", parsed: " + builder.filesParsed()
+                    + ", lexed: " + builder.filesLexed());
+            if (gitFiles != null) {
+                System.out.println("Git: tracked " + gitFiles.trackedCount() + ", dirty " + gitFiles.dirtyCount()
+                        + (since != null ? ", changed since " + since + " " + gitFiles.touchedCount() : ""));
+            }
+            System.out.println("Output files: written " + writer.filesWritten() + ", unchanged " + writer.filesUnchanged()
+                    + ", deleted " + writer.filesDeleted());
+            if (parseCache != null) {
+                System.out.println("Parse cache: hits " + parseCache.hits() + ", misses " + parseCache.misses());
+            }
             if (graph.parseWarnings() > 0) {
                 System.err.println("WARN: parse warnings: " + graph.parseWarnings());
             }
+            if (serve) {
+                new QueryServer(new GraphQueryIndex(graph), port).run();
+            }
             return 0;
         } catch (java.io.IOException ex) {
             System.err.println("ERROR: IO failure: " + safeMsg(ex.getMessage()));
@@ -118,6 +406,138 @@ public final class Main {
         }
     }
 
+    /**
+     * {@code merge [options] <shard files or dirs>}: resolves the records of all {@code --shard=i/n} runs
+     * into the same output a single run over all modules writes.
+     */
+    private static int runMerge(String[] args) {
+        Path outDir = null;
+        boolean compress = false;
+        int threads = 1;
+        boolean serve = false;
+        int port = 8765;
+        final List<Path> inputs = new ArrayList<>();
+
+        try {
+            for (String arg : args) {
+                if ("--help".equals(arg) || "-h".equals(arg)) {
+                    printUsage();
+                    return 0;
+                }
+                if (arg.startsWith("--outDir=")) {
+                    outDir = Paths.get(arg.substring("--outDir=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--compress=")) {
+                    compress = Boolean.parseBoolean(arg.substring("--compress=".length()));
+                    continue;
+                }
+                if ("--serve".equals(arg)) {
+                    serve = true;
+                    continue;
+                }
+                if (arg.startsWith("--port=")) {
+                    final String value = arg.substring("--port=".length()).trim();
+                    try {
+                        port = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        port = -1;
+                    }
+                    if (port < 0 || port > 65535) {
+                        System.err.println("ERROR: --port must be between 0 and 65535: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--threads=")) {
+                    final String value = arg.substring("--threads=".length()).trim();
+                    try {
+                        threads = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        threads = 0;
+                    }
+                    if (threads < 1) {
+                        System.err.println("ERROR: --threads must be a positive integer: " + value);
+                        return 2;
+                    }
+                    continue;
+                }
+                if (arg.startsWith("--")) {
+                    System.err.println("ERROR: unknown merge argument: " + arg);
+                    printUsage();
+                    return 2;
+                }
+                inputs.add(Paths.get(arg));
+            }
+
+            final List<ShardFile> shards = new ArrayList<>();
+            for (Path input : inputs) {
+                if (Files.isDirectory(input)) {
+                    try (var files = Files.list(input)) {
+                        for (Path file : files.filter(p -> p.getFileName().toString().endsWith(ShardFile.SUFFIX))
+                                .sorted().toList()) {
+                            shards.add(ShardFile.load(file));
+                        }
+                    }
+                } else {
+                    shards.add(ShardFile.load(input));
+                }
+            }
+            final String problem = ShardFile.checkComplete(shards);
+            if (problem != null) {
+                System.err.println("ERROR: cannot merge: " + problem);
+                return 2;
+            }
+
+            outDir = (outDir != null ? outDir : Paths.get(".repo-ai")).toAbsolutePath().normalize();
+            Files.createDirectories(outDir);
+
+            final RunMetrics metrics = new RunMetrics();
+            final GraphWriter writer = new GraphWriter(outDir, compress);
+            final String generatedAt = Instant.now().toString();
+            final Graph graph = GraphBuilder.merge(shards, metrics);
+            final RunMetrics.Timer writeTimer = metrics.phase("write");
+            writer.writeAll(graph, generatedAt);
+            writeTimer.close();
+            writeClosure(writer, graph, metrics, threads);
+            metrics.outputs(writer.filesWritten(), writer.filesUnchanged(), writer.filesDeleted());
+            metrics.write(outDir, generatedAt);
+
+            printGraphSummary(outDir, writer, graph);
+            System.out.println("Merged shards: " + shards.size());
+            System.out.println("Output files: written " + writer.filesWritten() + ", unchanged " + writer.filesUnchanged()
+                    + ", deleted " + writer.filesDeleted());
+            if (graph.parseWarnings() > 0) {
+                System.err.println("WARN: parse warnings: " + graph.parseWarnings());
+            }
+            if (serve) {
+                new QueryServer(new GraphQueryIndex(graph), port).run();
+            }
+            return 0;
+        } catch (java.io.IOException ex) {
+            System.err.println("ERROR: IO failure: " + safeMsg(ex.getMessage()));
+            return 2;
+        } catch (Exception ex) {
+            System.err.println("ERROR: failed to merge shards: "
+                    + ex.getClass().getSimpleName() + ": " + safeMsg(ex.getMessage()));
+            return 1;
+        }
+    }
+
+    private static void writeClosure(GraphWriter writer, Graph graph, RunMetrics metrics, int threads) throws Exception {
+        final RunMetrics.Timer closureTimer = metrics.phase("closure");
+        writer.writeClosure(InjectClosure.compute(graph, threads));
+        closureTimer.close();
+    }
+
+    private static void printGraphSummary(Path outDir, GraphWriter writer, Graph graph) {
+        System.out.println("AI graph written to: " + outDir);
+        System.out.println("Schema: " + GraphWriter.SCHEMA_VERSION);
+        System.out.println("Modules: " + writer.moduleCount()
+                + ", types: " + graph.typeIndex().size()
+                + ", EJB-ifaces: " + graph.ejbIndex().size());
+    }
+
     private static void loadModulesFromFile(Path moduleFile, Set<String> moduleFilter) throws java.io.IOException {
         if (!Files.isRegularFile(moduleFile)) {
             throw new java.io.IOException("Module file not found: " + moduleFile);
@@ -148,9 +568,25 @@ public final class Main {
 
     private static void printUsage() {
         System.out.println("Usage: ai-indexer [repoRoot] [options]");
+        System.out.println("       ai-indexer merge [--outDir=<path>] [--compress=<bool>] [--threads=<n>] [--serve] <shard files or dirs>");
         System.out.println("Options:");
         System.out.println("  --outDir=<path>         Output directory (default: <repoRoot>/.repo-ai)");
         System.out.println("  --includeTests=<bool>   Include test sources (default: true)");
+        System.out.println("  --incremental=<bool>    Keep a scan manifest in outDir and reparse only changed files (default: false)");
+        System.out.println("  --watch                 Keep running and re-index changed files (Ctrl+C to stop)");
+        System.out.println("  --serve                 After indexing, answer graph queries over local HTTP (Ctrl+C to stop)");
+        System.out.println("  --port=<n>              Port for --serve, bound to loopback (default: 8765)");
+        System.out.println("  --streaming=<bool>      Write each module as soon as it is resolved (default: false)");
+        System.out.println("  --maxHeapMb=<n>         Sort large modules on disk to fit an n MB heap (implies --streaming)");
+        System.out.println("  --compress=<bool>       Write JSONL as gzip blocks with a block index (default: false)");
+        System.out.println("  --git=<bool>            Scan git-tracked files only, reusing records by blob ID (default: false)");
+        System.out.println("  --since=<rev>           Reparse only files changed since a git revision or in a range (implies --git)");
+        System.out.println("  --prefilter=<bool>      Skip full parsing of files without EJB/CDI/JPA annotations (default: false)");
+        System.out.println("  --parser=<lean|full>    JavaParser setup; lean skips tokens and comment attribution (default: lean)");
+        System.out.println("  --cacheDir=<path>       Content-addressed parse cache shared across checkouts (default: off)");
+        System.out.println("  --cacheMaxMb=<n>        Size bound of the parse cache, LRU-evicted (default: 1024)");
+        System.out.println("  --threads=<n>           Parse files on n worker threads (default: 1)");
+        System.out.println("  --shard=<i/n>           Only scan every n-th module from the i-th on and write shard-i-of-n.shard.bin");
         System.out.println("  --modules=<m1,m2>       Comma-separated module IDs to include");
         System.out.println("  --moduleFile=<path>     File containing module IDs (one per line or comma-separated)");
         System.out.println("  --help, -h              Show this help");
@@ -0,0 +1,206 @@
+package ai.indexer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ai.indexer.io.GraphWriter;
+import ai.indexer.scan.TypeScanner;
+
+/**
+ * Content-addressed, on-disk cache of {@link TypeScanner.FileScan} records, shareable between
+ * checkouts and branches.
+ * <p>
+ * Layout: {@code <dir>/<schema>-s<scannerVersion>/<2 hex>/<sha256>}. Entries are written to a temp
+ * file and atomically renamed, so concurrent runs only ever see complete entries. Hits refresh the
+ * entry mtime; {@link #trim()} evicts least recently used entries once the cache exceeds its size bound.
+ */
+public final class ParseCache {
+
+    private static final int MAGIC = 0x41495043; // "AIPC"
+    private static final String LOCK_FILE = ".lock";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private ParseCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public static ParseCache open(Path baseDir, long maxBytes) throws IOException {
+        Objects.requireNonNull(baseDir, "baseDir");
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0: " + maxBytes);
+        }
+        final String version = GraphWriter.SCHEMA_VERSION.replaceAll("[^A-Za-z0-9.-]", "-")
+                + "-s" + TypeScanner.SCANNER_VERSION;
+        final Path dir = baseDir.resolve(version);
+        Files.createDirectories(dir);
+        return new ParseCache(dir, maxBytes);
+    }
+
+    /**
+     * Returns the cached records for the given content hash (re-bound to fileRel), or null on a miss.
+     */
+    public TypeScanner.FileScan get(String sha256, String fileRel) {
+        final Path entry = entryPath(sha256);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("bad magic");
+            }
+            final TypeScanner.FileScan scan = ScanRecordCodec.readFileScan(in);
+            touch(entry);
+            hits.incrementAndGet();
+            return withFileRel(scan, fileRel);
+        } catch (NoSuchFileException ex) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException ex) {
+            // truncated or foreign file: drop it and parse again
+            misses.incrementAndGet();
+            deleteQuietly(entry);
+            return null;
+        }
+    }
+
+    public void put(String sha256, TypeScanner.FileScan scan) {
+        final Path entry = entryPath(sha256);
+        Path tmp = null;
+        try {
+            Files.createDirectories(entry.getParent());
+            tmp = Files.createTempFile(entry.getParent(), sha256, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                // fileRel is path-dependent, the rest only depends on content
+                ScanRecordCodec.writeFileScan(out, withFileRel(scan, null));
+            }
+            bytesWritten.addAndGet(Files.size(tmp));
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // cache is best-effort
+            if (tmp != null) {
+                deleteQuietly(tmp);
+            }
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the cache is below 90% of its bound.
+     * Skipped if another process is trimming at the same time.
+     */
+    public void trim() throws IOException {
+        if (bytesWritten.get() == 0) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(dir.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = tryLock(ch)) {
+            if (lock == null) {
+                return;
+            }
+
+            final List<CachedFile> files = new ArrayList<>();
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    final String name = file.getFileName().toString();
+                    if (attrs.isRegularFile() && !LOCK_FILE.equals(name) && !name.endsWith(".tmp")) {
+                        files.add(new CachedFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            long total = 0;
+            for (CachedFile f : files) {
+                total += f.size();
+            }
+            if (total <= maxBytes) {
+                return;
+            }
+
+            files.sort(Comparator.comparingLong(CachedFile::lastUsedMillis));
+            final long target = maxBytes / 10 * 9;
+            for (CachedFile f : files) {
+                if (total <= target) {
+                    break;
+                }
+                deleteQuietly(f.file());
+                total -= f.size();
+            }
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    private Path entryPath(String sha256) {
+        return dir.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private static FileLock tryLock(FileChannel ch) throws IOException {
+        try {
+            return ch.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            return null;
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // LRU order is best-effort
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // another run may hold or have removed it
+        }
+    }
+
+    private static TypeScanner.FileScan withFileRel(TypeScanner.FileScan scan, String fileRel) {
+        final List<TypeScanner.ScannedType> types = new ArrayList<>(scan.types().size());
+        for (var st : scan.types()) {
+            types.add(new TypeScanner.ScannedType(st.fqcn(), st.packageName(), st.onDemandImports(), fileRel,
+                    st.isInterface(), st.isEjbBean(), st.ejbKind(), st.isEjbLocal(), st.isEjbRemote(),
+                    st.implementsRaw(), st.extendsRaw(), st.injectedFields()));
+        }
+        return new TypeScanner.FileScan(types, scan.injections(), scan.warnings());
+    }
+
+    private record CachedFile(Path file, long size, long lastUsedMillis) {
+    }
+}
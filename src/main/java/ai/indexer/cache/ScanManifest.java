@@ -0,0 +1,653 @@
+package ai.indexer.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ai.indexer.scan.TypeScanner;
+
+/**
+ * Per-file fingerprints of the previous run plus the records each file produced.
+ * <p>
+ * A file whose size and mtime are unchanged is reused without being read; if only the mtime moved,
+ * the content hash decides. In git mode a matching blob ID reuses the records before either check
+ * (see {@link ai.indexer.scan.GitFiles}). Stored as {@value #FILE_NAME} in the output dir: entries
+ * sorted by file path, then a table of their offsets, so {@link #open} can look files up in the mapped
+ * file instead of loading every record. The header also holds a fingerprint of the options the run
+ * used (see {@link #save(Path, long)}), so the next run can tell whether its output would be the same.
+ */
+public final class ScanManifest {
+
+    public static final String FILE_NAME = "scan-manifest.bin";
+
+    private static final int MAGIC = 0x41494d46; // "AIMF"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+
+    /** In memory; null when mapped or spilled. */
+    private final Map<String, Entry> entries;
+    /** The previous run's file, see {@link #open}; null otherwise. */
+    private final Mapped mapped;
+    /** This run's entries appended to a file, see {@link #next()}; null otherwise. */
+    private final Spill spill;
+    private final long options;
+
+    private ScanManifest(Map<String, Entry> entries, Mapped mapped, Spill spill, long options) {
+        this.entries = entries;
+        this.mapped = mapped;
+        this.spill = spill;
+        this.options = options;
+    }
+
+    public static ScanManifest empty() {
+        return new ScanManifest(new HashMap<>(), null, null, 0L);
+    }
+
+    /**
+     * Loads the manifest from outDir. A missing, stale or unreadable manifest yields an empty one.
+     */
+    public static ScanManifest load(Path outDir) {
+        Objects.requireNonNull(outDir, "outDir");
+        final Path file = outDir.resolve(FILE_NAME);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || in.readInt() != TypeScanner.SCANNER_VERSION) {
+                return empty();
+            }
+            final int n = in.readInt();
+            final long options = in.readLong();
+            final Map<String, Entry> entries = new HashMap<>(Math.max(16, n * 4 / 3 + 1));
+            for (int i = 0; i < n; i++) {
+                final String fileRel = ScanRecordCodec.readString(in);
+                entries.put(fileRel, readEntry(in));
+            }
+            return new ScanManifest(entries, null, null, options);
+        } catch (NoSuchFileException ex) {
+            return empty();
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("WARN: ignoring unreadable " + FILE_NAME + " -> "
+                    + ex.getClass().getSimpleName() + ": " + ex.getMessage());
+            return empty();
+        }
+    }
+
+    /**
+     * Maps the manifest in outDir instead of loading it: {@link #get} decodes one entry at a time, and
+     * {@link #next()} collects the new run's entries in a file, so neither run's records are held on the
+     * heap. A missing, stale or unreadable manifest yields an empty mapped one.
+     */
+    public static ScanManifest open(Path outDir) {
+        Objects.requireNonNull(outDir, "outDir");
+        final Path file = outDir.resolve(FILE_NAME);
+        final Path spillFile = outDir.resolve(FILE_NAME + ".entries");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                System.err.println("WARN: " + FILE_NAME + " exceeds 2 GB and is loaded into memory");
+                return load(outDir);
+            }
+            final ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES + 8
+                    || buf.getInt(0) != MAGIC
+                    || buf.getInt(4) != FORMAT_VERSION
+                    || buf.getInt(8) != TypeScanner.SCANNER_VERSION) {
+                return new ScanManifest(null, Mapped.EMPTY.withSpill(spillFile), null, 0L);
+            }
+            final int count = buf.getInt(12);
+            final long tableOffset = buf.getLong((int) size - 8);
+            if (count < 0 || tableOffset < HEADER_BYTES || tableOffset + 8L * count + 8 != size) {
+                throw new IOException("bad offset table");
+            }
+            return new ScanManifest(null, new Mapped(buf, count, (int) tableOffset, spillFile), null, buf.getLong(16));
+        } catch (NoSuchFileException ex) {
+            return new ScanManifest(null, Mapped.EMPTY.withSpill(spillFile), null, 0L);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("WARN: ignoring unreadable " + FILE_NAME + " -> "
+                    + ex.getClass().getSimpleName() + ": " + ex.getMessage());
+            return new ScanManifest(null, Mapped.EMPTY.withSpill(spillFile), null, 0L);
+        }
+    }
+
+    /**
+     * @return an empty manifest for the entries of the run that reuses this one: in memory, or after
+     * {@link #open} appended to {@value #FILE_NAME}{@code .entries} next to it until {@link #save}
+     */
+    public ScanManifest next() {
+        return mapped != null ? new ScanManifest(null, null, new Spill(mapped), 0L) : empty();
+    }
+
+    /**
+     * @return the options fingerprint this manifest was saved with, 0 if none
+     */
+    public long options() {
+        return options;
+    }
+
+    public void save(Path outDir) throws IOException {
+        save(outDir, 0L);
+    }
+
+    /**
+     * Writes the manifest to outDir, replacing the previous one. A mapped manifest, and the one this
+     * manifest was created from by {@link #next()}, are unmapped first and can no longer be read.
+     *
+     * @param options fingerprint of the options that shaped this run's output, or 0 if the output
+     *                is not complete (e.g. only a shard was scanned)
+     */
+    public void save(Path outDir, long options) throws IOException {
+        Objects.requireNonNull(outDir, "outDir");
+        final Path file = outDir.resolve(FILE_NAME);
+        final Path tmp = outDir.resolve(FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            if (spill != null) {
+                spill.writeTo(out, options);
+            } else if (mapped != null) {
+                mapped.writeTo(out, options);
+            } else {
+                final List<byte[]> keys = new ArrayList<>(entries.size());
+                for (String fileRel : entries.keySet()) {
+                    keys.add(fileRel.getBytes(StandardCharsets.UTF_8));
+                }
+                keys.sort(Arrays::compareUnsigned);
+                final EntryWriter writer = new EntryWriter(out, keys.size(), options);
+                final Encoder encoder = new Encoder();
+                for (byte[] key : keys) {
+                    final String fileRel = new String(key, StandardCharsets.UTF_8);
+                    writer.add(encoder.encode(fileRel, entries.get(fileRel)), encoder.length());
+                }
+                writer.finish();
+            }
+        }
+        if (spill != null) {
+            spill.previous.unmap();
+            if (spill.carried != null) {
+                spill.carried.unmap();
+            }
+        } else if (mapped != null) {
+            mapped.unmap();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (spill != null) {
+            spill.delete();
+        }
+    }
+
+    public Entry get(String fileRel) {
+        if (entries != null) {
+            return entries.get(fileRel);
+        }
+        if (mapped == null) {
+            throw new IllegalStateException("entries being written to " + spill.file + " cannot be read");
+        }
+        final int i = mapped.find(fileRel.getBytes(StandardCharsets.UTF_8));
+        return i < 0 ? null : mapped.entry(i);
+    }
+
+    public void put(String fileRel, Entry entry) throws IOException {
+        if (entries != null) {
+            entries.put(fileRel, entry);
+        } else if (spill != null) {
+            spill.add(fileRel, entry);
+        } else {
+            throw new IllegalStateException("a mapped manifest is read-only");
+        }
+    }
+
+    public int size() {
+        return entries != null ? entries.size() : mapped != null ? mapped.count : spill.keys.size();
+    }
+
+    /**
+     * Size, mtime and blob ID of a file's entry, without decoding its records.
+     *
+     * @return null if the file has no entry
+     */
+    public Stat stat(String fileRel) {
+        if (entries != null) {
+            final Entry entry = entries.get(fileRel);
+            return entry != null ? new Stat(entry.size(), entry.mtimeMillis(), entry.blobId()) : null;
+        }
+        if (mapped == null) {
+            throw new IllegalStateException("entries being written to " + spill.file + " cannot be read");
+        }
+        final int i = mapped.find(fileRel.getBytes(StandardCharsets.UTF_8));
+        return i < 0 ? null : mapped.stat(i);
+    }
+
+    /**
+     * @return the number of entries under any of the source roots {@code rootsRel}
+     */
+    public int countUnder(List<String> rootsRel) {
+        int n = 0;
+        if (entries != null) {
+            for (String fileRel : entries.keySet()) {
+                if (isUnderAny(fileRel, rootsRel)) {
+                    n++;
+                }
+            }
+            return n;
+        }
+        if (mapped == null) {
+            throw new IllegalStateException("entries being written to " + spill.file + " cannot be read");
+        }
+        for (int i = 0; i < mapped.count; i++) {
+            if (isUnderAny(mapped.key(i), rootsRel)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Keeps entries of {@code previous} that were outside every scanned source root (e.g. modules
+     * excluded by --modules), so a filtered run does not invalidate the rest of the repo.
+     * Entries under a scanned root that were not seen again are deleted files and are dropped.
+     * A spilled manifest copies them from the mapped previous one when it is saved.
+     */
+    public void carryOver(ScanManifest previous, List<String> scannedRootsRel) {
+        if (spill != null) {
+            spill.carryOver(previous.mapped, List.copyOf(scannedRootsRel));
+            return;
+        }
+        if (entries == null) {
+            throw new IllegalStateException("a mapped manifest is read-only");
+        }
+        if (previous.mapped != null) {
+            for (int i = 0; i < previous.mapped.count; i++) {
+                final String fileRel = previous.mapped.key(i);
+                if (!entries.containsKey(fileRel) && !isUnderAny(fileRel, scannedRootsRel)) {
+                    entries.put(fileRel, previous.mapped.entry(i));
+                }
+            }
+            return;
+        }
+        for (var e : previous.entries.entrySet()) {
+            final String fileRel = e.getKey();
+            if (entries.containsKey(fileRel) || isUnderAny(fileRel, scannedRootsRel)) {
+                continue;
+            }
+            entries.put(fileRel, e.getValue());
+        }
+    }
+
+    private static boolean isUnderAny(String fileRel, List<String> rootsRel) {
+        for (String root : rootsRel) {
+            if (root.isEmpty() || (fileRel.startsWith(root) && fileRel.length() > root.length()
+                    && fileRel.charAt(root.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        final long size = in.readLong();
+        final long mtime = in.readLong();
+        final String hash = ScanRecordCodec.readString(in);
+        final String blobId = ScanRecordCodec.readString(in);
+        final TypeScanner.FileScan scan = ScanRecordCodec.readFileScan(in);
+        return new Entry(size, mtime, hash, blobId, scan);
+    }
+
+    /**
+     * Encodes entries, path first, into a reused buffer.
+     */
+    private static final class Encoder {
+        private final Bytes bytes = new Bytes();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        /**
+         * @return the encoded entry in the first {@link #length()} bytes, valid until the next call
+         */
+        byte[] encode(String fileRel, Entry entry) throws IOException {
+            bytes.reset();
+            ScanRecordCodec.writeString(out, fileRel);
+            out.writeLong(entry.size());
+            out.writeLong(entry.mtimeMillis());
+            ScanRecordCodec.writeString(out, entry.sha256());
+            ScanRecordCodec.writeString(out, entry.blobId());
+            ScanRecordCodec.writeFileScan(out, entry.scan());
+            out.flush();
+            return bytes.array();
+        }
+
+        int length() {
+            return bytes.size();
+        }
+    }
+
+    private static final class Bytes extends ByteArrayOutputStream {
+        Bytes() {
+            super(1 << 12);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * Writes the header, the encoded entries in path order and the offset table.
+     */
+    private static final class EntryWriter {
+        private final DataOutputStream out;
+        private final long[] offsets;
+        private int count;
+        private long position = HEADER_BYTES;
+
+        EntryWriter(DataOutputStream out, int count, long options) throws IOException {
+            this.out = out;
+            this.offsets = new long[count];
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(TypeScanner.SCANNER_VERSION);
+            out.writeInt(count);
+            out.writeLong(options);
+        }
+
+        void add(byte[] entry, int length) throws IOException {
+            offsets[count++] = position;
+            out.write(entry, 0, length);
+            position += length;
+        }
+
+        void finish() throws IOException {
+            if (count != offsets.length) {
+                throw new IllegalStateException("wrote " + count + " of " + offsets.length + " entries");
+            }
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(position);
+        }
+    }
+
+    /**
+     * A manifest file mapped read-only; entries are found by binary search over the offset table.
+     */
+    private static final class Mapped {
+        static final Mapped EMPTY = new Mapped(ByteBuffer.allocate(0), 0, 0, null);
+
+        /** Null once {@link #unmap}ped. */
+        private ByteBuffer buf;
+        final int count;
+        final int tableOffset;
+        final Path spillFile;
+
+        Mapped(ByteBuffer buf, int count, int tableOffset, Path spillFile) {
+            this.buf = buf;
+            this.count = count;
+            this.tableOffset = tableOffset;
+            this.spillFile = spillFile;
+        }
+
+        Mapped withSpill(Path spillFile) {
+            return new Mapped(buf, count, tableOffset, spillFile);
+        }
+
+        private ByteBuffer buf() {
+            final ByteBuffer b = buf;
+            if (b == null) {
+                throw new IllegalStateException(FILE_NAME + " was replaced by save() and can no longer be read");
+            }
+            return b;
+        }
+
+        /**
+         * Releases the mapping now rather than when the buffer is collected: Windows refuses to replace
+         * a file that is still mapped. Any later read throws.
+         */
+        void unmap() {
+            final ByteBuffer b = buf;
+            buf = null;
+            if (b == null || !b.isDirect()) {
+                return;
+            }
+            try {
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), b);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                // left to the garbage collector
+            }
+        }
+
+        int offset(int i) {
+            return (int) buf().getLong(tableOffset + i * 8);
+        }
+
+        int end(int i) {
+            return i + 1 < count ? offset(i + 1) : tableOffset;
+        }
+
+        int find(byte[] key) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int c = compareKey(offset(mid), key);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compareKey(int offset, byte[] key) {
+            final int len = buf().getInt(offset);
+            final int n = Math.min(len, key.length);
+            for (int i = 0; i < n; i++) {
+                final int c = Byte.compareUnsigned(buf().get(offset + 4 + i), key[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(len, key.length);
+        }
+
+        String key(int i) {
+            final int offset = offset(i);
+            final byte[] key = new byte[buf().getInt(offset)];
+            buf().get(offset + 4, key);
+            return new String(key, StandardCharsets.UTF_8);
+        }
+
+        Entry entry(int i) {
+            final int offset = offset(i);
+            final byte[] bytes = new byte[end(i) - offset];
+            buf().get(offset, bytes);
+            try {
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                ScanRecordCodec.readString(in);
+                return readEntry(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void copy(int i, EntryWriter writer) throws IOException {
+            final int offset = offset(i);
+            final byte[] bytes = new byte[end(i) - offset];
+            buf().get(offset, bytes);
+            writer.add(bytes, bytes.length);
+        }
+
+        Stat stat(int i) {
+            int at = offset(i);
+            at += 4 + buf().getInt(at); // path
+            final long size = buf().getLong(at);
+            final long mtime = buf().getLong(at + 8);
+            at += 16;
+            final int hashLength = buf().getInt(at);
+            at += 4 + Math.max(0, hashLength);
+            final int blobLength = buf().getInt(at);
+            if (blobLength < 0) {
+                return new Stat(size, mtime, null);
+            }
+            final byte[] blob = new byte[blobLength];
+            buf().get(at + 4, blob);
+            return new Stat(size, mtime, new String(blob, StandardCharsets.UTF_8));
+        }
+
+        void writeTo(DataOutputStream out, long options) throws IOException {
+            final EntryWriter writer = new EntryWriter(out, count, options);
+            for (int i = 0; i < count; i++) {
+                copy(i, writer);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Entries appended to a file as they are collected; only their paths and file positions stay in
+     * memory. {@link #writeTo} sorts them by path, merges the carried-over entries of the mapped previous
+     * manifest and copies both into the manifest.
+     */
+    private static final class Spill {
+        final Path file;
+        final List<byte[]> keys = new ArrayList<>();
+        private long[] offsets = new long[1024];
+        private int[] lengths = new int[1024];
+        private final Encoder encoder = new Encoder();
+        private DataOutputStream out;
+        private long position;
+        /** The mapped manifest this one was created from. */
+        final Mapped previous;
+        private Mapped carried;
+        private List<String> scannedRootsRel = List.of();
+
+        Spill(Mapped previous) {
+            this.file = previous.spillFile;
+            this.previous = previous;
+        }
+
+        void add(String fileRel, Entry entry) throws IOException {
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            }
+            final byte[] bytes = encoder.encode(fileRel, entry);
+            final int n = keys.size();
+            if (n == offsets.length) {
+                offsets = Arrays.copyOf(offsets, n * 2);
+                lengths = Arrays.copyOf(lengths, n * 2);
+            }
+            keys.add(fileRel.getBytes(StandardCharsets.UTF_8));
+            offsets[n] = position;
+            lengths[n] = encoder.length();
+            out.write(bytes, 0, encoder.length());
+            position += encoder.length();
+        }
+
+        void carryOver(Mapped previous, List<String> scannedRootsRel) {
+            this.carried = previous;
+            this.scannedRootsRel = scannedRootsRel;
+        }
+
+        void writeTo(DataOutputStream target, long options) throws IOException {
+            if (out != null) {
+                out.close();
+            }
+            // path order; a path added twice keeps its last entry
+            final Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                final int c = Arrays.compareUnsigned(keys.get(a), keys.get(b));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            final List<Integer> added = new ArrayList<>(order.length);
+            for (int i = 0; i < order.length; i++) {
+                if (i + 1 == order.length || !Arrays.equals(keys.get(order[i]), keys.get(order[i + 1]))) {
+                    added.add(order[i]);
+                }
+            }
+            // previous entries to keep are encoded as -(index + 1)
+            final List<Integer> merged = new ArrayList<>(added.size());
+            int a = 0;
+            final int previousCount = carried != null ? carried.count : 0;
+            for (int p = 0; p < previousCount; p++) {
+                final String fileRel = carried.key(p);
+                final byte[] key = fileRel.getBytes(StandardCharsets.UTF_8);
+                int c = 1;
+                while (a < added.size() && (c = Arrays.compareUnsigned(keys.get(added.get(a)), key)) < 0) {
+                    merged.add(added.get(a++));
+                }
+                if (c != 0 && !isUnderAny(fileRel, scannedRootsRel)) {
+                    merged.add(-(p + 1));
+                }
+            }
+            while (a < added.size()) {
+                merged.add(added.get(a++));
+            }
+
+            final EntryWriter writer = new EntryWriter(target, merged.size(), options);
+            try (FileChannel ch = out != null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+                byte[] bytes = new byte[1 << 12];
+                for (int ref : merged) {
+                    if (ref < 0) {
+                        carried.copy(-ref - 1, writer);
+                        continue;
+                    }
+                    if (bytes.length < lengths[ref]) {
+                        bytes = new byte[Math.max(lengths[ref], bytes.length * 2)];
+                    }
+                    final ByteBuffer dst = ByteBuffer.wrap(bytes, 0, lengths[ref]);
+                    for (long at = offsets[ref]; dst.hasRemaining(); ) {
+                        final int read = ch.read(dst, at);
+                        if (read < 0) {
+                            throw new IOException("truncated " + file);
+                        }
+                        at += read;
+                    }
+                    writer.add(bytes, lengths[ref]);
+                }
+            }
+            writer.finish();
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Fingerprint + extracted records of one repo-relative source file.
+     *
+     * @param blobId git blob ID of the content, or null if it was not clean and tracked when scanned
+     */
+    public record Entry(long size, long mtimeMillis, String sha256, String blobId, TypeScanner.FileScan scan) {
+    }
+
+    /**
+     * The fingerprint part of an {@link Entry}.
+     */
+    public record Stat(long size, long mtimeMillis, String blobId) {
+    }
+}
@@ -0,0 +1,151 @@
+package ai.indexer.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.indexer.model.InjectionVia;
+import ai.indexer.scan.TypeScanner;
+
+/**
+ * Compact binary encoding of {@link TypeScanner.FileScan} records.
+ * Strings are length-prefixed UTF-8 (-1 = null), lists are count-prefixed.
+ * Bump {@link TypeScanner#SCANNER_VERSION} when the scanned records change shape.
+ */
+public final class ScanRecordCodec {
+
+    private static final InjectionVia[] VIAS = InjectionVia.values();
+
+    private ScanRecordCodec() {
+    }
+
+    public static void writeFileScan(DataOutput out, TypeScanner.FileScan scan) throws IOException {
+        out.writeInt(scan.warnings());
+
+        out.writeInt(scan.types().size());
+        for (var st : scan.types()) {
+            writeString(out, st.fqcn());
+            writeString(out, st.packageName());
+            writeStrings(out, st.onDemandImports());
+            writeString(out, st.fileRel());
+            out.writeBoolean(st.isInterface());
+            out.writeBoolean(st.isEjbBean());
+            writeString(out, st.ejbKind());
+            out.writeBoolean(st.isEjbLocal());
+            out.writeBoolean(st.isEjbRemote());
+            writeStrings(out, st.implementsRaw());
+            writeStrings(out, st.extendsRaw());
+            out.writeInt(st.injectedFields().size());
+            for (var f : st.injectedFields()) {
+                writeString(out, f.fieldName());
+                writeString(out, f.fieldTypeRaw());
+                out.writeByte(f.via().ordinal());
+            }
+        }
+
+        out.writeInt(scan.injections().size());
+        for (var si : scan.injections()) {
+            writeString(out, si.fromFqcn());
+            writeString(out, si.fromPackageName());
+            writeStrings(out, si.onDemandImports());
+            writeString(out, si.memberKind());
+            writeString(out, si.member());
+            writeString(out, si.injectedTypeRaw());
+            out.writeByte(si.via().ordinal());
+        }
+    }
+
+    public static TypeScanner.FileScan readFileScan(DataInput in) throws IOException {
+        final int warnings = in.readInt();
+
+        // every record of a file carries the same imports; keep one copy
+        List<String> imports = List.of();
+
+        final int typeCount = in.readInt();
+        final List<TypeScanner.ScannedType> types = new ArrayList<>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            final String fqcn = readString(in);
+            final String packageName = readString(in);
+            imports = readShared(in, imports);
+            final String fileRel = readString(in);
+            final boolean isInterface = in.readBoolean();
+            final boolean isEjbBean = in.readBoolean();
+            final String ejbKind = readString(in);
+            final boolean isEjbLocal = in.readBoolean();
+            final boolean isEjbRemote = in.readBoolean();
+            final List<String> implementsRaw = readStrings(in);
+            final List<String> extendsRaw = readStrings(in);
+            final int fieldCount = in.readInt();
+            final List<TypeScanner.InjectedField> fields = new ArrayList<>(fieldCount);
+            for (int j = 0; j < fieldCount; j++) {
+                fields.add(new TypeScanner.InjectedField(readString(in), readString(in), readVia(in)));
+            }
+            types.add(new TypeScanner.ScannedType(fqcn, packageName, imports, fileRel, isInterface, isEjbBean,
+                    ejbKind, isEjbLocal, isEjbRemote, implementsRaw, extendsRaw, fields));
+        }
+
+        final int injectionCount = in.readInt();
+        final List<TypeScanner.ScannedInjection> injections = new ArrayList<>(injectionCount);
+        for (int i = 0; i < injectionCount; i++) {
+            final String fromFqcn = readString(in);
+            final String fromPackageName = readString(in);
+            imports = readShared(in, imports);
+            injections.add(new TypeScanner.ScannedInjection(
+                    fromFqcn, fromPackageName, imports, readString(in), readString(in), readString(in), readVia(in)));
+        }
+
+        return new TypeScanner.FileScan(types, injections, warnings);
+    }
+
+    public static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeStrings(DataOutput out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        final int n = in.readInt();
+        final List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(readString(in));
+        }
+        return out;
+    }
+
+    private static List<String> readShared(DataInput in, List<String> previous) throws IOException {
+        final List<String> list = readStrings(in);
+        return list.equals(previous) ? previous : List.copyOf(list);
+    }
+
+    public static InjectionVia readVia(DataInput in) throws IOException {
+        final int ordinal = in.readUnsignedByte();
+        if (ordinal >= VIAS.length) {
+            throw new IOException("Bad injection kind: " + ordinal);
+        }
+        return VIAS[ordinal];
+    }
+}
@@ -0,0 +1,282 @@
+package ai.indexer.graph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of non-negative ints split into 65536-value chunks (a reduced Roaring layout): a chunk
+ * holding at most {@link #ARRAY_MAX} values is a sorted {@code char[]} of its low 16 bits, a denser one
+ * a 1024-word bitmap. Empty chunks are not stored. Built with a {@link Builder}.
+ * <p>
+ * Serialized form (big-endian), see {@link #write} and {@link #read}:
+ * <pre>
+ *   int chunkCount
+ *   chunkCount x (char key, int cardinality)
+ *   per chunk: cardinality x char (array) or 1024 x long (bitmap)
+ * </pre>
+ */
+public final class CompressedBitSet {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private static final CompressedBitSet EMPTY = new CompressedBitSet(new char[0], new Object[0], new int[0], 0);
+
+    private final char[] keys;          // high 16 bits of each chunk, ascending
+    private final Object[] containers;  // char[] (array chunk) or long[] (bitmap chunk)
+    private final int[] cardinalities;
+    private final int cardinality;
+
+    private CompressedBitSet(char[] keys, Object[] containers, int[] cardinalities, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinalities = cardinalities;
+        this.cardinality = cardinality;
+    }
+
+    public static CompressedBitSet empty() {
+        return EMPTY;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean contains(int value) {
+        final int chunk = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (value < 0 || chunk < 0) {
+            return false;
+        }
+        final char low = (char) value;
+        if (containers[chunk] instanceof char[] array) {
+            return Arrays.binarySearch(array, low) >= 0;
+        }
+        final long[] bitmap = (long[]) containers[chunk];
+        return (bitmap[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * Calls {@code action} for each value in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int c = 0; c < keys.length; c++) {
+            final int base = keys[c] << 16;
+            if (containers[c] instanceof char[] array) {
+                for (char low : array) {
+                    action.accept(base | low);
+                }
+            } else {
+                final long[] bitmap = (long[]) containers[c];
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = bitmap[w];
+                    while (word != 0) {
+                        action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        final int[] out = new int[cardinality];
+        final int[] n = {0};
+        forEach(v -> out[n[0]++] = v);
+        return out;
+    }
+
+    /**
+     * @return the number of bytes {@link #write} produces
+     */
+    public int serializedSize() {
+        int size = 4 + keys.length * 6;
+        for (int c = 0; c < keys.length; c++) {
+            size += containers[c] instanceof char[] ? cardinalities[c] * 2 : BITMAP_WORDS * 8;
+        }
+        return size;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(keys.length);
+        for (int c = 0; c < keys.length; c++) {
+            out.writeChar(keys[c]);
+            out.writeInt(cardinalities[c]);
+        }
+        for (Object container : containers) {
+            if (container instanceof char[] array) {
+                for (char low : array) {
+                    out.writeChar(low);
+                }
+            } else {
+                for (long word : (long[]) container) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a set written by {@link #write} at absolute position {@code pos} of {@code buf}.
+     */
+    public static CompressedBitSet read(ByteBuffer buf, int pos) {
+        final int chunks = buf.getInt(pos);
+        final char[] keys = new char[chunks];
+        final int[] cardinalities = new int[chunks];
+        final Object[] containers = new Object[chunks];
+        int p = pos + 4;
+        int cardinality = 0;
+        for (int c = 0; c < chunks; c++) {
+            keys[c] = buf.getChar(p);
+            cardinalities[c] = buf.getInt(p + 2);
+            cardinality += cardinalities[c];
+            p += 6;
+        }
+        for (int c = 0; c < chunks; c++) {
+            if (cardinalities[c] <= ARRAY_MAX) {
+                final char[] array = new char[cardinalities[c]];
+                for (int i = 0; i < array.length; i++, p += 2) {
+                    array[i] = buf.getChar(p);
+                }
+                containers[c] = array;
+            } else {
+                final long[] bitmap = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++, p += 8) {
+                    bitmap[i] = buf.getLong(p);
+                }
+                containers[c] = bitmap;
+            }
+        }
+        return chunks == 0 ? EMPTY : new CompressedBitSet(keys, containers, cardinalities, cardinality);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompressedBitSet other) || cardinality != other.cardinality
+                || !Arrays.equals(keys, other.keys) || !Arrays.equals(cardinalities, other.cardinalities)) {
+            return false;
+        }
+        for (int c = 0; c < keys.length; c++) {
+            final boolean same = containers[c] instanceof char[] array
+                    ? Arrays.equals(array, (char[]) other.containers[c])
+                    : Arrays.equals((long[]) containers[c], (long[]) other.containers[c]);
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Arrays.hashCode(keys);
+        for (Object container : containers) {
+            h = 31 * h + (container instanceof char[] array ? Arrays.hashCode(array) : Arrays.hashCode((long[]) container));
+        }
+        return h;
+    }
+
+    /**
+     * Accumulates values below a fixed bound in a dense scratch bitmap and compresses them on
+     * {@link #build()}, which also resets the builder. Only chunks touched since the last build are
+     * scanned and cleared, so one builder can be reused for many small sets. Not thread-safe.
+     */
+    public static final class Builder {
+        private final long[] words;
+        private final boolean[] touched;
+        private char[] touchedKeys = new char[4];
+        private int touchedCount;
+
+        public Builder(int bound) {
+            final int chunks = Math.max(1, (bound + 0xFFFF) >>> 16);
+            this.words = new long[chunks * BITMAP_WORDS];
+            this.touched = new boolean[chunks];
+        }
+
+        public void add(int value) {
+            touch(value >>> 16);
+            words[value >>> 6] |= 1L << value;
+        }
+
+        public void addAll(CompressedBitSet set) {
+            for (int c = 0; c < set.keys.length; c++) {
+                final int key = set.keys[c];
+                touch(key);
+                final int base = key * BITMAP_WORDS;
+                if (set.containers[c] instanceof char[] array) {
+                    for (char low : array) {
+                        words[base + (low >>> 6)] |= 1L << low;
+                    }
+                } else {
+                    final long[] bitmap = (long[]) set.containers[c];
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[base + w] |= bitmap[w];
+                    }
+                }
+            }
+        }
+
+        public CompressedBitSet build() {
+            if (touchedCount == 0) {
+                return EMPTY;
+            }
+            Arrays.sort(touchedKeys, 0, touchedCount);
+            final char[] keys = new char[touchedCount];
+            final Object[] containers = new Object[touchedCount];
+            final int[] cardinalities = new int[touchedCount];
+            int chunks = 0;
+            int cardinality = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                final int key = touchedKeys[t];
+                final int base = key * BITMAP_WORDS;
+                int card = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    card += Long.bitCount(words[base + w]);
+                }
+                if (card > 0) {
+                    keys[chunks] = (char) key;
+                    cardinalities[chunks] = card;
+                    containers[chunks] = card <= ARRAY_MAX ? toArray(base, card) : Arrays.copyOfRange(words, base, base + BITMAP_WORDS);
+                    cardinality += card;
+                    chunks++;
+                }
+                Arrays.fill(words, base, base + BITMAP_WORDS, 0L);
+                touched[key] = false;
+            }
+            touchedCount = 0;
+            if (chunks == 0) {
+                return EMPTY;
+            }
+            return new CompressedBitSet(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks),
+                    Arrays.copyOf(cardinalities, chunks), cardinality);
+        }
+
+        private char[] toArray(int base, int card) {
+            final char[] array = new char[card];
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[base + w];
+                while (word != 0) {
+                    array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+
+        private void touch(int key) {
+            if (!touched[key]) {
+                touched[key] = true;
+                if (touchedCount == touchedKeys.length) {
+                    touchedKeys = Arrays.copyOf(touchedKeys, touchedCount * 2);
+                }
+                touchedKeys[touchedCount++] = (char) key;
+            }
+        }
+    }
+}
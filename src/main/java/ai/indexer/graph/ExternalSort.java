@@ -0,0 +1,270 @@
+package ai.indexer.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts output lines that may not fit in memory. Lines are buffered up to a byte budget (estimated by
+ * {@link LineCodec#weight}); each full buffer is sorted and written to {@code dir} as a run, and
+ * {@link #finish()} merges the runs into one file that is read back sequentially. Buffers are sorted
+ * stably and merge ties go to the earlier run, so the order equals that of {@link List#sort} on all
+ * lines. With {@code distinct}, lines the comparator considers equal are kept once.
+ * <p>
+ * Until the first run is written everything stays in memory, and {@link #finish()} returns a plain list.
+ */
+final class ExternalSort<T> implements Closeable {
+
+    private static final int MAX_FAN_IN = 64;
+
+    private final Comparator<? super T> order;
+    private final boolean distinct;
+    private final LineCodec<T> codec;
+    private final Path dir;
+    private final long maxBufferedBytes;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Path> created = new ArrayList<>();
+    private final List<SpilledList<T>> results = new ArrayList<>();
+    private List<T> buffer = new ArrayList<>();
+    private long buffered;
+
+    /**
+     * @param dir directory for run files, or null to sort in memory
+     */
+    ExternalSort(Comparator<? super T> order, boolean distinct, LineCodec<T> codec, Path dir, long maxBufferedBytes) {
+        this.order = order;
+        this.distinct = distinct;
+        this.codec = codec;
+        this.dir = dir;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    static <T> ExternalSort<T> inMemory(Comparator<? super T> order, boolean distinct) {
+        return new ExternalSort<>(order, distinct, null, null, Long.MAX_VALUE);
+    }
+
+    void add(T line) throws IOException {
+        buffer.add(line);
+        if (dir != null) {
+            buffered += codec.weight(line);
+            if (buffered >= maxBufferedBytes) {
+                spill();
+            }
+        }
+    }
+
+    /**
+     * @return all added lines in order; a spilled result stays readable until {@link #close()}
+     */
+    List<T> finish() throws IOException {
+        if (runs.isEmpty()) {
+            return sorted(buffer);
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        List<Path> pending = runs;
+        while (pending.size() > MAX_FAN_IN) {
+            // merge neighbours only, so ties keep resolving to the earlier run
+            final List<Path> next = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += MAX_FAN_IN) {
+                final Path merged = newFile();
+                merge(pending.subList(from, Math.min(pending.size(), from + MAX_FAN_IN)), merged);
+                next.add(merged);
+            }
+            pending = next;
+        }
+        final Path out = newFile();
+        final int count = merge(pending, out);
+        final SpilledList<T> result = new SpilledList<>(out, count, codec);
+        results.add(result);
+        return result;
+    }
+
+    private List<T> sorted(List<T> lines) {
+        lines.sort(order);
+        if (!distinct || lines.isEmpty()) {
+            return lines;
+        }
+        final List<T> out = new ArrayList<>(lines.size());
+        for (T line : lines) {
+            if (out.isEmpty() || order.compare(out.getLast(), line) != 0) {
+                out.add(line);
+            }
+        }
+        return out;
+    }
+
+    private void spill() throws IOException {
+        final Path run = newFile();
+        try (DataOutputStream out = open(run)) {
+            for (T line : sorted(buffer)) {
+                out.writeBoolean(true);
+                codec.write(out, line);
+            }
+            out.writeBoolean(false);
+        }
+        runs.add(run);
+        buffer = new ArrayList<>();
+        buffered = 0;
+    }
+
+    private int merge(List<Path> inputs, Path target) throws IOException {
+        final List<Run<T>> cursors = new ArrayList<>(inputs.size());
+        final PriorityQueue<Run<T>> heads = new PriorityQueue<>((a, b) -> {
+            final int c = order.compare(a.head, b.head);
+            return c != 0 ? c : Integer.compare(a.ordinal, b.ordinal);
+        });
+        int count = 0;
+        try (DataOutputStream out = open(target)) {
+            for (int i = 0; i < inputs.size(); i++) {
+                final Run<T> run = new Run<>(i, new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(inputs.get(i)), 1 << 16)));
+                cursors.add(run);
+                if (run.advance(codec)) {
+                    heads.add(run);
+                }
+            }
+            T last = null;
+            while (!heads.isEmpty()) {
+                final Run<T> run = heads.poll();
+                if (!distinct || last == null || order.compare(last, run.head) != 0) {
+                    out.writeBoolean(true);
+                    codec.write(out, run.head);
+                    last = run.head;
+                    count++;
+                }
+                if (run.advance(codec)) {
+                    heads.add(run);
+                }
+            }
+            out.writeBoolean(false);
+        } finally {
+            for (Run<T> run : cursors) {
+                run.in.close();
+            }
+        }
+        for (Path input : inputs) {
+            Files.deleteIfExists(input);
+        }
+        return count;
+    }
+
+    private Path newFile() throws IOException {
+        final Path file = Files.createTempFile(dir, "sort", ".run");
+        created.add(file);
+        return file;
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    /**
+     * Closes the readers of spilled {@link #finish()} results and deletes the run files, including theirs.
+     */
+    @Override
+    public void close() throws IOException {
+        for (SpilledList<T> result : results) {
+            result.close();
+        }
+        results.clear();
+        for (Path file : created) {
+            Files.deleteIfExists(file);
+        }
+        created.clear();
+    }
+
+    /**
+     * Run files are line records, each preceded by {@code true}, and end with {@code false}.
+     */
+    private static final class Run<T> {
+        final int ordinal;
+        final DataInputStream in;
+        T head;
+
+        Run(int ordinal, DataInputStream in) {
+            this.ordinal = ordinal;
+            this.in = in;
+        }
+
+        boolean advance(LineCodec<T> codec) throws IOException {
+            head = null;
+            if (!in.readBoolean()) {
+                return false;
+            }
+            head = codec.read(in);
+            return true;
+        }
+    }
+
+    /**
+     * Read-only view of a merged run. It keeps one open reader: reading the next index (as iteration
+     * does) continues from it, reading an earlier one starts over. The reader is closed after the last
+     * line or by {@link ExternalSort#close()}. Not thread-safe.
+     */
+    private static final class SpilledList<T> extends AbstractList<T> implements Closeable {
+        private final Path file;
+        private final int size;
+        private final LineCodec<T> codec;
+        private Run<T> run;
+        private int next;
+
+        SpilledList(Path file, int size, LineCodec<T> codec) {
+            this.file = file;
+            this.size = size;
+            this.codec = codec;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            try {
+                if (run == null || index < next) {
+                    close();
+                    run = new Run<>(0, new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16)));
+                    next = 0;
+                }
+                while (next <= index) {
+                    if (!run.advance(codec)) {
+                        throw new IOException("Truncated sort run: " + file);
+                    }
+                    next++;
+                }
+                final T line = run.head;
+                if (next == size) {
+                    close();
+                }
+                return line;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (run != null) {
+                run.in.close();
+                run = null;
+            }
+        }
+    }
+}
@@ -5,19 +5,27 @@ import java.util.Map;
 
 import ai.indexer.model.EjbBindingLine;
 import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectReverseLine;
 import ai.indexer.model.TypeLine;
 
 /**
  * Fully built graph, ready for writing.
  * - Per-module JSONL lines
  * - Global indices: typeId -> moduleId, ejbIfaceId -> moduleId
+ * - Reverse injection index: injected type -> injection sites, sharded by the module declaring the
+ *   type ({@link #EXTERNAL_SHARD} for types no indexed module declares)
+ * A streamed build hands modules to a {@link ModuleSink} and reverse shards to a {@link ReverseSink}
+ * instead; its modules and injectReverse maps are empty.
  */
 public record Graph(
         Map<String, ModuleFiles> modules,
         Map<String, String> typeIndex,
         Map<String, String> ejbIndex,
+        Map<String, List<InjectReverseLine>> injectReverse,
         int parseWarnings
 ) {
+    public static final String EXTERNAL_SHARD = "_external";
+
     public record ModuleFiles(
             List<TypeLine> types,
             List<InjectLine> inject,
@@ -1,218 +1,1014 @@
 package ai.indexer.graph;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Set;
+import java.util.function.IntFunction;
 
+import ai.indexer.cache.ScanManifest;
+import ai.indexer.cache.ScanRecordCodec;
+import ai.indexer.metrics.RunMetrics;
 import ai.indexer.model.EjbBindingLine;
 import ai.indexer.model.Ids;
 import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectReverseLine;
 import ai.indexer.model.TypeLine;
 import ai.indexer.modules.ModuleLayout;
+import ai.indexer.scan.ScanOptions;
 import ai.indexer.scan.SourceRootFinder;
 import ai.indexer.scan.TypeScanner;
 
 /**
  * Builds module-split JSONL data + global indices.
- * No hashing/incremental logic (by request). Designed to allow future extensions.
+ * Incremental runs reuse per-file records from a {@link ScanManifest} (see {@link ScanOptions});
+ * the graph itself is always rebuilt from the cached + fresh records.
  */
 public final class GraphBuilder {
 
+    /**
+     * Version of the lines built from the scanned records and of the files written from them; bump when
+     * either changes, so that {@link #upToDate} does not keep outputs written by an older release.
+     */
+    public static final int OUTPUT_VERSION = 1;
+
+    private static final Comparator<TypeLine> TYPE_LINE_ORDER = Comparator.comparing(TypeLine::id);
+    private static final Comparator<InjectLine> INJECT_LINE_ORDER = Comparator.comparing(InjectLine::from)
+            .thenComparing(InjectLine::memberKind)
+            .thenComparing(InjectLine::member)
+            .thenComparing(InjectLine::type)
+            .thenComparing(InjectLine::via);
+    private static final Comparator<InjectReverseLine.InjectSite> INJECT_SITE_ORDER =
+            Comparator.comparing(InjectReverseLine.InjectSite::from)
+                    .thenComparing(InjectReverseLine.InjectSite::memberKind)
+                    .thenComparing(InjectReverseLine.InjectSite::member)
+                    .thenComparing(InjectReverseLine.InjectSite::via);
+    private static final Comparator<ReverseSite> REVERSE_SITE_ORDER = Comparator.comparingInt(ReverseSite::shard)
+            .thenComparing(s -> s.line().type())
+            .thenComparing(s -> s.line().from())
+            .thenComparing(s -> s.line().memberKind())
+            .thenComparing(s -> s.line().member())
+            .thenComparing(s -> s.line().via());
+
+    /**
+     * Heap budget of the reverse injection sites in {@link #buildStreaming}, unless the sort buffer is smaller.
+     */
+    private static final long REVERSE_SITE_BUFFER_BYTES = 64L * 1024 * 1024;
+
     private final Path repoRoot;
     private final ModuleLayout layout;
     private final boolean includeTests;
+    private final ScanOptions scanOptions;
+    private final RunMetrics metrics = new RunMetrics();
+    private ScanManifest scanManifest;
+    private int filesSeen;
+    private int filesParsed;
+    private int filesLexed;
+    private long bytesRead;
+    private Map<String, List<Path>> sourceRoots;
 
     public GraphBuilder(Path repoRoot, ModuleLayout layout, boolean includeTests) {
+        this(repoRoot, layout, includeTests, ScanOptions.defaults());
+    }
+
+    public GraphBuilder(Path repoRoot, ModuleLayout layout, boolean includeTests, ScanOptions scanOptions) {
         this.repoRoot = Objects.requireNonNull(repoRoot, "repoRoot");
         this.layout = Objects.requireNonNull(layout, "layout");
         this.includeTests = includeTests;
+        this.scanOptions = Objects.requireNonNull(scanOptions, "scanOptions");
     }
 
     public Graph build() throws Exception {
-        final var moduleDirs = layout.moduleDirsById();
-
         // Step 1: find java source roots under known modules (and optionally unknown)
-        final SourceRootFinder rootFinder = new SourceRootFinder(moduleDirs, includeTests);
-        final var sourceRoots = rootFinder.findAllSourceRoots(); // Map<moduleId, List<Path>>
+        final var sourceRoots = findSourceRoots(); // Map<moduleId, List<Path>>
 
         // Step 2: scan types (first pass) to build symbol table
         final SymbolTable symbols = new SymbolTable();
-        final TypeScanner scanner = new TypeScanner(repoRoot);
 
         // per-module raw results
         final Map<String, List<TypeScanner.ScannedType>> scannedByModule = new HashMap<>();
         final Map<String, List<TypeScanner.ScannedInjection>> injectionsByModule = new HashMap<>();
 
-        for (var e : sourceRoots.entrySet()) {
-            final String moduleId = e.getKey();
-            final List<Path> roots = e.getValue();
+        final int parseWarnings;
+        final RunMetrics.Timer scanTimer = metrics.phase("scan");
+        try (TypeScanner scanner = new TypeScanner(repoRoot, scanOptions)) {
+            final List<String> scannedRootsRel = new ArrayList<>();
+            for (var e : sourceRoots.entrySet()) {
+                scanModule(scanner, e.getKey(), e.getValue(), scannedByModule, injectionsByModule, symbols,
+                        scannedRootsRel);
+            }
+            parseWarnings = finishScan(scanner, scannedRootsRel);
+        }
+        scanTimer.close();
 
-            for (Path root : roots) {
-                scanner.scan(root, moduleId, scannedByModule, injectionsByModule, symbols);
+        return resolve(metrics, layout.moduleIdsSorted(), scannedByModule, injectionsByModule, symbols, parseWarnings);
+    }
+
+    /**
+     * Scans only the modules of shard {@code index} (1-based) of {@code count}: every count-th module of
+     * {@link ModuleLayout#moduleIdsSorted()}, starting at position {@code index - 1}. Nothing is resolved;
+     * {@link #merge} combines the shards of all processes into the graph {@link #build()} would return.
+     */
+    public ShardFile scanShard(int index, int count) throws Exception {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("shard must be i/n with 1 <= i <= n: " + index + "/" + count);
+        }
+        final var sourceRoots = findSourceRoots();
+        final List<String> moduleIds = layout.moduleIdsSorted();
+        final SymbolTable symbols = new SymbolTable(); // local only; merge registers every shard's types again
+        final Map<String, TypeScanner.FileScan> records = new HashMap<>();
+
+        final RunMetrics.Timer scanTimer = metrics.phase("scan");
+        try (TypeScanner scanner = new TypeScanner(repoRoot, scanOptions)) {
+            final List<String> scannedRootsRel = new ArrayList<>();
+            for (int m = index - 1; m < moduleIds.size(); m += count) {
+                final String moduleId = moduleIds.get(m);
+                final List<Path> roots = sourceRoots.getOrDefault(moduleId, List.of());
+                if (roots.isEmpty()) {
+                    continue;
+                }
+                final int warningsBefore = scanner.parseWarningCount();
+                final List<TypeScanner.ScannedType> types = new ArrayList<>();
+                final List<TypeScanner.ScannedInjection> injections = new ArrayList<>();
+                scanModule(scanner, moduleId, roots, symbols, scannedRootsRel, scan -> {
+                    types.addAll(scan.types());
+                    injections.addAll(scan.injections());
+                });
+                records.put(moduleId, new TypeScanner.FileScan(types, injections,
+                        scanner.parseWarningCount() - warningsBefore));
+            }
+            finishScan(scanner, scannedRootsRel);
+        }
+        scanTimer.close();
+        return new ShardFile(index, count, moduleIds, includeTests, records, filesSeen, filesParsed, filesLexed, bytesRead);
+    }
+
+    /**
+     * Resolves the records of a complete set of shards (see {@link #scanShard}) into the graph a single
+     * {@link #build()} over all modules would return.
+     *
+     * @param shards one file per shard index, all cut from the same module list
+     */
+    public static Graph merge(List<ShardFile> shards, RunMetrics metrics) throws IOException {
+        final ShardFile first = shards.getFirst();
+        final SymbolTable symbols = new SymbolTable();
+        final Map<String, List<TypeScanner.ScannedType>> scannedByModule = new HashMap<>();
+        final Map<String, List<TypeScanner.ScannedInjection>> injectionsByModule = new HashMap<>();
+        int parseWarnings = 0;
+        int filesSeen = 0;
+        int filesParsed = 0;
+        int filesLexed = 0;
+        long bytesRead = 0;
+        for (ShardFile shard : shards) {
+            for (var e : shard.records().entrySet()) {
+                for (var st : e.getValue().types()) {
+                    symbols.registerType(st.fqcn());
+                }
+                scannedByModule.put(e.getKey(), e.getValue().types());
+                injectionsByModule.put(e.getKey(), e.getValue().injections());
+                parseWarnings += e.getValue().warnings();
             }
+            filesSeen += shard.filesSeen();
+            filesParsed += shard.filesParsed();
+            filesLexed += shard.filesLexed();
+            bytesRead += shard.bytesRead();
         }
+        metrics.files(filesSeen, filesParsed, filesLexed, bytesRead, List.of());
+        return resolve(metrics, first.moduleIds(), scannedByModule, injectionsByModule, symbols, parseWarnings);
+    }
 
+    /**
+     * Everything {@link #build()} does after scanning: finalizes the symbol table and turns the records
+     * of each module into its lines and the global indices.
+     */
+    private static Graph resolve(RunMetrics metrics,
+                                 List<String> layoutModuleIds,
+                                 Map<String, List<TypeScanner.ScannedType>> scannedByModule,
+                                 Map<String, List<TypeScanner.ScannedInjection>> injectionsByModule,
+                                 SymbolTable symbols,
+                                 int parseWarnings) throws IOException {
+        final RunMetrics.Timer finalizeTimer = metrics.phase("finalizeIndex");
         symbols.finalizeIndex();
+        finalizeTimer.close();
+        final RunMetrics.Timer buildLines = metrics.phase("buildLines");
 
-        final Map<String, Set<String>> injectMembersByType = new HashMap<>();
+        final InjectMembers injectMembers = new InjectMembers();
         for (var injections : injectionsByModule.values()) {
-            for (var si : injections) {
-                final String memberId = "field".equals(si.memberKind())
-                        ? Ids.fieldId(si.fromFqcn(), si.member())
-                        : Ids.methodId(si.fromFqcn(), si.member());
-                injectMembersByType.computeIfAbsent(si.fromFqcn(), k -> new HashSet<>()).add(memberId);
-            }
+            injectMembers.addAll(injections, symbols);
         }
 
         // Step 3: convert scanned types to output lines (resolve refs lightly)
         final Map<String, Graph.ModuleFiles> moduleFiles = new HashMap<>();
-        final Map<String, String> typeIndex = new HashMap<>();
-        final Map<String, String> ejbIndex = new HashMap<>();
-
-        final Map<String, TypeScanner.ScannedType> byFqcn = indexByFqcn(scannedByModule);
-        final Map<String, EjbBindingAccumulator> ejbBindings = buildEjbBindings(scannedByModule, byFqcn, symbols);
+        final IntMap typeIndex = new IntMap();
+        final IntMap ejbIndex = new IntMap();
+        final InjectSites injectSites = new InjectSites();
 
-        // Per module: build JSONL lines
         final List<String> moduleIds = new ArrayList<>(scannedByModule.keySet());
         Collections.sort(moduleIds);
 
+        final EjbTypes ejbTypes = new EjbTypes(symbols);
         for (String moduleId : moduleIds) {
-            final List<TypeLine> typeLines = new ArrayList<>();
-            final Set<InjectLine> injectLineSet = new HashSet<>();
-            final List<EjbBindingLine> ejbLines = new ArrayList<>();
+            ejbTypes.addAll(scannedByModule.get(moduleId));
+        }
+        final EjbBindingAccumulator[] ejbBindings = ejbTypes.bindings();
 
-            final List<TypeScanner.ScannedType> types = scannedByModule.getOrDefault(moduleId, List.of());
-            for (var st : types) {
-                final String typeId = Ids.typeId(st.fqcn());
-                typeIndex.put(typeId, moduleId);
-                typeLines.add(toTypeLine(st, symbols, byFqcn, injectMembersByType));
+        // Per module: build JSONL lines
+        for (int m = 0; m < moduleIds.size(); m++) {
+            final String moduleId = moduleIds.get(m);
+            final RunMetrics.Sample t0 = RunMetrics.Sample.now();
+            final Graph.ModuleFiles files = buildModule(
+                    m,
+                    scannedByModule.getOrDefault(moduleId, List.of()),
+                    injectionsByModule.getOrDefault(moduleId, List.of()),
+                    symbols,
+                    ejbTypes,
+                    ejbBindings,
+                    id -> injectMembers,
+                    typeIndex,
+                    ejbIndex,
+                    injectSites);
+            metrics.module(moduleId).addBuild(t0.until(RunMetrics.Sample.now()), files.types().size(), files.inject().size());
+            moduleFiles.put(moduleId, files);
+        }
+
+        // Ensure modules from settings.gradle exist in output even if empty (optional)
+        for (String moduleId : layoutModuleIds) {
+            moduleFiles.putIfAbsent(moduleId, new Graph.ModuleFiles(List.of(), List.of(), List.of()));
+        }
+
+        final Graph graph = new Graph(moduleFiles, toIndexMap(typeIndex, symbols, moduleIds),
+                toIndexMap(ejbIndex, symbols, moduleIds), injectSites.toShards(typeIndex, symbols, moduleIds),
+                parseWarnings);
+        buildLines.close();
+        return graph;
+    }
+
+    /**
+     * Same result as {@link #build()}, but each module's lines are handed to the sink (in module ID
+     * order) and released instead of being kept in the returned graph, whose modules map is empty; the
+     * reverse injection shards go to {@code reverseSink} at the end, so its injectReverse map is empty too.
+     * <p>
+     * Pass 1 scans one module at a time, spills each file's records to the module's temp file and keeps
+     * only global pieces (symbol table, type index, EJB interface flags, bean stubs). Pass 2 rereads one
+     * module at a time and resolves it. A shard of the reverse injection index needs the sites of every
+     * module, so pass 2 files each site under its shard in an {@link ExternalSort} that spills to disk
+     * beyond 64 MB, and the shards are read back from it. Peak heap scales
+     * with the largest module, not with the repo.
+     */
+    public Graph buildStreaming(ModuleSink sink, ReverseSink reverseSink) throws Exception {
+        return buildStreaming(sink, reverseSink, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #buildStreaming(ModuleSink, ReverseSink)}, but a module's type and inject lines, and the
+     * reverse injection sites, are buffered only up to {@code sortBufferBytes} (estimated heap) each;
+     * beyond that they are sorted and deduplicated by an {@link ExternalSort} over temp files, and the
+     * sinks iterate the merged result from disk. What stays in memory per module is its inject member
+     * IDs and EJB binding lines.
+     *
+     * @param sortBufferBytes per line kind; {@link Long#MAX_VALUE} sorts module lines in memory
+     */
+    public Graph buildStreaming(ModuleSink sink, ReverseSink reverseSink, long sortBufferBytes) throws Exception {
+        Objects.requireNonNull(sink, "sink");
+        Objects.requireNonNull(reverseSink, "reverseSink");
+        if (sortBufferBytes < 1) {
+            throw new IllegalArgumentException("sortBufferBytes must be >= 1: " + sortBufferBytes);
+        }
+        final var sourceRoots = findSourceRoots();
+        final List<String> moduleIds = layout.moduleIdsSorted();
+
+        final SymbolTable symbols = new SymbolTable();
+        final IntMap typeIndex = new IntMap();
+        final BitSet multiModuleTypes = new BitSet();
+        final EjbTypes ejbTypes = new EjbTypes(symbols);
+
+        final Path spillDir = Files.createTempDirectory("ai-indexer-spill");
+        final Path sortDir = sortBufferBytes < Long.MAX_VALUE ? spillDir : null;
+        try {
+            final int parseWarnings;
+            final RunMetrics.Timer scanTimer = metrics.phase("scan");
+            try (TypeScanner scanner = new TypeScanner(repoRoot, scanOptions)) {
+                final List<String> scannedRootsRel = new ArrayList<>();
+                for (int m = 0; m < moduleIds.size(); m++) {
+                    final String moduleId = moduleIds.get(m);
+                    final List<Path> roots = sourceRoots.getOrDefault(moduleId, List.of());
+                    if (roots.isEmpty()) {
+                        continue;
+                    }
+                    final int ordinal = m;
+                    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(spillFile(spillDir, moduleId)), 1 << 16))) {
+                        scanModule(scanner, moduleId, roots, symbols, scannedRootsRel, scan -> {
+                            for (var st : scan.types()) {
+                                final int id = symbols.id(st.fqcn());
+                                final int prev = typeIndex.put(id, ordinal);
+                                if (prev >= 0 && prev != ordinal) {
+                                    multiModuleTypes.set(id);
+                                }
+                            }
+                            ejbTypes.addAll(scan.types());
+                            out.writeBoolean(true);
+                            ScanRecordCodec.writeFileScan(out, scan);
+                        });
+                        out.writeBoolean(false);
+                    }
+                }
+                parseWarnings = finishScan(scanner, scannedRootsRel);
             }
+            scanTimer.close();
 
-            // Injection edges for this module (field + method injections; EJB/CDI/JPA)
-            final List<TypeScanner.ScannedInjection> inj = injectionsByModule.getOrDefault(moduleId, List.of());
-            for (var si : inj) {
-                final var from = Ids.typeId(si.fromFqcn());
-                final var type = symbols.toTypeId(si.injectedTypeRaw(), si.fromPackageName());
-                injectLineSet.add(new InjectLine(from, si.memberKind(), si.member(), type, si.via()));
+            final RunMetrics.Timer finalizeTimer = metrics.phase("finalizeIndex");
+            symbols.finalizeIndex();
+            finalizeTimer.close();
+            final RunMetrics.Timer sharedLines = metrics.phase("buildLines");
+            final EjbBindingAccumulator[] ejbBindings = ejbTypes.bindings();
+
+            // build() merges inject members by FQCN across modules; only types declared in
+            // several modules need that, so collect just those up front
+            final InjectMembers sharedMembers = new InjectMembers();
+            if (!multiModuleTypes.isEmpty()) {
+                for (String moduleId : moduleIds) {
+                    forEachSpilled(spillDir, moduleId, scan -> {
+                        for (var si : scan.injections()) {
+                            if (multiModuleTypes.get(symbols.id(si.fromFqcn()))) {
+                                sharedMembers.add(si, symbols);
+                            }
+                        }
+                    });
+                }
             }
 
-            // EJB bindings for this module: only those interfaces that belong to this module
-            for (var entry : ejbBindings.entrySet()) {
-                final String ifaceFqcn = entry.getKey();
-                final String ifaceId = Ids.typeId(ifaceFqcn);
+            sharedLines.close();
 
-                // Module of interface is based on typeIndex (if known); otherwise skip
-                final String ifaceModule = typeIndex.get(ifaceId);
-                if (ifaceModule == null || !ifaceModule.equals(moduleId)) {
-                    continue;
+            // buildLines and write alternate per module; each is timed separately
+            final IntMap ejbIndex = new IntMap();
+            // pass 2 puts each module's types again, so shard by the final index of pass 1
+            try (ReverseSites reverseSites = new ReverseSites(typeIndex.copy(), moduleIds.size(), spillDir,
+                    Math.min(sortBufferBytes, REVERSE_SITE_BUFFER_BYTES))) {
+                buildModulesStreaming(sink, sortBufferBytes, moduleIds, symbols, typeIndex, multiModuleTypes, ejbTypes,
+                        ejbBindings, sharedMembers, ejbIndex, reverseSites, spillDir, sortDir);
+                final RunMetrics.Timer writeTimer = metrics.phase("write");
+                reverseSites.writeTo(moduleIds, reverseSink);
+                writeTimer.close();
+            }
+
+            return new Graph(Map.of(), toIndexMap(typeIndex, symbols, moduleIds),
+                    toIndexMap(ejbIndex, symbols, moduleIds), Map.of(), parseWarnings);
+        } finally {
+            deleteSpill(spillDir);
+        }
+    }
+
+    /**
+     * Pass 2 of {@link #buildStreaming}: resolves and hands over one module at a time.
+     */
+    private void buildModulesStreaming(ModuleSink sink,
+                                       long sortBufferBytes,
+                                       List<String> moduleIds,
+                                       SymbolTable symbols,
+                                       IntMap typeIndex,
+                                       BitSet multiModuleTypes,
+                                       EjbTypes ejbTypes,
+                                       EjbBindingAccumulator[] ejbBindings,
+                                       InjectMembers sharedMembers,
+                                       IntMap ejbIndex,
+                                       InjectSiteSink injectSites,
+                                       Path spillDir,
+                                       Path sortDir) throws IOException {
+        for (int m = 0; m < moduleIds.size(); m++) {
+            final String moduleId = moduleIds.get(m);
+            try (ExternalSort<TypeLine> typeLines = new ExternalSort<>(TYPE_LINE_ORDER, false, LineCodec.TYPE,
+                    sortDir, sortBufferBytes);
+                 ExternalSort<InjectLine> injectLines = new ExternalSort<>(INJECT_LINE_ORDER, true, LineCodec.INJECT,
+                         sortDir, sortBufferBytes)) {
+                final Graph.ModuleFiles files;
+                try (RunMetrics.Timer timer = metrics.phase("buildLines")) {
+                    final InjectMembers localMembers = new InjectMembers();
+                    forEachSpilled(spillDir, moduleId, scan -> localMembers.addAll(scan.injections(), symbols));
+
+                    final ModuleLines lines = new ModuleLines(
+                            m,
+                            symbols,
+                            ejbTypes,
+                            ejbBindings,
+                            id -> multiModuleTypes.get(id) ? sharedMembers : localMembers,
+                            typeIndex,
+                            ejbIndex,
+                            injectSites,
+                            typeLines,
+                            injectLines);
+                    forEachSpilled(spillDir, moduleId, scan -> {
+                        lines.addTypes(scan.types());
+                        lines.addInjections(scan.injections());
+                    });
+                    files = lines.finish();
+                    metrics.module(moduleId).addBuild(timer.elapsed(), files.types().size(), files.inject().size());
                 }
+                final RunMetrics.Timer writeTimer = metrics.phase("write");
+                sink.accept(moduleId, files);
+                writeTimer.close();
+            }
+        }
+    }
 
-                ejbIndex.put(ifaceId, moduleId);
+    /**
+     * Fingerprint of everything besides the source files that shapes the output: {@link #OUTPUT_VERSION},
+     * {@code options} (the writer's settings), whether tests are included, the module IDs and the source
+     * roots found. Save the manifest with it (see {@link ScanManifest#save(Path, long)}) so the next run
+     * can use {@link #upToDate}.
+     */
+    public long fingerprint(String options) throws IOException {
+        Objects.requireNonNull(options, "options");
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+        final StringBuilder key = new StringBuilder("output=").append(OUTPUT_VERSION)
+                .append('\n').append(options).append("\ntests=").append(includeTests);
+        final Map<String, List<Path>> roots = findSourceRoots();
+        for (String moduleId : layout.moduleIdsSorted()) {
+            key.append("\nmodule=").append(moduleId);
+            for (Path root : roots.getOrDefault(moduleId, List.of())) {
+                key.append("\nroot=").append(relativize(root));
+            }
+        }
+        final long fingerprint = ByteBuffer.wrap(digest.digest(key.toString().getBytes(StandardCharsets.UTF_8))).getLong();
+        return fingerprint != 0 ? fingerprint : 1; // 0 means none
+    }
 
-                final var acc = entry.getValue();
-                final List<String> implFqcns = new ArrayList<>(acc.impls);
-                Collections.sort(implFqcns);
-                final List<String> implIds = new ArrayList<>(implFqcns.size());
-                for (String implFqcn : implFqcns) {
-                    implIds.add(Ids.typeId(implFqcn));
+    /**
+     * Whether a build would only reproduce the previous run's output: the manifest of the scan options
+     * was saved with the same {@link #fingerprint} and lists exactly the Java files now under the source
+     * roots, none of which the scanner would read again (see {@link TypeScanner#countUnchanged}).
+     * Files are only listed and stat'ed; false without a manifest.
+     */
+    public boolean upToDate(String options) throws IOException {
+        final ScanManifest previous = scanOptions.manifest();
+        if (previous == null || previous.options() != fingerprint(options)) {
+            return false;
+        }
+        final List<String> rootsRel = new ArrayList<>();
+        int files = 0;
+        for (List<Path> roots : findSourceRoots().values()) {
+            for (Path root : roots) {
+                final int n = TypeScanner.countUnchanged(repoRoot, root, previous, scanOptions.git());
+                if (n < 0) {
+                    return false;
                 }
+                files += n;
+                rootsRel.add(relativize(root));
+            }
+        }
+        // a deleted file is missing from the count
+        return files == previous.countUnder(rootsRel);
+    }
+
+    private String relativize(Path root) {
+        return repoRoot.relativize(root).toString().replace('\\', '/');
+    }
+
+    /**
+     * The source roots of each module, found once per builder.
+     */
+    private Map<String, List<Path>> findSourceRoots() throws IOException {
+        if (sourceRoots != null) {
+            return sourceRoots;
+        }
+        final RunMetrics.Timer timer = metrics.phase("findSourceRoots");
+        final SourceRootFinder rootFinder = new SourceRootFinder(layout.moduleDirsById(), includeTests,
+                Math.max(SourceRootFinder.DEFAULT_PARALLELISM, scanOptions.threads()));
+        sourceRoots = rootFinder.findAllSourceRoots();
+        timer.close();
+        return sourceRoots;
+    }
+
+    private void scanModule(TypeScanner scanner,
+                            String moduleId,
+                            List<Path> roots,
+                            Map<String, List<TypeScanner.ScannedType>> scannedByModule,
+                            Map<String, List<TypeScanner.ScannedInjection>> injectionsByModule,
+                            SymbolTable symbols,
+                            List<String> scannedRootsRel) throws IOException {
+        if (roots.isEmpty()) {
+            return;
+        }
+        final var types = scannedByModule.computeIfAbsent(moduleId, k -> new ArrayList<>());
+        final var injections = injectionsByModule.computeIfAbsent(moduleId, k -> new ArrayList<>());
+        scanModule(scanner, moduleId, roots, symbols, scannedRootsRel, scan -> {
+            types.addAll(scan.types());
+            injections.addAll(scan.injections());
+        });
+    }
+
+    private void scanModule(TypeScanner scanner,
+                            String moduleId,
+                            List<Path> roots,
+                            SymbolTable symbols,
+                            List<String> scannedRootsRel,
+                            TypeScanner.FileSink sink) throws IOException {
+        final RunMetrics.Sample t0 = RunMetrics.Sample.now();
+        final int filesBefore = scanner.filesSeen();
+        final long bytesBefore = scanner.bytesRead();
+        for (Path root : roots) {
+            scanner.scan(root, symbols, sink);
+            scannedRootsRel.add(relativize(root));
+        }
+        metrics.module(moduleId).addScan(t0.until(RunMetrics.Sample.now()),
+                scanner.filesSeen() - filesBefore, scanner.bytesRead() - bytesBefore);
+    }
+
+    private int finishScan(TypeScanner scanner, List<String> scannedRootsRel) {
+        filesSeen = scanner.filesSeen();
+        filesParsed = scanner.filesParsed();
+        filesLexed = scanner.filesLexed();
+        bytesRead = scanner.bytesRead();
+        scanManifest = scanner.manifest();
+        metrics.files(filesSeen, filesParsed, filesLexed, bytesRead, scanner.slowestFiles());
+        if (scanManifest != null) {
+            scanManifest.carryOver(scanOptions.manifest(), scannedRootsRel);
+        }
+        return scanner.parseWarningCount();
+    }
+
+    /**
+     * Resolves one module's lines in memory (see {@link ModuleLines}).
+     */
+    private static Graph.ModuleFiles buildModule(
+            int moduleOrdinal,
+            List<TypeScanner.ScannedType> types,
+            List<TypeScanner.ScannedInjection> injections,
+            SymbolTable symbols,
+            EjbTypes ejbTypes,
+            EjbBindingAccumulator[] ejbBindings,
+            IntFunction<InjectMembers> injectMembersOf,
+            IntMap typeIndex,
+            IntMap ejbIndex,
+            InjectSiteSink injectSites) throws IOException {
+
+        final ModuleLines lines = new ModuleLines(
+                moduleOrdinal,
+                symbols,
+                ejbTypes,
+                ejbBindings,
+                injectMembersOf,
+                typeIndex,
+                ejbIndex,
+                injectSites,
+                ExternalSort.inMemory(TYPE_LINE_ORDER, false),
+                ExternalSort.inMemory(INJECT_LINE_ORDER, true));
+        lines.addTypes(types);
+        lines.addInjections(injections);
+        return lines.finish();
+    }
+
+    /**
+     * Resolves one module's lines from its scanned records, fed in scan order. Index entries are recorded
+     * as FQCN ID -> module ordinal and only turned into strings by {@link #toIndexMap}; each injection
+     * line is also added to {@code injectSites} under its injected type. Type lines keep scan order among
+     * equal IDs; inject lines are deduplicated.
+     */
+    private static final class ModuleLines {
+        final int moduleOrdinal;
+        final SymbolTable symbols;
+        final EjbTypes ejbTypes;
+        final EjbBindingAccumulator[] ejbBindings;
+        final IntFunction<InjectMembers> injectMembersOf;
+        final IntMap typeIndex;
+        final IntMap ejbIndex;
+        final InjectSiteSink injectSites;
+        final ExternalSort<TypeLine> typeLines;
+        final ExternalSort<InjectLine> injectLines;
+        final List<EjbBindingLine> ejbLines = new ArrayList<>();
+        final BitSet boundIfaces = new BitSet();
+
+        ModuleLines(int moduleOrdinal,
+                    SymbolTable symbols,
+                    EjbTypes ejbTypes,
+                    EjbBindingAccumulator[] ejbBindings,
+                    IntFunction<InjectMembers> injectMembersOf,
+                    IntMap typeIndex,
+                    IntMap ejbIndex,
+                    InjectSiteSink injectSites,
+                    ExternalSort<TypeLine> typeLines,
+                    ExternalSort<InjectLine> injectLines) {
+            this.moduleOrdinal = moduleOrdinal;
+            this.symbols = symbols;
+            this.ejbTypes = ejbTypes;
+            this.ejbBindings = ejbBindings;
+            this.injectMembersOf = injectMembersOf;
+            this.typeIndex = typeIndex;
+            this.ejbIndex = ejbIndex;
+            this.injectSites = injectSites;
+            this.typeLines = typeLines;
+            this.injectLines = injectLines;
+        }
+
+        void addTypes(List<TypeScanner.ScannedType> types) throws IOException {
+            for (var st : types) {
+                final int id = symbols.id(st.fqcn());
+                typeIndex.put(id, moduleOrdinal);
+                typeLines.add(toTypeLine(st, id, symbols, ejbTypes, injectMembersOf.apply(id)));
+                addEjbBinding(id);
+            }
+        }
+
+        /**
+         * EJB bindings for this module: only those interfaces that belong to this module.
+         */
+        private void addEjbBinding(int iface) {
+            final var acc = iface < ejbBindings.length ? ejbBindings[iface] : null;
+            if (acc == null || boundIfaces.get(iface)) {
+                return;
+            }
+            boundIfaces.set(iface);
+            ejbIndex.put(iface, moduleOrdinal);
 
-                ejbLines.add(new EjbBindingLine(ifaceId, acc.local, acc.remote, implIds));
+            // "t:" + fqcn sorts like fqcn
+            final List<String> implIds = new ArrayList<>(acc.implCount);
+            for (int i = 0; i < acc.implCount; i++) {
+                implIds.add(symbols.typeId(acc.impls[i]));
             }
+            Collections.sort(implIds);
+
+            ejbLines.add(new EjbBindingLine(symbols.typeId(iface), acc.local, acc.remote, implIds));
+        }
+
+        /**
+         * Injection edges (field + method injections; EJB/CDI/JPA).
+         */
+        void addInjections(List<TypeScanner.ScannedInjection> injections) throws IOException {
+            for (var si : injections) {
+                final var from = symbols.typeId(symbols.id(si.fromFqcn()));
+                final int type = symbols.referenceId(si.injectedTypeRaw(), si.fromFqcn(), si.fromPackageName(),
+                        si.onDemandImports());
+                final InjectLine line = new InjectLine(from, si.memberKind(), si.member(), symbols.typeId(type), si.via());
+                injectLines.add(line);
+                injectSites.add(type, line);
+            }
+        }
 
-            typeLines.sort(Comparator.comparing(TypeLine::id));
-            final List<InjectLine> injectLines = new ArrayList<>(injectLineSet);
-            injectLines.sort(Comparator.comparing(InjectLine::from)
-                    .thenComparing(InjectLine::memberKind)
-                    .thenComparing(InjectLine::member)
-                    .thenComparing(InjectLine::type)
-                    .thenComparing(InjectLine::via));
+        Graph.ModuleFiles finish() throws IOException {
             ejbLines.sort(Comparator.comparing(EjbBindingLine::iface));
+            return new Graph.ModuleFiles(typeLines.finish(), injectLines.finish(), ejbLines);
+        }
+    }
 
-            moduleFiles.put(moduleId, new Graph.ModuleFiles(typeLines, injectLines, ejbLines));
+    /**
+     * Materializes an FQCN ID -> module ordinal index as the "t:" type ID -> module ID map of {@link Graph}.
+     */
+    private static Map<String, String> toIndexMap(IntMap index, SymbolTable symbols, List<String> moduleIds) {
+        final Map<String, String> out = new HashMap<>();
+        for (int id = 0; id < index.capacity(); id++) {
+            final int m = index.get(id);
+            if (m >= 0) {
+                out.put(symbols.typeId(id), moduleIds.get(m));
+            }
         }
+        return out;
+    }
 
-        // Ensure modules from settings.gradle exist in output even if empty (optional)
-        for (String moduleId : layout.moduleIdsSorted()) {
-            moduleFiles.putIfAbsent(moduleId, new Graph.ModuleFiles(List.of(), List.of(), List.of()));
+    /**
+     * Reads back the per-file records {@link #buildStreaming} spilled for a module, in scan order.
+     */
+    private static void forEachSpilled(Path spillDir, String moduleId, TypeScanner.FileSink action) throws IOException {
+        final Path file = spillFile(spillDir, moduleId);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (in.readBoolean()) {
+                action.accept(ScanRecordCodec.readFileScan(in));
+            }
+        }
+    }
+
+    private static Path spillFile(Path spillDir, String moduleId) {
+        // module IDs may contain ':' which is not portable in file names
+        return spillDir.resolve(HexFormat.of().formatHex(moduleId.getBytes(StandardCharsets.UTF_8)) + ".bin");
+    }
+
+    private static void deleteSpill(Path spillDir) throws IOException {
+        try (var files = Files.list(spillDir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(f);
+            }
         }
+        Files.deleteIfExists(spillDir);
+    }
 
-        return new Graph(moduleFiles, typeIndex, ejbIndex, scanner.parseWarningCount());
+    /**
+     * Manifest for the next incremental run (available after {@link #build()}), or null if disabled.
+     */
+    public ScanManifest scanManifest() {
+        return scanManifest;
+    }
+
+    /**
+     * Phase, module and file timings of the last build; callers add their own phases (e.g. "write").
+     */
+    public RunMetrics metrics() {
+        return metrics;
+    }
+
+    public int filesSeen() {
+        return filesSeen;
+    }
+
+    public int filesParsed() {
+        return filesParsed;
+    }
+
+    public int filesLexed() {
+        return filesLexed;
     }
 
     private static final class EjbBindingAccumulator {
         final boolean local;
         final boolean remote;
-        final List<String> impls = new ArrayList<>();
+        int[] impls = new int[2];
+        int implCount;
 
         private EjbBindingAccumulator(boolean local, boolean remote) {
             this.local = local;
             this.remote = remote;
         }
-    }
 
-    private static Map<String, TypeScanner.ScannedType> indexByFqcn(
-            Map<String, List<TypeScanner.ScannedType>> scannedByModule) {
-        final Map<String, TypeScanner.ScannedType> byFqcn = new HashMap<>();
-        for (var e : scannedByModule.entrySet()) {
-            for (var st : e.getValue()) {
-                byFqcn.put(st.fqcn(), st);
+        void add(int impl) {
+            if (implCount == impls.length) {
+                impls = Arrays.copyOf(impls, implCount * 2);
             }
+            impls[implCount++] = impl;
         }
-        return byFqcn;
     }
 
-    private static Map<String, EjbBindingAccumulator> buildEjbBindings(
-            Map<String, List<TypeScanner.ScannedType>> scannedByModule,
-            Map<String, TypeScanner.ScannedType> byFqcn,
-            SymbolTable symbols) {
+    private record EjbBean(int fqcn, String packageName, List<String> onDemandImports, List<String> implementsRaw) {
+    }
+
+    /**
+     * The slice of scanned types needed to resolve EJB bindings: interfaces annotated
+     * {@code @Local}/{@code @Remote} (last declaration in module order wins) and bean stubs.
+     */
+    private static final class EjbTypes {
+        static final int LOCAL = 1;
+        static final int REMOTE = 2;
 
-        final Map<String, EjbBindingAccumulator> ejbBindings = new HashMap<>();
-        for (var e : scannedByModule.entrySet()) {
-            for (var st : e.getValue()) {
-                if (!st.isEjbBean()) {
-                    continue;
+        final SymbolTable symbols;
+        final IntMap ifaces = new IntMap(); // FQCN ID -> LOCAL | REMOTE
+        final List<EjbBean> beans = new ArrayList<>();
+
+        EjbTypes(SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        void addAll(List<TypeScanner.ScannedType> types) {
+            for (var st : types) {
+                final int id = symbols.id(st.fqcn());
+                if (st.isInterface() && (st.isEjbLocal() || st.isEjbRemote())) {
+                    ifaces.put(id, (st.isEjbLocal() ? LOCAL : 0) | (st.isEjbRemote() ? REMOTE : 0));
+                } else {
+                    ifaces.remove(id);
                 }
-                for (String implName : st.implementsRaw()) {
-                    final String ifaceFqcn = symbols.resolveToFqcnIfPossible(implName, st.packageName());
-                    if (ifaceFqcn == null) {
+                if (st.isEjbBean()) {
+                    beans.add(new EjbBean(id, st.packageName(), st.onDemandImports(), st.implementsRaw()));
+                }
+            }
+        }
+
+        /**
+         * @return accumulators indexed by interface FQCN ID (null where none)
+         */
+        EjbBindingAccumulator[] bindings() {
+            final EjbBindingAccumulator[] ejbBindings = new EjbBindingAccumulator[ifaces.capacity()];
+            for (var bean : beans) {
+                for (String implName : bean.implementsRaw()) {
+                    final int iface = symbols.resolve(implName, symbols.fqcn(bean.fqcn()), bean.packageName(),
+                            bean.onDemandImports());
+                    if (iface < 0) {
                         continue;
                     }
 
-                    final var ifaceType = byFqcn.get(ifaceFqcn);
-                    if (ifaceType == null || !ifaceType.isInterface()) {
+                    final int flags = ifaces.get(iface);
+                    if (flags < 0) {
                         continue;
                     }
-                    if (!ifaceType.isEjbLocal() && !ifaceType.isEjbRemote()) {
-                        continue;
+
+                    if (ejbBindings[iface] == null) {
+                        ejbBindings[iface] = new EjbBindingAccumulator((flags & LOCAL) != 0, (flags & REMOTE) != 0);
                     }
+                    ejbBindings[iface].add(bean.fqcn());
+                }
+            }
+            return ejbBindings;
+        }
+    }
+
+    /**
+     * Inject member IDs ("f:"/"m:") per declaring type, keyed by FQCN ID. Each member string is
+     * stored once.
+     */
+    private static final class InjectMembers {
+        final Interner memberIds = new Interner();
+        final IntSetMap byType = new IntSetMap();
+
+        void addAll(List<TypeScanner.ScannedInjection> injections, SymbolTable symbols) {
+            for (var si : injections) {
+                add(si, symbols);
+            }
+        }
+
+        void add(TypeScanner.ScannedInjection si, SymbolTable symbols) {
+            final String memberId = "field".equals(si.memberKind())
+                    ? Ids.fieldId(si.fromFqcn(), si.member())
+                    : Ids.methodId(si.fromFqcn(), si.member());
+            byType.add(symbols.id(si.fromFqcn()), memberIds.intern(memberId));
+        }
+
+        List<String> of(int type) {
+            final int[] ids = byType.get(type);
+            final List<String> out = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                out.add(memberIds.get(id));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Receives each inject line under the ID of its injected type, while the inject lines are built.
+     */
+    private interface InjectSiteSink {
+        void add(int type, InjectLine line) throws IOException;
+    }
+
+    /**
+     * Reverse injection adjacency: injection sites keyed by the referenced type's ID, filled while
+     * the inject lines are built.
+     */
+    private static final class InjectSites implements InjectSiteSink {
+        final List<List<InjectReverseLine.InjectSite>> byType = new ArrayList<>();
+
+        @Override
+        public void add(int type, InjectLine line) {
+            while (byType.size() <= type) {
+                byType.add(null);
+            }
+            List<InjectReverseLine.InjectSite> sites = byType.get(type);
+            if (sites == null) {
+                sites = new ArrayList<>(2);
+                byType.set(type, sites);
+            }
+            sites.add(new InjectReverseLine.InjectSite(line.from(), line.memberKind(), line.member(), line.via()));
+        }
+
+        /**
+         * Groups the sites into shards named after the module declaring each type (per {@code typeIndex}),
+         * or {@link Graph#EXTERNAL_SHARD}. A site seen in several modules (a type declared twice) is kept once.
+         */
+        Map<String, List<InjectReverseLine>> toShards(IntMap typeIndex, SymbolTable symbols, List<String> moduleIds) {
+            final Map<String, List<InjectReverseLine>> shards = new HashMap<>();
+            for (int type = 0; type < byType.size(); type++) {
+                final List<InjectReverseLine.InjectSite> sites = byType.get(type);
+                if (sites == null) {
+                    continue;
+                }
+                sites.sort(INJECT_SITE_ORDER); // a module adds a site once per inject line, duplicates included
+                final List<InjectReverseLine.InjectSite> distinct = new ArrayList<>(sites.size());
+                for (var site : sites) {
+                    if (distinct.isEmpty() || !distinct.getLast().equals(site)) {
+                        distinct.add(site);
+                    }
+                }
+                final int m = typeIndex.get(type);
+                final String shard = m >= 0 ? moduleIds.get(m) : Graph.EXTERNAL_SHARD;
+                shards.computeIfAbsent(shard, k -> new ArrayList<>())
+                        .add(new InjectReverseLine(symbols.typeId(type), distinct));
+            }
+            for (var lines : shards.values()) {
+                lines.sort(Comparator.comparing(InjectReverseLine::type));
+            }
+            return shards;
+        }
+    }
+
+    /**
+     * Reverse injection sites of {@link #buildStreaming}, filed under their shard (per a {@code typeIndex}
+     * that no longer changes) in an {@link ExternalSort}, so they are read back shard by shard and type
+     * by type. Produces the same lines as {@link InjectSites#toShards}.
+     */
+    private static final class ReverseSites implements InjectSiteSink, Closeable {
+        final IntMap typeIndex;
+        final int externalShard;
+        final ExternalSort<ReverseSite> sites;
+
+        ReverseSites(IntMap typeIndex, int moduleCount, Path dir, long maxBufferedBytes) {
+            this.typeIndex = typeIndex;
+            this.externalShard = moduleCount;
+            this.sites = new ExternalSort<>(REVERSE_SITE_ORDER, true, LineCodec.REVERSE_SITE, dir, maxBufferedBytes);
+        }
+
+        @Override
+        public void add(int type, InjectLine line) throws IOException {
+            final int m = typeIndex.get(type);
+            sites.add(new ReverseSite(m >= 0 ? m : externalShard, line));
+        }
 
-                    final var acc = ejbBindings.computeIfAbsent(
-                            ifaceFqcn,
-                            k -> new EjbBindingAccumulator(ifaceType.isEjbLocal(), ifaceType.isEjbRemote()));
-                    acc.impls.add(st.fqcn());
+        /**
+         * Hands every module's shard (empty ones included), then the external one, to {@code sink}.
+         */
+        void writeTo(List<String> moduleIds, ReverseSink sink) throws IOException {
+            final Cursor cursor = new Cursor(sites.finish().iterator());
+            for (int shard = 0; shard <= externalShard; shard++) {
+                final int s = shard;
+                sink.accept(s < externalShard ? moduleIds.get(s) : Graph.EXTERNAL_SHARD, () -> cursor.lines(s));
+                while (cursor.in(s)) {
+                    cursor.advance();
                 }
             }
         }
-        return ejbBindings;
+
+        @Override
+        public void close() throws IOException {
+            sites.close();
+        }
+
+        /**
+         * Walks the sorted sites once, grouping those of one shard and type into a line.
+         */
+        private static final class Cursor {
+            final Iterator<ReverseSite> sites;
+            ReverseSite head;
+
+            Cursor(Iterator<ReverseSite> sites) {
+                this.sites = sites;
+                advance();
+            }
+
+            void advance() {
+                head = sites.hasNext() ? sites.next() : null;
+            }
+
+            boolean in(int shard) {
+                return head != null && head.shard() == shard;
+            }
+
+            Iterator<InjectReverseLine> lines(int shard) {
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return in(shard);
+                    }
+
+                    @Override
+                    public InjectReverseLine next() {
+                        if (!in(shard)) {
+                            throw new NoSuchElementException();
+                        }
+                        final String type = head.line().type();
+                        final List<InjectReverseLine.InjectSite> out = new ArrayList<>(2);
+                        while (in(shard) && head.line().type().equals(type)) {
+                            final InjectLine line = head.line();
+                            out.add(new InjectReverseLine.InjectSite(line.from(), line.memberKind(), line.member(), line.via()));
+                            advance();
+                        }
+                        return new InjectReverseLine(type, out);
+                    }
+                };
+            }
+        }
     }
 
     private static TypeLine toTypeLine(
             TypeScanner.ScannedType st,
+            int id,
             SymbolTable symbols,
-            Map<String, TypeScanner.ScannedType> byFqcn,
-            Map<String, Set<String>> injectMembersByType) {
+            EjbTypes ejbTypes,
+            InjectMembers injectMembers) {
 
-        final String typeId = Ids.typeId(st.fqcn());
-        final List<String> implIds = resolveTypeIds(st.implementsRaw(), symbols, st.packageName());
-        final List<String> extIds = resolveTypeIds(st.extendsRaw(), symbols, st.packageName());
+        final String typeId = symbols.typeId(id);
+        final List<String> implIds = resolveTypeIds(st.implementsRaw(), symbols, st);
+        final List<String> extIds = resolveTypeIds(st.extendsRaw(), symbols, st);
         final String ejbKind = st.ejbKindLower(); // stateless/stateful/singleton or null
 
         // For beans: resolve which EJB interfaces are local/remote (from scanned interface annotations)
@@ -220,19 +1016,19 @@ public final class GraphBuilder {
         final List<String> ejbRemote = new ArrayList<>();
         if (st.isEjbBean()) {
             for (String implName : st.implementsRaw()) {
-                final String ifaceFqcn = symbols.resolveToFqcnIfPossible(implName, st.packageName());
-                if (ifaceFqcn == null) {
+                final int iface = symbols.resolve(implName, st.fqcn(), st.packageName(), st.onDemandImports());
+                if (iface < 0) {
                     continue;
                 }
-                final var ifaceType = byFqcn.get(ifaceFqcn);
-                if (ifaceType == null) {
+                final int flags = ejbTypes.ifaces.get(iface);
+                if (flags < 0) {
                     continue;
                 }
-                if (ifaceType.isEjbLocal()) {
-                    ejbLocal.add(Ids.typeId(ifaceFqcn));
+                if ((flags & EjbTypes.LOCAL) != 0) {
+                    ejbLocal.add(symbols.typeId(iface));
                 }
-                if (ifaceType.isEjbRemote()) {
-                    ejbRemote.add(Ids.typeId(ifaceFqcn));
+                if ((flags & EjbTypes.REMOTE) != 0) {
+                    ejbRemote.add(symbols.typeId(iface));
                 }
             }
         }
@@ -245,8 +1041,7 @@ public final class GraphBuilder {
         }
         Collections.sort(injectFieldIds);
 
-        final List<String> injectMemberIds = new ArrayList<>(
-                injectMembersByType.getOrDefault(st.fqcn(), Set.of()));
+        final List<String> injectMemberIds = injectMembers.of(id);
         Collections.sort(injectMemberIds);
 
         return new TypeLine(
@@ -263,10 +1058,10 @@ public final class GraphBuilder {
         );
     }
 
-    private static List<String> resolveTypeIds(List<String> raw, SymbolTable symbols, String packageName) {
+    private static List<String> resolveTypeIds(List<String> raw, SymbolTable symbols, TypeScanner.ScannedType st) {
         final List<String> out = new ArrayList<>(raw.size());
         for (String n : raw) {
-            out.add(symbols.toTypeId(n, packageName));
+            out.add(symbols.toTypeId(n, st.fqcn(), st.packageName(), st.onDemandImports()));
         }
         Collections.sort(out);
         return out;
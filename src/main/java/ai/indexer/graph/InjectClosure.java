@@ -0,0 +1,385 @@
+package ai.indexer.graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import ai.indexer.model.InjectReverseLine;
+
+/**
+ * Transitive injection reachability, computed after {@link GraphBuilder} from the graph's reverse
+ * injection index, or for streamed builds from the written reverse shards.
+ * <p>
+ * Every type that injects or is injected gets a dense node number, in unsigned UTF-8 order of its
+ * type ID. Strongly connected components are collapsed (Tarjan), and each component gets two
+ * {@link CompressedBitSet}s of node numbers: the types it transitively injects (dependencies) and the
+ * types that transitively inject it (dependents). A set contains the component's own members only if
+ * they lie on a cycle. Components are processed level by level of the condensed DAG; the components of
+ * one level are independent and run in parallel.
+ */
+public final class InjectClosure {
+
+    private static final int PARALLEL_MIN = 64; // smaller levels run on the calling thread
+
+    private final List<String> nodes;
+    private final int[] componentOf;
+    private final CompressedBitSet[] dependencies;
+    private final CompressedBitSet[] dependents;
+
+    private InjectClosure(List<String> nodes, int[] componentOf, CompressedBitSet[] dependencies,
+                          CompressedBitSet[] dependents) {
+        this.nodes = nodes;
+        this.componentOf = componentOf;
+        this.dependencies = dependencies;
+        this.dependents = dependents;
+    }
+
+    /**
+     * Source of the reverse injection lines, in any order; it is read twice.
+     */
+    @FunctionalInterface
+    public interface ReverseLines {
+        void forEach(Consumer<InjectReverseLine> action) throws IOException;
+    }
+
+    public static InjectClosure compute(Graph graph, int threads) throws InterruptedException {
+        Objects.requireNonNull(graph, "graph");
+        try {
+            return compute(action -> graph.injectReverse().values().forEach(shard -> shard.forEach(action)), threads);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex); // in-memory lines do not throw
+        }
+    }
+
+    public static InjectClosure compute(ReverseLines reverse, int threads) throws IOException, InterruptedException {
+        Objects.requireNonNull(reverse, "reverse");
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1: " + threads);
+        }
+
+        // Dense node numbers
+        final Interner ids = new Interner();
+        reverse.forEach(line -> {
+            ids.intern(line.type());
+            for (var site : line.sites()) {
+                ids.intern(site.from());
+            }
+        });
+        final int n = ids.size();
+        final byte[][] utf8 = new byte[n][];
+        final Integer[] order = new Integer[n];
+        for (int id = 0; id < n; id++) {
+            utf8[id] = ids.get(id).getBytes(StandardCharsets.UTF_8);
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(utf8[a], utf8[b]));
+        final String[] sorted = new String[n];
+        final int[] nodeOfId = new int[n];
+        for (int node = 0; node < n; node++) {
+            sorted[node] = ids.get(order[node]);
+            nodeOfId[order[node]] = node;
+        }
+
+        // Edges from -> injected type, deduplicated, as CSR
+        final EdgeList edges = new EdgeList();
+        reverse.forEach(line -> {
+            final int to = nodeOfId[ids.find(line.type())];
+            for (var site : line.sites()) {
+                edges.add(((long) nodeOfId[ids.find(site.from())] << 32) | to);
+            }
+        });
+        final Csr forward = Csr.of(n, edges.edges, edges.count);
+
+        // Condense
+        final int[] componentOf = new int[n];
+        final int components = Tarjan.run(forward, componentOf);
+        final Csr members = Csr.members(componentOf, components);
+        final boolean[] cyclic = new boolean[components];
+        long[] cedges = new long[Math.max(1, forward.targets.length)];
+        int cedgeCount = 0;
+        for (int u = 0; u < n; u++) {
+            final int cu = componentOf[u];
+            if (members.degree(cu) > 1) {
+                cyclic[cu] = true;
+            }
+            for (int e = forward.start[u]; e < forward.start[u + 1]; e++) {
+                final int cv = componentOf[forward.targets[e]];
+                if (cv == cu) {
+                    cyclic[cu] = true; // self-injection
+                } else {
+                    cedges[cedgeCount++] = ((long) cu << 32) | cv;
+                }
+            }
+        }
+        final Csr down = Csr.of(components, cedges, cedgeCount);
+        for (int i = 0; i < cedgeCount; i++) {
+            cedges[i] = (cedges[i] << 32) | (cedges[i] >>> 32);
+        }
+        final Csr up = Csr.of(components, cedges, cedgeCount);
+
+        final CompressedBitSet[] dependencies = new CompressedBitSet[components];
+        final CompressedBitSet[] dependents = new CompressedBitSet[components];
+        final ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, "ai-indexer-closure");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        try {
+            // Tarjan numbers components in reverse topological order: successors come first
+            closeAll(down, members, cyclic, dependencies, levels(down, true), n, pool);
+            closeAll(up, members, cyclic, dependents, levels(up, false), n, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        return new InjectClosure(List.of(sorted), componentOf, dependencies, dependents);
+    }
+
+    /**
+     * Type IDs by node number (unsigned UTF-8 order).
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public int componentCount() {
+        return dependencies.length;
+    }
+
+    public int componentOf(int node) {
+        return componentOf[node];
+    }
+
+    /**
+     * @return node numbers of the types {@code component} transitively injects
+     */
+    public CompressedBitSet dependencies(int component) {
+        return dependencies[component];
+    }
+
+    /**
+     * @return node numbers of the types that transitively inject {@code component}
+     */
+    public CompressedBitSet dependents(int component) {
+        return dependents[component];
+    }
+
+    /**
+     * Groups components so that all successors of a component lie in earlier groups.
+     *
+     * @param ascending whether successors have lower component numbers than their predecessors
+     */
+    private static List<int[]> levels(Csr dag, boolean ascending) {
+        final int components = dag.start.length - 1;
+        final int[] level = new int[components];
+        int maxLevel = -1;
+        for (int i = 0; i < components; i++) {
+            final int c = ascending ? i : components - 1 - i;
+            int l = 0;
+            for (int e = dag.start[c]; e < dag.start[c + 1]; e++) {
+                l = Math.max(l, level[dag.targets[e]] + 1);
+            }
+            level[c] = l;
+            maxLevel = Math.max(maxLevel, l);
+        }
+        final int[] sizes = new int[maxLevel + 1];
+        for (int l : level) {
+            sizes[l]++;
+        }
+        final List<int[]> out = new ArrayList<>(maxLevel + 1);
+        for (int size : sizes) {
+            out.add(new int[size]);
+        }
+        Arrays.fill(sizes, 0);
+        for (int c = 0; c < components; c++) {
+            out.get(level[c])[sizes[level[c]]++] = c;
+        }
+        return out;
+    }
+
+    private static void closeAll(Csr dag, Csr members, boolean[] cyclic, CompressedBitSet[] out, List<int[]> levels,
+                                 int nodeCount, ExecutorService pool) throws InterruptedException {
+        final ThreadLocal<CompressedBitSet.Builder> builders =
+                ThreadLocal.withInitial(() -> new CompressedBitSet.Builder(nodeCount));
+        for (int[] level : levels) {
+            if (pool == null || level.length < PARALLEL_MIN) {
+                close(dag, members, cyclic, out, level, 0, level.length, builders.get());
+                continue;
+            }
+            final int tasks = Math.min(level.length / (PARALLEL_MIN / 2), 4 * Runtime.getRuntime().availableProcessors());
+            final List<Callable<Void>> work = new ArrayList<>(tasks);
+            for (int t = 0; t < tasks; t++) {
+                final int from = (int) ((long) level.length * t / tasks);
+                final int to = (int) ((long) level.length * (t + 1) / tasks);
+                work.add(() -> {
+                    close(dag, members, cyclic, out, level, from, to, builders.get());
+                    return null;
+                });
+            }
+            for (var f : pool.invokeAll(work)) {
+                try {
+                    f.get();
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("closure computation failed", ex.getCause());
+                }
+            }
+        }
+    }
+
+    private static void close(Csr dag, Csr members, boolean[] cyclic, CompressedBitSet[] out, int[] level,
+                              int from, int to, CompressedBitSet.Builder builder) {
+        for (int i = from; i < to; i++) {
+            final int c = level[i];
+            for (int e = dag.start[c]; e < dag.start[c + 1]; e++) {
+                final int next = dag.targets[e];
+                builder.addAll(out[next]);
+                for (int m = members.start[next]; m < members.start[next + 1]; m++) {
+                    builder.add(members.targets[m]);
+                }
+            }
+            if (cyclic[c]) {
+                for (int m = members.start[c]; m < members.start[c + 1]; m++) {
+                    builder.add(members.targets[m]);
+                }
+            }
+            out[c] = builder.build();
+        }
+    }
+
+    /**
+     * Compressed sparse rows: the targets of {@code v} are {@code targets[start[v] .. start[v + 1])}.
+     */
+    private record Csr(int[] start, int[] targets) {
+
+        /**
+         * @param edges {@code source << 32 | target}; sorted in place, duplicates dropped
+         */
+        static Csr of(int vertices, long[] edges, int count) {
+            Arrays.sort(edges, 0, count);
+            final int[] start = new int[vertices + 1];
+            final int[] targets = new int[count];
+            int m = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && edges[i] == edges[i - 1]) {
+                    continue;
+                }
+                start[(int) (edges[i] >>> 32) + 1]++;
+                targets[m++] = (int) edges[i];
+            }
+            for (int v = 0; v < vertices; v++) {
+                start[v + 1] += start[v];
+            }
+            return new Csr(start, Arrays.copyOf(targets, m));
+        }
+
+        static Csr members(int[] componentOf, int components) {
+            final int[] start = new int[components + 1];
+            for (int c : componentOf) {
+                start[c + 1]++;
+            }
+            for (int c = 0; c < components; c++) {
+                start[c + 1] += start[c];
+            }
+            final int[] fill = Arrays.copyOf(start, components);
+            final int[] targets = new int[componentOf.length];
+            for (int v = 0; v < componentOf.length; v++) {
+                targets[fill[componentOf[v]]++] = v;
+            }
+            return new Csr(start, targets);
+        }
+
+        int degree(int v) {
+            return start[v + 1] - start[v];
+        }
+    }
+
+    /**
+     * Growable array of packed edges.
+     */
+    private static final class EdgeList {
+        long[] edges = new long[1024];
+        int count;
+
+        void add(long edge) {
+            if (count == edges.length) {
+                edges = Arrays.copyOf(edges, count * 2);
+            }
+            edges[count++] = edge;
+        }
+    }
+
+    /**
+     * Iterative Tarjan; components are numbered in the order they complete, so every edge between
+     * components points from a higher number to a lower one.
+     */
+    private static final class Tarjan {
+
+        static int run(Csr g, int[] componentOf) {
+            final int n = componentOf.length;
+            final int[] index = new int[n];
+            final int[] low = new int[n];
+            Arrays.fill(index, -1);
+            final boolean[] onStack = new boolean[n];
+            final int[] stack = new int[n];
+            final int[] callStack = new int[n];
+            final int[] nextEdge = new int[n];
+            int sp = 0;
+            int counter = 0;
+            int components = 0;
+
+            for (int root = 0; root < n; root++) {
+                if (index[root] >= 0) {
+                    continue;
+                }
+                int csp = 0;
+                callStack[csp++] = root;
+                index[root] = low[root] = counter++;
+                nextEdge[root] = g.start[root];
+                stack[sp++] = root;
+                onStack[root] = true;
+
+                while (csp > 0) {
+                    final int v = callStack[csp - 1];
+                    if (nextEdge[v] < g.start[v + 1]) {
+                        final int w = g.targets[nextEdge[v]++];
+                        if (index[w] < 0) {
+                            index[w] = low[w] = counter++;
+                            nextEdge[w] = g.start[w];
+                            stack[sp++] = w;
+                            onStack[w] = true;
+                            callStack[csp++] = w;
+                        } else if (onStack[w]) {
+                            low[v] = Math.min(low[v], index[w]);
+                        }
+                        continue;
+                    }
+                    csp--;
+                    if (csp > 0) {
+                        final int parent = callStack[csp - 1];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            componentOf[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                }
+            }
+            return components;
+        }
+    }
+}
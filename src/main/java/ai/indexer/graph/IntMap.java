@@ -0,0 +1,46 @@
+package ai.indexer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Int-to-int map over dense non-negative keys (interned IDs), backed by a growable array.
+ * Values must be non-negative; -1 means absent.
+ */
+final class IntMap {
+
+    private int[] values = new int[0];
+
+    int get(int key) {
+        return key < values.length ? values[key] : -1;
+    }
+
+    /**
+     * @return the previous value, or -1
+     */
+    int put(int key, int value) {
+        if (key >= values.length) {
+            final int old = values.length;
+            values = Arrays.copyOf(values, Math.max(key + 1, old * 2));
+            Arrays.fill(values, old, values.length, -1);
+        }
+        final int prev = values[key];
+        values[key] = value;
+        return prev;
+    }
+
+    void remove(int key) {
+        if (key < values.length) {
+            values[key] = -1;
+        }
+    }
+
+    IntMap copy() {
+        final IntMap copy = new IntMap();
+        copy.values = values.clone();
+        return copy;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+}
@@ -0,0 +1,69 @@
+package ai.indexer.graph;
+
+/**
+ * Open-addressing map from a pair of non-negative ints (two interned IDs) to a non-negative int.
+ * Unlike {@link IntMap} it does not need dense keys, so it suits sparse combinations such as
+ * (package, simple name). -1 means absent. Not thread-safe.
+ */
+final class IntPairMap {
+
+    private long[] keys = new long[64];
+    private int[] values = new int[64]; // value + 1, 0 = empty
+    private int size;
+
+    int get(int a, int b) {
+        final long key = key(a, b);
+        final int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    void put(int a, int b, int value) {
+        final long key = key(a, b);
+        final int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    private static long key(int a, int b) {
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    private static int slotOf(long key, int mask) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ai.indexer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Maps dense int keys to small sets of ints, each stored as an unsorted int array.
+ * Sized for the few inject members a type has; membership checks are linear.
+ */
+final class IntSetMap {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[][] sets = new int[0][];
+    private int[] sizes = new int[0];
+
+    void add(int key, int value) {
+        if (key >= sets.length) {
+            final int n = Math.max(key + 1, sets.length * 2);
+            sets = Arrays.copyOf(sets, n);
+            sizes = Arrays.copyOf(sizes, n);
+        }
+        int[] set = sets[key];
+        final int size = sizes[key];
+        if (set == null) {
+            set = sets[key] = new int[2];
+        }
+        for (int i = 0; i < size; i++) {
+            if (set[i] == value) {
+                return;
+            }
+        }
+        if (size == set.length) {
+            set = sets[key] = Arrays.copyOf(set, size * 2);
+        }
+        set[size] = value;
+        sizes[key] = size + 1;
+    }
+
+    /**
+     * @return the values of {@code key} (a copy), empty if none
+     */
+    int[] get(int key) {
+        if (key < 0 || key >= sets.length || sets[key] == null) {
+            return EMPTY;
+        }
+        return Arrays.copyOf(sets[key], sizes[key]);
+    }
+}
@@ -0,0 +1,73 @@
+package ai.indexer.graph;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense int IDs (0, 1, 2, ...) to strings. Each distinct string is stored once, so callers can
+ * keep ints in primitive arrays and materialize the shared instance only when writing output.
+ * Not thread-safe.
+ */
+final class Interner {
+
+    private String[] byId = new String[64];
+    private int[] slots = new int[128]; // id + 1, 0 = empty
+    private int size;
+
+    /**
+     * @return the ID of {@code s}, assigning the next one if it is new
+     */
+    int intern(String s) {
+        int slot = slotOf(s);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        if (size == byId.length) {
+            byId = Arrays.copyOf(byId, size * 2);
+        }
+        final int id = size++;
+        byId[id] = s;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @return the ID of {@code s}, or -1 if it was never interned
+     */
+    int find(String s) {
+        return slots[slotOf(s)] - 1;
+    }
+
+    String get(int id) {
+        return byId[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slotOf(String s) {
+        final int mask = slots.length - 1;
+        int h = s.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (slots[slot] != 0 && !byId[slots[slot] - 1].equals(s)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        final int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            final int h = byId[id].hashCode();
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ai.indexer.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import ai.indexer.cache.ScanRecordCodec;
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.TypeLine;
+
+/**
+ * Binary form of output lines in {@link ExternalSort} runs, in the encoding of {@link ScanRecordCodec}.
+ */
+interface LineCodec<T> {
+
+    void write(DataOutput out, T line) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    /**
+     * @return rough heap footprint of {@code line} in bytes, for sizing sort buffers
+     */
+    long weight(T line);
+
+    LineCodec<TypeLine> TYPE = new LineCodec<>() {
+        @Override
+        public void write(DataOutput out, TypeLine t) throws IOException {
+            ScanRecordCodec.writeString(out, t.id());
+            ScanRecordCodec.writeString(out, t.kind());
+            ScanRecordCodec.writeString(out, t.file());
+            ScanRecordCodec.writeStrings(out, t.implementsIds());
+            ScanRecordCodec.writeStrings(out, t.extendsIds());
+            ScanRecordCodec.writeString(out, t.ejb());
+            ScanRecordCodec.writeStrings(out, t.ejbLocal());
+            ScanRecordCodec.writeStrings(out, t.ejbRemote());
+            ScanRecordCodec.writeStrings(out, t.injects());
+            ScanRecordCodec.writeStrings(out, t.injectMembers());
+        }
+
+        @Override
+        public TypeLine read(DataInput in) throws IOException {
+            return new TypeLine(ScanRecordCodec.readString(in), ScanRecordCodec.readString(in),
+                    ScanRecordCodec.readString(in), ScanRecordCodec.readStrings(in), ScanRecordCodec.readStrings(in),
+                    ScanRecordCodec.readString(in), ScanRecordCodec.readStrings(in), ScanRecordCodec.readStrings(in),
+                    ScanRecordCodec.readStrings(in), ScanRecordCodec.readStrings(in));
+        }
+
+        @Override
+        public long weight(TypeLine t) {
+            return 64 + sizeOf(t.id()) + sizeOf(t.file())
+                    + sizeOf(t.implementsIds()) + sizeOf(t.extendsIds()) + sizeOf(t.ejbLocal())
+                    + sizeOf(t.ejbRemote()) + sizeOf(t.injects()) + sizeOf(t.injectMembers());
+        }
+    };
+
+    LineCodec<InjectLine> INJECT = new LineCodec<>() {
+        @Override
+        public void write(DataOutput out, InjectLine i) throws IOException {
+            ScanRecordCodec.writeString(out, i.from());
+            ScanRecordCodec.writeString(out, i.memberKind());
+            ScanRecordCodec.writeString(out, i.member());
+            ScanRecordCodec.writeString(out, i.type());
+            out.writeByte(i.via().ordinal());
+        }
+
+        @Override
+        public InjectLine read(DataInput in) throws IOException {
+            return new InjectLine(ScanRecordCodec.readString(in), ScanRecordCodec.readString(in),
+                    ScanRecordCodec.readString(in), ScanRecordCodec.readString(in), ScanRecordCodec.readVia(in));
+        }
+
+        @Override
+        public long weight(InjectLine i) {
+            // memberKind and via are shared constants
+            return 32 + sizeOf(i.from()) + sizeOf(i.member()) + sizeOf(i.type());
+        }
+    };
+
+    LineCodec<ReverseSite> REVERSE_SITE = new LineCodec<>() {
+        @Override
+        public void write(DataOutput out, ReverseSite r) throws IOException {
+            out.writeInt(r.shard());
+            INJECT.write(out, r.line());
+        }
+
+        @Override
+        public ReverseSite read(DataInput in) throws IOException {
+            return new ReverseSite(in.readInt(), INJECT.read(in));
+        }
+
+        @Override
+        public long weight(ReverseSite r) {
+            return 16 + INJECT.weight(r.line());
+        }
+    };
+
+    private static long sizeOf(String s) {
+        return s != null ? 40 + s.length() : 0;
+    }
+
+    private static long sizeOf(List<String> values) {
+        long w = 24 + 8L * values.size();
+        for (String s : values) {
+            w += sizeOf(s);
+        }
+        return w;
+    }
+}
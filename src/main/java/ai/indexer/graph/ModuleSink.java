@@ -0,0 +1,12 @@
+package ai.indexer.graph;
+
+import java.io.IOException;
+
+/**
+ * Receives one module's resolved lines at a time (see {@link GraphBuilder#buildStreaming}).
+ */
+@FunctionalInterface
+public interface ModuleSink {
+
+    void accept(String moduleId, Graph.ModuleFiles files) throws IOException;
+}
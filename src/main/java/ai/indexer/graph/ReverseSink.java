@@ -0,0 +1,16 @@
+package ai.indexer.graph;
+
+import java.io.IOException;
+
+import ai.indexer.model.InjectReverseLine;
+
+/**
+ * Receives the reverse injection shards of a streamed build one at a time (see
+ * {@link GraphBuilder#buildStreaming}): each module's, then {@link Graph#EXTERNAL_SHARD}. The lines are
+ * sorted by type and read from disk, so they can be iterated only once.
+ */
+@FunctionalInterface
+public interface ReverseSink {
+
+    void accept(String shard, Iterable<InjectReverseLine> lines) throws IOException;
+}
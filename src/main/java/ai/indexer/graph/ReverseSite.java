@@ -0,0 +1,10 @@
+package ai.indexer.graph;
+
+import ai.indexer.model.InjectLine;
+
+/**
+ * An inject line filed under the reverse injection shard of its type: the ordinal of the module
+ * declaring the type, or the module count for {@link Graph#EXTERNAL_SHARD}.
+ */
+record ReverseSite(int shard, InjectLine line) {
+}
@@ -0,0 +1,213 @@
+package ai.indexer.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ai.indexer.cache.ScanRecordCodec;
+import ai.indexer.scan.TypeScanner;
+
+/**
+ * Intermediate result of one {@code --shard=i/n} process: the raw scanned records of the modules it
+ * owns, one {@link TypeScanner.FileScan} per module (warnings = that module's parse warnings), plus the
+ * full module list and whether tests were included, so {@link GraphBuilder#merge} can check that the
+ * shards belong together.
+ * Written as {@code shard-<i>-of-<n>.shard.bin}; not meant for consumers.
+ */
+public final class ShardFile {
+
+    public static final String SUFFIX = ".shard.bin";
+
+    private static final int MAGIC = 0x41495348; // "AISH"
+    private static final int FORMAT_VERSION = 2;
+
+    private final int index;
+    private final int count;
+    private final List<String> moduleIds;
+    private final boolean includeTests;
+    private final Map<String, TypeScanner.FileScan> records;
+    private final int filesSeen;
+    private final int filesParsed;
+    private final int filesLexed;
+    private final long bytesRead;
+
+    /**
+     * @param moduleIds    every module of the layout, sorted (not just this shard's)
+     * @param includeTests whether test source roots were scanned
+     * @param records      this shard's modules that have source roots
+     */
+    public ShardFile(int index, int count, List<String> moduleIds, boolean includeTests,
+                     Map<String, TypeScanner.FileScan> records,
+                     int filesSeen, int filesParsed, int filesLexed, long bytesRead) {
+        this.index = index;
+        this.count = count;
+        this.moduleIds = List.copyOf(moduleIds);
+        this.includeTests = includeTests;
+        this.records = Objects.requireNonNull(records, "records");
+        this.filesSeen = filesSeen;
+        this.filesParsed = filesParsed;
+        this.filesLexed = filesLexed;
+        this.bytesRead = bytesRead;
+    }
+
+    public static String fileName(int index, int count) {
+        return "shard-" + index + "-of-" + count + SUFFIX;
+    }
+
+    /**
+     * @throws IOException if the file is unreadable or was written by another format or scanner version
+     */
+    public static ShardFile load(Path file) throws IOException {
+        Objects.requireNonNull(file, "file");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a shard file: " + file);
+            }
+            final int format = in.readInt();
+            final int scanner = in.readInt();
+            if (format != FORMAT_VERSION || scanner != TypeScanner.SCANNER_VERSION) {
+                throw new IOException("Shard file " + file + " has format " + format + "/scanner " + scanner
+                        + ", expected " + FORMAT_VERSION + "/" + TypeScanner.SCANNER_VERSION);
+            }
+            final int index = in.readInt();
+            final int count = in.readInt();
+            if (count < 1 || index < 1 || index > count) {
+                throw new IOException("Shard file " + file + " has an invalid shard " + index + "/" + count);
+            }
+            final List<String> moduleIds = ScanRecordCodec.readStrings(in);
+            final boolean includeTests = in.readBoolean();
+            final int filesSeen = in.readInt();
+            final int filesParsed = in.readInt();
+            final int filesLexed = in.readInt();
+            final long bytesRead = in.readLong();
+            final int n = in.readInt();
+            final Map<String, TypeScanner.FileScan> records = new HashMap<>(Math.max(16, n * 4 / 3 + 1));
+            for (int i = 0; i < n; i++) {
+                final String moduleId = ScanRecordCodec.readString(in);
+                records.put(moduleId, ScanRecordCodec.readFileScan(in));
+            }
+            return new ShardFile(index, count, moduleIds, includeTests, records, filesSeen, filesParsed, filesLexed, bytesRead);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Objects.requireNonNull(file, "file");
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(TypeScanner.SCANNER_VERSION);
+            out.writeInt(index);
+            out.writeInt(count);
+            ScanRecordCodec.writeStrings(out, moduleIds);
+            out.writeBoolean(includeTests);
+            out.writeInt(filesSeen);
+            out.writeInt(filesParsed);
+            out.writeInt(filesLexed);
+            out.writeLong(bytesRead);
+            final List<String> owned = new ArrayList<>(records.keySet());
+            owned.sort(null);
+            out.writeInt(owned.size());
+            for (String moduleId : owned) {
+                ScanRecordCodec.writeString(out, moduleId);
+                ScanRecordCodec.writeFileScan(out, records.get(moduleId));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return a description of why {@code shards} are not one complete set, or null if they are
+     */
+    public static String checkComplete(List<ShardFile> shards) {
+        if (shards.isEmpty()) {
+            return "no shard files given";
+        }
+        final ShardFile first = shards.getFirst();
+        final boolean[] seen = new boolean[first.count + 1];
+        for (ShardFile shard : shards) {
+            if (shard.count != first.count) {
+                return "shards of different splits: " + first.index + "/" + first.count + " and "
+                        + shard.index + "/" + shard.count;
+            }
+            if (!shard.moduleIds.equals(first.moduleIds)) {
+                return "shard " + shard.index + "/" + shard.count + " was cut from a different module list";
+            }
+            if (shard.includeTests != first.includeTests) {
+                return "shard " + shard.index + "/" + shard.count + " was scanned with --includeTests="
+                        + shard.includeTests + ", shard " + first.index + "/" + first.count + " with "
+                        + first.includeTests;
+            }
+            if (seen[shard.index]) {
+                return "shard " + shard.index + "/" + shard.count + " given twice";
+            }
+            seen[shard.index] = true;
+        }
+        for (int i = 1; i <= first.count; i++) {
+            if (!seen[i]) {
+                return "shard " + i + "/" + first.count + " is missing";
+            }
+        }
+        return null;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public List<String> moduleIds() {
+        return moduleIds;
+    }
+
+    public boolean includeTests() {
+        return includeTests;
+    }
+
+    /**
+     * @return records by module ID, for this shard's modules that have source roots
+     */
+    public Map<String, TypeScanner.FileScan> records() {
+        return records;
+    }
+
+    public int filesSeen() {
+        return filesSeen;
+    }
+
+    public int filesParsed() {
+        return filesParsed;
+    }
+
+    public int filesLexed() {
+        return filesLexed;
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return number of types in this shard's records
+     */
+    public int typeCount() {
+        int n = 0;
+        for (var scan : records.values()) {
+            n += scan.types().size();
+        }
+        return n;
+    }
+}
@@ -1,74 +1,208 @@
 package ai.indexer.graph;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 import ai.indexer.model.Ids;
 
 /**
  * Repository-wide symbol table for light resolution:
  * - fqcn -> exists
+ * - (package or enclosing type, simpleName) -> fqcn
  * - simpleName -> fqcn (only if unique)
+ * <p>
+ * Every type name is interned to a dense int ID; lookups and the graph-building maps in
+ * {@link GraphBuilder} work on those IDs, and the "t:" type ID string of each name is built once.
  */
 public final class SymbolTable {
 
-    private final Set<String> allFqcns = new HashSet<>();
-    private final Map<String, String> uniqueSimpleToFqcn = new HashMap<>();
-    private final Map<String, Integer> simpleCounts = new HashMap<>();
+    private final Interner names = new Interner();
+    private final Interner simpleNames = new Interner();
+    private final Interner scopes = new Interner(); // packages and types that declare member types
+    private final IntPairMap members = new IntPairMap(); // (scope ID, simple ID) -> fqcn ID
+    private final BitSet registered = new BitSet();
+    private int[] simpleCounts = new int[0];
+    private int[] uniqueSimpleToFqcn = new int[0]; // simple ID -> fqcn ID, -1 if ambiguous
+    private String[] typeIds = new String[0];
 
     public void registerType(String fqcn) {
-        allFqcns.add(fqcn);
-        final String simple = Ids.simpleNameOfFqcn(fqcn);
-        simpleCounts.merge(simple, 1, Integer::sum);
+        // counted per registration, so a FQCN declared twice is not a unique simple name
+        final int id = names.intern(fqcn);
+        registered.set(id);
+        final int dot = fqcn.lastIndexOf('.');
+        final int simple = simpleNames.intern(dot >= 0 ? fqcn.substring(dot + 1) : fqcn);
+        if (simple >= simpleCounts.length) {
+            simpleCounts = Arrays.copyOf(simpleCounts, Math.max(simple + 1, simpleCounts.length * 2));
+        }
+        simpleCounts[simple]++;
+        members.put(scopes.intern(dot >= 0 ? fqcn.substring(0, dot) : ""), simple, id);
     }
 
     public void finalizeIndex() {
         // Build unique simpleName -> fqcn map
         // (requires another pass over all fqcns)
-        for (String fqcn : allFqcns) {
-            final String simple = Ids.simpleNameOfFqcn(fqcn);
-            final int c = simpleCounts.getOrDefault(simple, 0);
-            if (c == 1) {
-                uniqueSimpleToFqcn.put(simple, fqcn);
+        uniqueSimpleToFqcn = new int[simpleNames.size()];
+        Arrays.fill(uniqueSimpleToFqcn, -1);
+        for (int id = registered.nextSetBit(0); id >= 0; id = registered.nextSetBit(id + 1)) {
+            final int simple = simpleNames.find(Ids.simpleNameOfFqcn(names.get(id)));
+            if (simpleCounts[simple] == 1) {
+                uniqueSimpleToFqcn[simple] = id;
             }
         }
     }
 
     public String resolveToFqcnIfPossible(String typeName, String packageName) {
+        final int id = resolve(typeName, null, packageName, List.of());
+        return id >= 0 ? names.get(id) : null;
+    }
+
+    public String toTypeId(String typeName, String packageName) {
+        return toTypeId(typeName, null, packageName, List.of());
+    }
+
+    /**
+     * @param scopeFqcn       type whose declaration contains the reference (its member types and those of
+     *                        its enclosing types are in scope), or null
+     * @param onDemandImports packages (or types) of the file's {@code import x.*} declarations
+     */
+    public String toTypeId(String typeName, String scopeFqcn, String packageName, List<String> onDemandImports) {
+        return typeId(referenceId(typeName, scopeFqcn, packageName, onDemandImports));
+    }
+
+    /**
+     * @return the ID behind {@link #toTypeId}: the resolved FQCN, else the interned normalized name
+     */
+    int referenceId(String typeName, String scopeFqcn, String packageName, List<String> onDemandImports) {
+        final int id = resolve(typeName, scopeFqcn, packageName, onDemandImports);
+        if (id >= 0) {
+            return id;
+        }
+        // fallback to stable-ish reference
+        return names.intern(Ids.normalizeTypeName(typeName));
+    }
+
+    /**
+     * Resolves like the compiler would for what the symbol table knows: member types of the scope and
+     * its enclosing types, then the same package, then on-demand imports, then a unique simple name.
+     * Single-type imports are already applied by the scanner. A qualified name is taken as a FQCN
+     * unless its first segment resolves to a type that declares the rest as member types.
+     *
+     * @return the ID of the resolved FQCN (interning unknown dotted names as-is), or -1 if unresolved
+     */
+    int resolve(String typeName, String scopeFqcn, String packageName, List<String> onDemandImports) {
         if (typeName == null || typeName.isBlank()) {
-            return null;
+            return -1;
         }
 
         final String trimmed = Ids.normalizeTypeName(typeName);
         if (trimmed.isBlank()) {
-            return null;
+            return -1;
+        }
+
+        final int dot = trimmed.indexOf('.');
+        if (dot < 0) {
+            return resolveSimple(trimmed, scopeFqcn, packageName, onDemandImports);
         }
 
         // Already FQCN
-        if (trimmed.indexOf('.') >= 0) {
-            return trimmed; // keep as-is
+        final int exact = names.find(trimmed);
+        if (exact >= 0 && registered.get(exact)) {
+            return exact;
+        }
+
+        // Outer.Inner: walk member types from the resolved outer type
+        int outer = resolveSimple(trimmed.substring(0, dot), scopeFqcn, packageName, onDemandImports);
+        int from = dot + 1;
+        while (outer >= 0) {
+            final int next = trimmed.indexOf('.', from);
+            final int simple = simpleNames.find(next < 0 ? trimmed.substring(from) : trimmed.substring(from, next));
+            outer = member(names.get(outer), simple);
+            if (next < 0) {
+                if (outer >= 0) {
+                    return outer;
+                }
+                break;
+            }
+            from = next + 1;
+        }
+        return names.intern(trimmed); // keep as-is
+    }
+
+    private int resolveSimple(String name, String scopeFqcn, String packageName, List<String> onDemandImports) {
+        final int simple = simpleNames.find(name);
+        if (simple < 0) {
+            return -1; // no type of that name is declared anywhere
+        }
+
+        // Member types of the scope and its enclosing types (but not of enclosing packages)
+        if (scopeFqcn != null) {
+            final int stop = packageName != null ? packageName.length() : 0;
+            String scope = scopeFqcn;
+            while (scope.length() > stop) {
+                final int id = member(scope, simple);
+                if (id >= 0) {
+                    return id;
+                }
+                final int dot = scope.lastIndexOf('.');
+                if (dot <= stop) {
+                    break; // the package is looked up below
+                }
+                scope = scope.substring(0, dot);
+            }
         }
 
         // Try same package
-        if (packageName != null && !packageName.isBlank()) {
-            final String candidate = packageName + "." + trimmed;
-            if (allFqcns.contains(candidate)) {
-                return candidate;
+        if (packageName != null) {
+            final int id = member(packageName, simple);
+            if (id >= 0) {
+                return id;
             }
         }
 
-        return uniqueSimpleToFqcn.get(trimmed);
+        for (String pkg : onDemandImports) {
+            final int id = member(pkg, simple);
+            if (id >= 0) {
+                return id;
+            }
+        }
+
+        return simple < uniqueSimpleToFqcn.length ? uniqueSimpleToFqcn[simple] : -1;
     }
 
-    public String toTypeId(String typeName, String packageName) {
-        final String fqcn = resolveToFqcnIfPossible(typeName, packageName);
-        if (fqcn != null) {
-            return Ids.typeId(fqcn);
+    /**
+     * @return the FQCN ID of member type {@code simple} of {@code scope}, or -1
+     */
+    private int member(String scope, int simple) {
+        if (simple < 0) {
+            return -1;
         }
-        // fallback to stable-ish reference
-        final String trimmed = Ids.normalizeTypeName(typeName);
-        return "t:" + trimmed;
+        final int scopeId = scopes.find(scope);
+        return scopeId >= 0 ? members.get(scopeId, simple) : -1;
+    }
+
+    /**
+     * @return the ID of {@code fqcn}, assigning one if it is new
+     */
+    int id(String fqcn) {
+        return names.intern(fqcn);
+    }
+
+    String fqcn(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return the shared {@code "t:" + fqcn} string of an interned name
+     */
+    String typeId(int id) {
+        if (id >= typeIds.length) {
+            typeIds = Arrays.copyOf(typeIds, Math.max(id + 1, names.size()));
+        }
+        String typeId = typeIds[id];
+        if (typeId == null) {
+            typeId = typeIds[id] = Ids.typeId(names.get(id));
+        }
+        return typeId;
     }
 }
@@ -0,0 +1,174 @@
+package ai.indexer.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Memory-mappable sorted-key index ({@code key -> module}) written next to the JSON indices.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int magic, int version, int moduleCount, int keyCount
+ *   moduleCount x (int length, UTF-8 bytes)       module table
+ *   keyCount x (int keyOffset, int keyLength, int moduleOrdinal)
+ *   UTF-8 key bytes, keys sorted by unsigned byte order
+ * </pre>
+ * Lookups binary-search the entry table directly in the {@link MappedByteBuffer}; only the module
+ * table is decoded on open.
+ */
+public final class BinaryIndex {
+
+    private static final int MAGIC = 0x41494258; // "AIBX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int ENTRY_BYTES = 12;
+
+    private final ByteBuffer buf;
+    private final List<String> modules;
+    private final int keyCount;
+    private final int entriesOffset;
+    private final int keysOffset;
+
+    private BinaryIndex(ByteBuffer buf, List<String> modules, int keyCount, int entriesOffset) {
+        this.buf = buf;
+        this.modules = modules;
+        this.keyCount = keyCount;
+        this.entriesOffset = entriesOffset;
+        this.keysOffset = entriesOffset + keyCount * ENTRY_BYTES;
+    }
+
+    /**
+     * Writes {@code index} to {@code file} in place. To replace an index that readers may have mapped,
+     * write a temp file and move it over, as {@link GraphWriter} does.
+     */
+    public static void write(Path file, Map<String, String> index) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(index, "index");
+
+        final List<String> modules = new ArrayList<>(new TreeSet<>(index.values()));
+        final Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < modules.size(); i++) {
+            ordinals.put(modules.get(i), i);
+        }
+
+        final List<Key> keys = new ArrayList<>(index.size());
+        for (var e : index.entrySet()) {
+            keys.add(new Key(e.getKey().getBytes(StandardCharsets.UTF_8), ordinals.get(e.getValue())));
+        }
+        keys.sort((a, b) -> Arrays.compareUnsigned(a.bytes(), b.bytes()));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(modules.size());
+            out.writeInt(keys.size());
+            for (String module : modules) {
+                final byte[] b = module.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+            int offset = 0;
+            for (Key key : keys) {
+                out.writeInt(offset);
+                out.writeInt(key.bytes().length);
+                out.writeInt(key.module());
+                offset += key.bytes().length;
+            }
+            for (Key key : keys) {
+                out.write(key.bytes());
+            }
+        }
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping stays valid after this method returns.
+     */
+    public static BinaryIndex open(Path file) throws IOException {
+        final MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary index too large: " + file);
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        try {
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a binary index (or unsupported version): " + file);
+            }
+            final int moduleCount = buf.getInt(8);
+            final int keyCount = buf.getInt(12);
+            final List<String> modules = new ArrayList<>(moduleCount);
+            int pos = 16;
+            for (int i = 0; i < moduleCount; i++) {
+                final int len = buf.getInt(pos);
+                final byte[] b = new byte[len];
+                buf.get(pos + 4, b);
+                modules.add(new String(b, StandardCharsets.UTF_8));
+                pos += 4 + len;
+            }
+            return new BinaryIndex(buf, List.copyOf(modules), keyCount, pos);
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated binary index: " + file, ex);
+        }
+    }
+
+    /**
+     * @return the module of {@code key}, or null if absent
+     */
+    public String get(String key) {
+        final byte[] needle = key.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = keyCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int cmp = compareKey(mid, needle);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return modules.get(buf.getInt(entriesOffset + mid * ENTRY_BYTES + 8));
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return keyCount;
+    }
+
+    public List<String> modules() {
+        return modules;
+    }
+
+    private int compareKey(int entry, byte[] needle) {
+        final int e = entriesOffset + entry * ENTRY_BYTES;
+        final int off = keysOffset + buf.getInt(e);
+        final int len = buf.getInt(e + 4);
+        final int n = Math.min(len, needle.length);
+        for (int i = 0; i < n; i++) {
+            final int c = Byte.compareUnsigned(buf.get(off + i), needle[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(len, needle.length);
+    }
+
+    private record Key(byte[] bytes, int module) {
+    }
+}
@@ -0,0 +1,230 @@
+package ai.indexer.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Block-compressed JSONL: lines are cut into blocks of about {@link #BLOCK_BYTES} uncompressed bytes,
+ * each block is an independent gzip member, and the members are concatenated (so {@code gzip -dc}
+ * still reads the whole file). A JSON side index lists the first key, byte offset and length of every
+ * block; since lines are sorted by key, a reader decompresses only the blocks that can hold a key.
+ * Blocks are compressed in parallel on the common pool, a window of a few blocks per CPU at a time,
+ * and written before more lines are read.
+ */
+public final class BlockJsonl {
+
+    public static final String SUFFIX = ".jsonl.gz";
+    public static final String INDEX_SUFFIX = ".jsonl.gz.blocks.json";
+    static final int BLOCK_BYTES = 64 * 1024;
+    /**
+     * Blocks cut per CPU before they are compressed and written, so the writer's memory does not grow
+     * with the file.
+     */
+    private static final int WINDOW_BLOCKS_PER_CPU = 2;
+
+    private final Path file;
+    private final BlockIndex index;
+    private final ObjectMapper mapper;
+
+    private BlockJsonl(Path file, BlockIndex index, ObjectMapper mapper) {
+        this.file = file;
+        this.index = index;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Writes {@code lines} (sorted by {@code key}) to {@code file} and its block index to {@code indexFile}
+     * (normally {@link #indexFile(Path)}).
+     *
+     * @param keyField name of the JSON field {@code key} returns, recorded for readers
+     */
+    static <T> void write(Path file, Path indexFile, Iterable<T> lines, String keyField, Function<T, String> key,
+                          ObjectMapper lineMapper, ObjectMapper indexMapper) throws IOException {
+        final int window = WINDOW_BLOCKS_PER_CPU * Runtime.getRuntime().availableProcessors();
+        final List<byte[]> raw = new ArrayList<>(window);
+        final List<Block> cut = new ArrayList<>(window);
+        final List<Block> placed = new ArrayList<>();
+        long offset = 0;
+        final ByteArrayOutputStream current = new ByteArrayOutputStream(BLOCK_BYTES + 1024);
+        try (OutputStream fileOut = Files.newOutputStream(file);
+             LineWriter out = new LineWriter(lineMapper, current)) {
+            // Cut serialized lines into blocks at line boundaries
+            String firstKey = null;
+            int count = 0;
+            for (T line : lines) {
+                if (firstKey == null) {
+                    firstKey = key.apply(line);
+                }
+                out.write(line);
+                count++;
+                if (current.size() + out.buffered() >= BLOCK_BYTES) {
+                    out.flush();
+                    raw.add(current.toByteArray());
+                    cut.add(new Block(firstKey, 0, 0, count));
+                    current.reset();
+                    firstKey = null;
+                    count = 0;
+                    if (raw.size() == window) {
+                        offset = writeWindow(raw, cut, fileOut, placed, offset);
+                    }
+                }
+            }
+            out.flush();
+            if (count > 0) {
+                raw.add(current.toByteArray());
+                cut.add(new Block(firstKey, 0, 0, count));
+            }
+            writeWindow(raw, cut, fileOut, placed, offset);
+        }
+        indexMapper.writeValue(indexFile.toFile(), new BlockIndex(keyField, placed));
+    }
+
+    /**
+     * Compresses the blocks cut so far in parallel, appends them to {@code out} in order, records where
+     * they went in {@code placed} and clears {@code raw} and {@code cut}.
+     *
+     * @return the offset after the appended blocks
+     */
+    private static long writeWindow(List<byte[]> raw, List<Block> cut, OutputStream out, List<Block> placed,
+                                    long offset) throws IOException {
+        final List<byte[]> compressed;
+        try {
+            compressed = raw.parallelStream().map(BlockJsonl::gzip).toList();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        for (int i = 0; i < compressed.size(); i++) {
+            final byte[] member = compressed.get(i);
+            out.write(member);
+            final Block b = cut.get(i);
+            placed.add(new Block(b.firstKey(), offset, member.length, b.lines()));
+            offset += member.length;
+        }
+        raw.clear();
+        cut.clear();
+        return offset;
+    }
+
+    private static byte[] gzip(byte[] block) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(block.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(block);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the block index file of a {@code .jsonl.gz} file
+     */
+    public static Path indexFile(Path file) {
+        final String name = file.getFileName().toString();
+        final String stem = name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+        return file.resolveSibling(stem + INDEX_SUFFIX);
+    }
+
+    /**
+     * Opens a block-compressed file by reading its block index; blocks are read on demand.
+     */
+    public static BlockJsonl open(Path file) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final BlockIndex index = mapper.readValue(indexFile(file).toFile(), BlockIndex.class);
+        return new BlockJsonl(Objects.requireNonNull(file, "file"), index, mapper);
+    }
+
+    public int blockCount() {
+        return index.blocks().size();
+    }
+
+    /**
+     * @return the decompressed JSON lines of block {@code i}
+     */
+    public List<String> readBlock(int i) throws IOException {
+        final Block b = index.blocks().get(i);
+        final byte[] member = new byte[b.length()];
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buf = ByteBuffer.wrap(member);
+            long pos = b.offset();
+            while (buf.hasRemaining()) {
+                final int n = ch.read(buf, pos);
+                if (n < 0) {
+                    throw new IOException("Truncated block " + i + " in " + file);
+                }
+                pos += n;
+            }
+        }
+        final String text;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(member))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        return text.lines().toList();
+    }
+
+    /**
+     * @return the lines whose key field equals {@code key}, decompressing only the blocks whose key
+     * range can contain it
+     */
+    public List<String> lines(String key) throws IOException {
+        final List<Block> blocks = index.blocks();
+        // last block starting before key: a run of equal keys may begin at its end
+        int lo = 0;
+        int hi = blocks.size() - 1;
+        int first = 0;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (blocks.get(mid).firstKey().compareTo(key) < 0) {
+                first = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        final List<String> out = new ArrayList<>();
+        for (int i = first; i < blocks.size(); i++) {
+            if (i > first && blocks.get(i).firstKey().compareTo(key) > 0) {
+                break;
+            }
+            for (String line : readBlock(i)) {
+                final JsonNode node = mapper.readTree(line).get(index.keyField());
+                if (node != null && key.equals(node.asText())) {
+                    out.add(line);
+                }
+            }
+        }
+        return out;
+    }
+
+    public record BlockIndex(
+            String keyField,
+            List<Block> blocks
+    ) {
+    }
+
+    public record Block(
+            String firstKey,
+            long offset,   // byte offset of the gzip member
+            int length,    // compressed bytes
+            int lines
+    ) {
+    }
+}
@@ -0,0 +1,236 @@
+package ai.indexer.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ai.indexer.graph.CompressedBitSet;
+import ai.indexer.graph.InjectClosure;
+
+/**
+ * Memory-mappable transitive injection closure ({@link InjectClosure}): per type, the types it
+ * transitively injects and the types that transitively inject it.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int magic, int version, int nodeCount, int componentCount
+ *   nodeCount x (int nameOffset, int nameLength, int component)   names sorted by unsigned byte order
+ *   componentCount x (int dependenciesOffset, int dependentsOffset)
+ *   UTF-8 name bytes
+ *   {@link CompressedBitSet}s of node numbers; identical sets are stored once
+ * </pre>
+ * Offsets are relative to the start of their section. A lookup is a binary search over the node
+ * table plus one set decode.
+ */
+public final class ClosureFile {
+
+    private static final int MAGIC = 0x4149434C; // "AICL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NODE_BYTES = 12;
+    private static final int COMPONENT_BYTES = 8;
+
+    private final ByteBuffer buf;
+    private final int nodeCount;
+    private final int componentsOffset;
+    private final int namesOffset;
+    private final int setsOffset;
+
+    private ClosureFile(ByteBuffer buf, int nodeCount, int componentCount, int namesLength) {
+        this.buf = buf;
+        this.nodeCount = nodeCount;
+        this.componentsOffset = 16 + nodeCount * NODE_BYTES;
+        this.namesOffset = componentsOffset + componentCount * COMPONENT_BYTES;
+        this.setsOffset = namesOffset + namesLength;
+    }
+
+    /**
+     * Writes {@code closure} to {@code file} in place; {@link GraphWriter} writes a temp file and moves it.
+     *
+     * @return false, writing nothing, if the file would exceed 2 GB (one mapping); long dependency
+     * chains make closures quadratic
+     */
+    public static boolean write(Path file, InjectClosure closure) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(closure, "closure");
+
+        final List<String> nodes = closure.nodes();
+        final List<byte[]> names = new ArrayList<>(nodes.size());
+        long namesLength = 0;
+        for (String node : nodes) {
+            final byte[] b = node.getBytes(StandardCharsets.UTF_8);
+            names.add(b);
+            namesLength += b.length;
+        }
+
+        final int components = closure.componentCount();
+        final Map<CompressedBitSet, Integer> setOffsets = new HashMap<>();
+        final List<CompressedBitSet> sets = new ArrayList<>();
+        final int[] dependencyOffsets = new int[components];
+        final int[] dependentOffsets = new int[components];
+        final long[] setsLength = {0};
+        for (int c = 0; c < components; c++) {
+            dependencyOffsets[c] = offsetOf(closure.dependencies(c), setOffsets, sets, setsLength);
+            dependentOffsets[c] = offsetOf(closure.dependents(c), setOffsets, sets, setsLength);
+        }
+        final long total = 16L + (long) nodes.size() * NODE_BYTES + (long) components * COMPONENT_BYTES
+                + namesLength + setsLength[0];
+        if (total > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nodes.size());
+            out.writeInt(components);
+            int offset = 0;
+            for (int node = 0; node < nodes.size(); node++) {
+                out.writeInt(offset);
+                out.writeInt(names.get(node).length);
+                out.writeInt(closure.componentOf(node));
+                offset += names.get(node).length;
+            }
+            for (int c = 0; c < components; c++) {
+                out.writeInt(dependencyOffsets[c]);
+                out.writeInt(dependentOffsets[c]);
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            for (CompressedBitSet set : sets) {
+                set.write(out);
+            }
+        }
+        return true;
+    }
+
+    private static int offsetOf(CompressedBitSet set, Map<CompressedBitSet, Integer> setOffsets,
+                                List<CompressedBitSet> sets, long[] setsLength) {
+        final Integer known = setOffsets.get(set);
+        if (known != null) {
+            return known;
+        }
+        if (setsLength[0] > Integer.MAX_VALUE) {
+            return -1; // too large; write() gives up
+        }
+        final int offset = (int) setsLength[0];
+        setOffsets.put(set, offset);
+        sets.add(set);
+        setsLength[0] += set.serializedSize();
+        return offset;
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping stays valid after this method returns.
+     */
+    public static ClosureFile open(Path file) throws IOException {
+        final MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Closure file too large: " + file);
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        try {
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a closure file (or unsupported version): " + file);
+            }
+            final int nodeCount = buf.getInt(8);
+            final int componentCount = buf.getInt(12);
+            int namesLength = 0;
+            if (nodeCount > 0) {
+                final int last = 16 + (nodeCount - 1) * NODE_BYTES;
+                namesLength = buf.getInt(last) + buf.getInt(last + 4);
+            }
+            return new ClosureFile(buf, nodeCount, componentCount, namesLength);
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated closure file: " + file, ex);
+        }
+    }
+
+    /**
+     * @return type IDs {@code typeId} transitively injects (sorted), or null if it takes part in no injection
+     */
+    public List<String> dependencies(String typeId) {
+        return lookup(typeId, 0);
+    }
+
+    /**
+     * @return type IDs that transitively inject {@code typeId} (sorted), or null if it takes part in no injection
+     */
+    public List<String> dependents(String typeId) {
+        return lookup(typeId, 4);
+    }
+
+    /**
+     * @return number of types in the closure
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    private List<String> lookup(String typeId, int column) {
+        final int node = find(typeId.getBytes(StandardCharsets.UTF_8));
+        if (node < 0) {
+            return null;
+        }
+        final int component = buf.getInt(16 + node * NODE_BYTES + 8);
+        final int setOffset = buf.getInt(componentsOffset + component * COMPONENT_BYTES + column);
+        final int[] members = CompressedBitSet.read(buf, setsOffset + setOffset).toArray();
+        final List<String> out = new ArrayList<>(members.length);
+        for (int member : members) {
+            out.add(name(member));
+        }
+        return out;
+    }
+
+    private int find(byte[] needle) {
+        int lo = 0;
+        int hi = nodeCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int cmp = compareName(mid, needle);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareName(int node, byte[] needle) {
+        final int e = 16 + node * NODE_BYTES;
+        final int off = namesOffset + buf.getInt(e);
+        final int len = buf.getInt(e + 4);
+        final int n = Math.min(len, needle.length);
+        for (int i = 0; i < n; i++) {
+            final int c = Byte.compareUnsigned(buf.get(off + i), needle[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(len, needle.length);
+    }
+
+    private String name(int node) {
+        final int e = 16 + node * NODE_BYTES;
+        final byte[] b = new byte[buf.getInt(e + 4)];
+        buf.get(namesOffset + buf.getInt(e), b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
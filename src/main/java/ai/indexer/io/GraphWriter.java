@@ -1,32 +1,75 @@
 package ai.indexer.io;
 
-import java.io.BufferedWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import ai.indexer.graph.Graph;
+import ai.indexer.graph.InjectClosure;
+import ai.indexer.metrics.RunMetrics;
+import ai.indexer.model.EjbBindingLine;
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectReverseLine;
+import ai.indexer.model.ReachLine;
+import ai.indexer.model.TypeLine;
 
+/**
+ * Writes the graph to the output directory. Every file is first written to a {@code .tmp} sibling and
+ * only moved over the existing file (atomically) if the bytes differ, so unchanged outputs keep their
+ * mtime. index.json also counts as unchanged if only its generatedAt differs, which then keeps the time
+ * of the last run that changed it.
+ */
 public final class GraphWriter {
 
     public static final String SCHEMA_VERSION = "ai-graph/v2";
+    public static final String INDEX_FILE = "index.json";
+    public static final String REACH_STEM = "inject.reach";
+    public static final String CLOSURE_FILE = "inject.closure.bin";
+    public static final String TYPE_SEARCH_FILE = "types.search.bin";
+
+    // inject.reverse.<module> also starts with "inject."
+    private static final List<String> MODULE_FILE_PREFIXES = List.of("types.", "inject.", "ejb.");
 
     private final Path outDir;
+    private final boolean compress;
     private final ObjectMapper jsonMapper;
     private final ObjectMapper jsonlMapper;
+    private final List<ModuleIndexEntry> moduleEntries = new ArrayList<>();
+    private final List<ModuleSummary> moduleSummaries = new ArrayList<>();
+    private final Set<String> writtenShards = new HashSet<>();
+    private int filesWritten;
+    private int filesUnchanged;
+    private int filesDeleted;
 
     public GraphWriter(Path outDir) {
+        this(outDir, false);
+    }
+
+    /**
+     * @param compress write JSONL files as {@link BlockJsonl} ({@code .jsonl.gz} plus a block index)
+     */
+    public GraphWriter(Path outDir, boolean compress) {
         this.outDir = Objects.requireNonNull(outDir, "outDir");
+        this.compress = compress;
         this.jsonMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
         this.jsonlMapper = new ObjectMapper();
     }
@@ -35,39 +78,363 @@ public final class GraphWriter {
         Objects.requireNonNull(graph, "graph");
         Objects.requireNonNull(generatedAt, "generatedAt");
 
-        // Ensure directory exists
-        Files.createDirectories(outDir);
-
         // Write per-module JSONL
         final List<String> moduleIds = new ArrayList<>(graph.modules().keySet());
         Collections.sort(moduleIds);
+        for (String moduleId : moduleIds) {
+            writeModule(moduleId, graph.modules().get(moduleId));
+        }
 
-        final List<ModuleIndexEntry> moduleEntries = new ArrayList<>(moduleIds.size());
-        final List<ModuleSummary> moduleSummaries = new ArrayList<>(moduleIds.size());
-        int totalTypes = 0;
-        int totalInjects = 0;
-        int totalEjb = 0;
+        writeIndices(graph, generatedAt);
+    }
+
+    /**
+     * Writes only what differs from {@code previous} (the graph last written to this directory):
+     * per-module JSONL files and reverse injection shards whose lines changed, the global indices if
+     * they changed, and index.json if anything was written. Files of modules that disappeared are deleted.
+     *
+     * @return number of files written or deleted
+     */
+    public int writeChanged(Graph graph, Graph previous, String generatedAt) throws IOException {
+        Objects.requireNonNull(graph, "graph");
+        Objects.requireNonNull(previous, "previous");
+        Objects.requireNonNull(generatedAt, "generatedAt");
 
+        Files.createDirectories(outDir);
+        final int before = filesWritten + filesDeleted;
+        int changed = 0;
+
+        final List<String> moduleIds = new ArrayList<>(graph.modules().keySet());
+        Collections.sort(moduleIds);
         for (String moduleId : moduleIds) {
             final Graph.ModuleFiles files = graph.modules().get(moduleId);
+            final Graph.ModuleFiles old = previous.modules().get(moduleId);
+            final ModuleIndexEntry entry = recordModule(moduleId, files);
+
+            if (old == null || !files.types().equals(old.types())) {
+                writeTypes(entry, files);
+                changed++;
+            }
+            if (old == null || !files.inject().equals(old.inject())) {
+                writeInject(entry, files);
+                changed++;
+            }
+            if (old == null || !files.ejb().equals(old.ejb())) {
+                writeEjb(entry, files);
+                changed++;
+            }
+            final List<InjectReverseLine> reverse = reverseShard(graph, moduleId);
+            if (old == null || !reverse.equals(reverseShard(previous, moduleId))) {
+                writeReverse(entry.injectReverse(), reverse);
+                changed++;
+            }
+        }
+        final List<InjectReverseLine> external = reverseShard(graph, Graph.EXTERNAL_SHARD);
+        if (!external.equals(reverseShard(previous, Graph.EXTERNAL_SHARD))) {
+            writeReverse(reverseShardName(Graph.EXTERNAL_SHARD), external);
+            changed++;
+        }
+
+        for (String moduleId : previous.modules().keySet()) {
+            if (!graph.modules().containsKey(moduleId)) {
+                deleteLines("types." + moduleId);
+                deleteLines("inject." + moduleId);
+                deleteLines("ejb." + moduleId);
+                deleteLines("inject.reverse." + moduleId);
+                changed++;
+            }
+        }
+
+        final boolean typeIndexChanged = !graph.typeIndex().equals(previous.typeIndex());
+        final boolean ejbIndexChanged = !graph.ejbIndex().equals(previous.ejbIndex());
+        if (changed == 0 && !typeIndexChanged && !ejbIndexChanged
+                && graph.parseWarnings() == previous.parseWarnings()) {
+            return 0;
+        }
+        if (typeIndexChanged) {
+            writeJson(outDir.resolve("types.index.json"), new TreeMap<>(graph.typeIndex()));
+            writeBinaryIndex(outDir.resolve("types.index.bin"), graph.typeIndex());
+            writeTypeIndexShards(graph.typeIndex(), previous.typeIndex());
+            writeTypeSearch(graph.typeIndex());
+        }
+        if (ejbIndexChanged) {
+            writeJson(outDir.resolve("ejb.index.json"), new TreeMap<>(graph.ejbIndex()));
+            writeBinaryIndex(outDir.resolve("ejb.index.bin"), graph.ejbIndex());
+        }
+        writeMasterIndex(graph, generatedAt);
+        return filesWritten + filesDeleted - before;
+    }
+
+    /**
+     * Writes one module's JSONL files and remembers its index entry and summary for
+     * {@link #writeIndices}. Usable as a {@link ai.indexer.graph.ModuleSink}.
+     */
+    public void writeModule(String moduleId, Graph.ModuleFiles files) throws IOException {
+        Objects.requireNonNull(moduleId, "moduleId");
+        Objects.requireNonNull(files, "files");
+
+        // Ensure directory exists
+        Files.createDirectories(outDir);
+
+        final ModuleIndexEntry entry = recordModule(moduleId, files);
+        writeTypes(entry, files);
+        writeInject(entry, files);
+        writeEjb(entry, files);
+    }
+
+    private void writeTypes(ModuleIndexEntry entry, Graph.ModuleFiles files) throws IOException {
+        writeLines(entry.types(), files.types(), "id", TypeLine::id);
+    }
+
+    private void writeInject(ModuleIndexEntry entry, Graph.ModuleFiles files) throws IOException {
+        writeLines(entry.inject(), files.inject(), "from", InjectLine::from);
+    }
+
+    private void writeEjb(ModuleIndexEntry entry, Graph.ModuleFiles files) throws IOException {
+        writeLines(entry.ejb(), files.ejb(), "iface", EjbBindingLine::iface);
+    }
+
+    private void writeReverse(String name, Iterable<InjectReverseLine> lines) throws IOException {
+        writeLines(name, lines, "type", InjectReverseLine::type);
+    }
+
+    /**
+     * Writes one reverse injection shard ahead of {@link #writeIndices}, which then leaves it alone.
+     * Usable as a {@link ai.indexer.graph.ReverseSink}.
+     */
+    public void writeReverseShard(String shard, Iterable<InjectReverseLine> lines) throws IOException {
+        Objects.requireNonNull(shard, "shard");
+        Objects.requireNonNull(lines, "lines");
+
+        Files.createDirectories(outDir);
+        writeReverse(reverseShardName(shard), lines);
+        writtenShards.add(shard);
+    }
+
+    /**
+     * Reads back the reverse injection shards written so far (the external one included), shard by
+     * shard, without holding more than one block of lines. Usable as an {@link InjectClosure.ReverseLines}.
+     */
+    public void readReverseShards(Consumer<InjectReverseLine> action) throws IOException {
+        final List<String> names = new ArrayList<>();
+        for (ModuleIndexEntry entry : moduleEntries) {
+            names.add(entry.injectReverse());
+        }
+        names.add(reverseShardName(Graph.EXTERNAL_SHARD));
+        for (String name : names) {
+            final Path file = outDir.resolve(name);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            if (compress) {
+                final BlockJsonl blocks = BlockJsonl.open(file);
+                for (int i = 0; i < blocks.blockCount(); i++) {
+                    for (String line : blocks.readBlock(i)) {
+                        action.accept(jsonlMapper.readValue(line, InjectReverseLine.class));
+                    }
+                }
+            } else {
+                try (BufferedReader in = Files.newBufferedReader(file)) {
+                    for (String line = in.readLine(); line != null; line = in.readLine()) {
+                        action.accept(jsonlMapper.readValue(line, InjectReverseLine.class));
+                    }
+                }
+            }
+        }
+    }
+
+    private ModuleIndexEntry recordModule(String moduleId, Graph.ModuleFiles files) {
+        final String typesName = linesName("types." + moduleId);
+        final String injectName = linesName("inject." + moduleId);
+        final String ejbName = linesName("ejb." + moduleId);
+
+        final ModuleIndexEntry entry = new ModuleIndexEntry(moduleId, typesName, injectName, ejbName,
+                reverseShardName(moduleId));
+        moduleSummaries.add(new ModuleSummary(moduleId, files.types().size(), files.inject().size(), files.ejb().size()));
+        moduleEntries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Writes the global indices, the reverse injection shards and the master index for all modules
+     * written so far, and deletes the files of any other module. Only the graph's indices and warning
+     * count are used, so its modules map may be empty.
+     */
+    public void writeIndices(Graph graph, String generatedAt) throws IOException {
+        Objects.requireNonNull(graph, "graph");
+        Objects.requireNonNull(generatedAt, "generatedAt");
+
+        Files.createDirectories(outDir);
+
+        // Write global indices
+        writeJson(outDir.resolve("types.index.json"), new TreeMap<>(graph.typeIndex()));
+        writeJson(outDir.resolve("ejb.index.json"), new TreeMap<>(graph.ejbIndex()));
+        writeBinaryIndex(outDir.resolve("types.index.bin"), graph.typeIndex());
+        writeBinaryIndex(outDir.resolve("ejb.index.bin"), graph.ejbIndex());
+        writeTypeIndexShards(graph.typeIndex(), null);
+        writeTypeSearch(graph.typeIndex());
+
+        // Reverse injection index: one shard per module (empty if nothing injects its types) + external,
+        // unless streamed in already
+        for (ModuleIndexEntry entry : moduleEntries) {
+            if (!writtenShards.contains(entry.id())) {
+                writeReverse(entry.injectReverse(), reverseShard(graph, entry.id()));
+            }
+        }
+        if (!writtenShards.contains(Graph.EXTERNAL_SHARD)) {
+            writeReverse(reverseShardName(Graph.EXTERNAL_SHARD), reverseShard(graph, Graph.EXTERNAL_SHARD));
+        }
+        deleteStaleModuleFiles();
 
-            final String typesName = "types." + moduleId + ".jsonl";
-            final String injectName = "inject." + moduleId + ".jsonl";
-            final String ejbName = "ejb." + moduleId + ".jsonl";
+        writeMasterIndex(graph, generatedAt);
+    }
 
-            writeJsonl(outDir.resolve(typesName), files.types());
-            writeJsonl(outDir.resolve(injectName), files.inject());
-            writeJsonl(outDir.resolve(ejbName), files.ejb());
+    /**
+     * Deletes the JSONL files (either format) of modules this writer did not write, i.e. modules that
+     * left the layout or the {@code --modules} selection since the previous run.
+     */
+    private void deleteStaleModuleFiles() throws IOException {
+        final Set<String> stems = new HashSet<>();
+        for (ModuleIndexEntry entry : moduleEntries) {
+            for (String name : List.of(entry.types(), entry.inject(), entry.ejb(), entry.injectReverse())) {
+                stems.add(linesStem(name));
+            }
+        }
+        stems.add(linesStem(reverseShardName(Graph.EXTERNAL_SHARD)));
+        stems.add(REACH_STEM);
+        try (var files = Files.list(outDir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                final String stem = linesStem(f.getFileName().toString());
+                if (stem != null && !stems.contains(stem) && MODULE_FILE_PREFIXES.stream().anyMatch(stem::startsWith)) {
+                    delete(f);
+                }
+            }
+        }
+    }
 
-            final int typesCount = files.types().size();
-            final int injectsCount = files.inject().size();
-            final int ejbCount = files.ejb().size();
-            totalTypes += typesCount;
-            totalInjects += injectsCount;
-            totalEjb += ejbCount;
-            moduleSummaries.add(new ModuleSummary(moduleId, typesCount, injectsCount, ejbCount));
+    /**
+     * @return the stem of a JSONL, block-compressed JSONL or block index file name, otherwise null
+     */
+    private static String linesStem(String name) {
+        for (String suffix : List.of(".jsonl", BlockJsonl.SUFFIX, BlockJsonl.INDEX_SUFFIX)) {
+            if (name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return null;
+    }
 
-            moduleEntries.add(new ModuleIndexEntry(moduleId, typesName, injectName, ejbName));
+    /**
+     * Writes the {@link TypeIndexShards} of {@code typeIndex} that differ from those of {@code previous}
+     * (all if null) and deletes shard files that no longer have types.
+     */
+    private void writeTypeIndexShards(Map<String, String> typeIndex, Map<String, String> previous) throws IOException {
+        final Path dir = outDir.resolve(TypeIndexShards.DIR);
+        Files.createDirectories(dir);
+        final Map<String, Map<String, String>> shards = TypeIndexShards.split(typeIndex);
+        final Map<String, Map<String, String>> oldShards = previous != null ? TypeIndexShards.split(previous) : Map.of();
+        final Set<String> names = new HashSet<>();
+        for (var e : shards.entrySet()) {
+            final String name = TypeIndexShards.fileName(e.getKey());
+            names.add(name);
+            if (previous == null || !e.getValue().equals(oldShards.get(e.getKey()))) {
+                writeJson(dir.resolve(name), e.getValue());
+            }
+        }
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                if (f.getFileName().toString().endsWith(".json") && !names.contains(f.getFileName().toString())) {
+                    delete(f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the transitive injection closure: set sizes per type as JSONL and the sets themselves
+     * as a {@link ClosureFile}.
+     */
+    public void writeClosure(InjectClosure closure) throws IOException {
+        Objects.requireNonNull(closure, "closure");
+
+        Files.createDirectories(outDir);
+        final List<String> nodes = closure.nodes();
+        final List<ReachLine> lines = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) {
+            final int c = closure.componentOf(node);
+            lines.add(new ReachLine(nodes.get(node), closure.dependencies(c).cardinality(), closure.dependents(c).cardinality()));
+        }
+        lines.sort(Comparator.comparing(ReachLine::type));
+        writeLines(linesName(REACH_STEM), lines, "type", ReachLine::type);
+        final Path file = outDir.resolve(CLOSURE_FILE);
+        final Path tmp = tmpOf(file);
+        try {
+            if (ClosureFile.write(tmp, closure)) {
+                replaceIfChanged(tmp, file);
+            } else {
+                delete(file);
+                System.err.println("WARN: transitive closure exceeds 2 GB; " + CLOSURE_FILE + " not written");
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static List<InjectReverseLine> reverseShard(Graph graph, String shard) {
+        return graph.injectReverse().getOrDefault(shard, List.of());
+    }
+
+    private String reverseShardName(String shard) {
+        return linesName("inject.reverse." + shard);
+    }
+
+    private String linesName(String stem) {
+        return stem + (compress ? BlockJsonl.SUFFIX : ".jsonl");
+    }
+
+    /**
+     * Writes lines sorted by {@code key} in the configured format and removes the file of the other
+     * format, so switching formats leaves no stale copy behind.
+     */
+    private <T> void writeLines(String name, Iterable<T> lines, String keyField, Function<T, String> key) throws IOException {
+        final Path file = outDir.resolve(name);
+        if (compress) {
+            final Path index = BlockJsonl.indexFile(file);
+            final Path tmp = tmpOf(file);
+            final Path indexTmp = tmpOf(index);
+            try {
+                BlockJsonl.write(tmp, indexTmp, lines, keyField, key, jsonlMapper, jsonMapper);
+                replaceIfChanged(tmp, file);
+                replaceIfChanged(indexTmp, index);
+            } finally {
+                Files.deleteIfExists(tmp);
+                Files.deleteIfExists(indexTmp);
+            }
+            delete(outDir.resolve(name.substring(0, name.length() - BlockJsonl.SUFFIX.length()) + ".jsonl"));
+        } else {
+            writeJsonl(file, lines);
+            final String stem = name.substring(0, name.length() - ".jsonl".length());
+            delete(outDir.resolve(stem + BlockJsonl.SUFFIX));
+            delete(outDir.resolve(stem + BlockJsonl.INDEX_SUFFIX));
+        }
+    }
+
+    private void deleteLines(String stem) throws IOException {
+        delete(outDir.resolve(stem + ".jsonl"));
+        delete(outDir.resolve(stem + BlockJsonl.SUFFIX));
+        delete(outDir.resolve(stem + BlockJsonl.INDEX_SUFFIX));
+    }
+
+    private void writeMasterIndex(Graph graph, String generatedAt) throws IOException {
+        moduleEntries.sort(Comparator.comparing(ModuleIndexEntry::id));
+        moduleSummaries.sort(Comparator.comparing(ModuleSummary::id));
+        int totalTypes = 0;
+        int totalInjects = 0;
+        int totalEjb = 0;
+        for (ModuleSummary ms : moduleSummaries) {
+            totalTypes += ms.types();
+            totalInjects += ms.injects();
+            totalEjb += ms.ejb();
         }
 
         final Summary summary = new Summary(
@@ -75,41 +442,150 @@ public final class GraphWriter {
                 totalInjects,
                 totalEjb,
                 graph.parseWarnings(),
-                moduleSummaries
+                List.copyOf(moduleSummaries)
         );
 
-        // Write global indices
-        writeJson(outDir.resolve("types.index.json"), new TreeMap<>(graph.typeIndex()));
-        writeJson(outDir.resolve("ejb.index.json"), new TreeMap<>(graph.ejbIndex()));
+        final Set<String> shardFiles = new TreeSet<>();
+        for (String typeId : graph.typeIndex().keySet()) {
+            shardFiles.add(TypeIndexShards.fileName(TypeIndexShards.shardOf(typeId)));
+        }
 
         // Master index
         final MasterIndex idx = new MasterIndex(
                 SCHEMA_VERSION,
                 generatedAt,
-                moduleEntries,
+                List.copyOf(moduleEntries),
                 "types.index.json",
                 "ejb.index.json",
+                "types.index.bin",
+                "ejb.index.bin",
+                new ShardedIndex(TypeIndexShards.DIR, TypeIndexShards.PREFIX_DEPTH, List.copyOf(shardFiles)),
+                TYPE_SEARCH_FILE,
+                reverseShardName(Graph.EXTERNAL_SHARD),
+                linesName(REACH_STEM),
+                CLOSURE_FILE,
+                RunMetrics.FILE_NAME,
                 summary
         );
 
-        writeJson(outDir.resolve("index.json"), idx);
+        final Path file = outDir.resolve(INDEX_FILE);
+        final Path tmp = tmpOf(file);
+        try {
+            jsonMapper.writeValue(tmp.toFile(), idx);
+            if (Files.exists(file) && withoutGeneratedAt(tmp).equals(withoutGeneratedAt(file))) {
+                filesUnchanged++;
+            } else {
+                replaceIfChanged(tmp, file);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private JsonNode withoutGeneratedAt(Path file) throws IOException {
+        final JsonNode node = jsonMapper.readTree(file.toFile());
+        if (node instanceof ObjectNode object) {
+            object.remove("generatedAt");
+        }
+        return node;
+    }
+
+    public int moduleCount() {
+        return moduleEntries.size();
+    }
+
+    /**
+     * @return files replaced or created so far
+     */
+    public int filesWritten() {
+        return filesWritten;
+    }
+
+    /**
+     * @return files left untouched so far because their content was already up to date
+     */
+    public int filesUnchanged() {
+        return filesUnchanged;
+    }
+
+    /**
+     * @return stale files deleted so far
+     */
+    public int filesDeleted() {
+        return filesDeleted;
     }
 
     private void writeJson(Path file, Object data) throws IOException {
-        jsonMapper.writeValue(file.toFile(), data);
+        final Path tmp = tmpOf(file);
+        try {
+            jsonMapper.writeValue(tmp.toFile(), data);
+            replaceIfChanged(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
     }
 
-    private <T> void writeJsonl(Path file, List<T> lines) throws IOException {
-        // overwrite each time (simple + deterministic)
-        try (BufferedWriter bw = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+    private void writeBinaryIndex(Path file, Map<String, String> index) throws IOException {
+        final Path tmp = tmpOf(file);
+        try {
+            BinaryIndex.write(tmp, index);
+            replaceIfChanged(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
 
-            for (T line : lines) {
-                final String json = jsonlMapper.writeValueAsString(line);
-                bw.write(json);
-                bw.newLine();
+    private void writeTypeSearch(Map<String, String> typeIndex) throws IOException {
+        final Path file = outDir.resolve(TYPE_SEARCH_FILE);
+        final Path tmp = tmpOf(file);
+        try {
+            if (TypeSearchIndex.write(tmp, typeIndex.keySet())) {
+                replaceIfChanged(tmp, file);
+            } else {
+                delete(file);
+                System.err.println("WARN: type search index exceeds 2 GB; " + TYPE_SEARCH_FILE + " not written");
             }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // package-private for benchmarks
+    <T> void writeJsonl(Path file, Iterable<T> lines) throws IOException {
+        final Path tmp = tmpOf(file);
+        try {
+            try (LineWriter out = new LineWriter(jsonlMapper, Files.newOutputStream(tmp))) {
+                for (T line : lines) {
+                    out.write(line);
+                }
+            }
+            replaceIfChanged(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Moves {@code tmp} over {@code file}, unless {@code file} already holds the same bytes; then
+     * {@code file} is left alone (mtime included) and {@code tmp} is discarded by the caller.
+     */
+    private void replaceIfChanged(Path tmp, Path file) throws IOException {
+        if (Files.exists(file) && Files.mismatch(tmp, file) == -1L) {
+            filesUnchanged++;
+            return;
         }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        filesWritten++;
+    }
+
+    private void delete(Path file) throws IOException {
+        if (Files.deleteIfExists(file)) {
+            filesDeleted++;
+        }
+    }
+
+    private static Path tmpOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
     }
 
     // --- index records (written as JSON, not JSONL) ---
@@ -120,15 +596,34 @@ public final class GraphWriter {
             List<ModuleIndexEntry> modules,
             String typeIndex,
             String ejbIndex,
+            String typeIndexBin,
+            String ejbIndexBin,
+            ShardedIndex typeIndexShards,
+            String typeSearch,
+            String injectReverseExternal,
+            String injectReach,
+            String injectClosure,
+            String metrics,
             Summary summary
     ) {
     }
 
+    /**
+     * The type index split into {@code dir/<shard>.json} files; see {@link TypeIndexShards} for the shard rule.
+     */
+    public record ShardedIndex(
+            String dir,
+            int prefixDepth,
+            List<String> shards
+    ) {
+    }
+
     public record ModuleIndexEntry(
             String id,
             String types,
             String inject,
-            String ejb
+            String ejb,
+            String injectReverse
     ) {
     }
 
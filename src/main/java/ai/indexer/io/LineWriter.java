@@ -0,0 +1,112 @@
+package ai.indexer.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import ai.indexer.model.EjbBindingLine;
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.TypeLine;
+
+/**
+ * Writes JSONL records through one reused {@link JsonGenerator} straight into UTF-8 bytes.
+ * {@link TypeLine}, {@link InjectLine} and {@link EjbBindingLine} are written field by field, without
+ * reflection or a String per line; other records go through the mapper. The bytes are identical to
+ * {@code mapper.writeValueAsString(line)} followed by {@link System#lineSeparator()}.
+ */
+final class LineWriter implements Closeable {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final JsonGenerator gen;
+    private final ObjectWriter fallback;
+
+    LineWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+        this.gen = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        this.gen.setRootValueSeparator(null); // lines are separated by NEWLINE only
+        this.fallback = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    void write(Object line) throws IOException {
+        if (line instanceof TypeLine t) {
+            writeType(t);
+        } else if (line instanceof InjectLine i) {
+            writeInject(i);
+        } else if (line instanceof EjbBindingLine e) {
+            writeEjb(e);
+        } else {
+            fallback.writeValue(gen, line);
+        }
+        gen.writeRaw(NEWLINE);
+    }
+
+    /**
+     * @return bytes not yet handed to the output stream
+     */
+    int buffered() {
+        return gen.getOutputBuffered();
+    }
+
+    void flush() throws IOException {
+        gen.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        gen.close();
+    }
+
+    private void writeType(TypeLine t) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", t.id());
+        gen.writeStringField("kind", t.kind());
+        gen.writeStringField("file", t.file());
+        writeList("implementsIds", t.implementsIds());
+        writeList("extendsIds", t.extendsIds());
+        gen.writeStringField("ejb", t.ejb());
+        writeList("ejbLocal", t.ejbLocal());
+        writeList("ejbRemote", t.ejbRemote());
+        writeList("injects", t.injects());
+        writeList("injectMembers", t.injectMembers());
+        gen.writeEndObject();
+    }
+
+    private void writeInject(InjectLine i) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("from", i.from());
+        gen.writeStringField("memberKind", i.memberKind());
+        gen.writeStringField("member", i.member());
+        gen.writeStringField("type", i.type());
+        gen.writeStringField("via", i.via() != null ? i.via().name() : null);
+        gen.writeEndObject();
+    }
+
+    private void writeEjb(EjbBindingLine e) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("iface", e.iface());
+        gen.writeBooleanField("local", e.local());
+        gen.writeBooleanField("remote", e.remote());
+        writeList("impls", e.impls());
+        gen.writeEndObject();
+    }
+
+    private void writeList(String name, List<String> values) throws IOException {
+        gen.writeFieldName(name);
+        if (values == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,61 @@
+package ai.indexer.io;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits the global type index ({@code typeId -> moduleId}) into small per-package-prefix JSON files
+ * under {@link #DIR}, so a reader loads only the shard of the type it looks up.
+ * <p>
+ * A type's shard is the first {@link #PREFIX_DEPTH} dot-separated segments of its FQCN, minus the
+ * simple name ({@code t:com.acme.billing.impl.BillingBean -> com.acme.billing}); shallower FQCNs
+ * use everything but the last segment, and FQCNs without a package use {@link #DEFAULT_SHARD}. The
+ * rule depends only on the FQCN, so shard boundaries never move between runs.
+ */
+public final class TypeIndexShards {
+
+    public static final String DIR = "types.index";
+    public static final int PREFIX_DEPTH = 3;
+    public static final String DEFAULT_SHARD = "_default";
+
+    private TypeIndexShards() {
+    }
+
+    /**
+     * @return shard name of {@code typeId} ("t:" prefix optional)
+     */
+    public static String shardOf(String typeId) {
+        final String fqcn = typeId.startsWith("t:") ? typeId.substring(2) : typeId;
+        final int lastDot = fqcn.lastIndexOf('.');
+        if (lastDot < 0) {
+            return DEFAULT_SHARD;
+        }
+        int end = -1;
+        for (int i = 0; i < PREFIX_DEPTH; i++) {
+            final int dot = fqcn.indexOf('.', end + 1);
+            if (dot < 0 || dot > lastDot) {
+                break;
+            }
+            end = dot;
+        }
+        return fqcn.substring(0, end);
+    }
+
+    /**
+     * @return file name of a shard inside {@link #DIR}
+     */
+    public static String fileName(String shard) {
+        return shard + ".json";
+    }
+
+    /**
+     * @return the index grouped by shard, both levels sorted
+     */
+    public static Map<String, Map<String, String>> split(Map<String, String> typeIndex) {
+        final Map<String, Map<String, String>> shards = new TreeMap<>();
+        for (var e : typeIndex.entrySet()) {
+            shards.computeIfAbsent(shardOf(e.getKey()), k -> new TreeMap<>()).put(e.getKey(), e.getValue());
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,1023 @@
+package ai.indexer.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import ai.indexer.model.Ids;
+
+/**
+ * Memory-mappable name search over the indexed types, for autocompletion: prefix matches on simple
+ * names, camel-case humps ({@code OrdSvcImpl}, {@code OSI}), package and outer-type segments,
+ * globs ({@code *Repository}) and trigram similarity for typos.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int magic, int version, int typeCount, int termCount, int gramCount, int namesLength, int keysLength,
+ *   int postingCount
+ *   typeCount x (int nameOffset, int nameLength)                         FQCNs sorted by unsigned byte order
+ *   termCount x (int keyOffset, int keyLength, int postingsStart, int postingsCount)   keys sorted
+ *   gramCount x (int keyOffset, int keyLength, int postingsStart, int postingsCount)   keys sorted
+ *   UTF-8 FQCN bytes
+ *   UTF-8 key bytes (terms, then trigrams)
+ *   postingCount x int
+ * </pre>
+ * Terms are lowercase: the simple name, its suffixes from each later camel hump, the hump initials from
+ * each hump on, and the other FQCN segments. Their postings are {@code ordinal << 2 | kind}, ordered by
+ * FQCN length so that the best matches come first. Trigrams are taken from the lowercase simple name
+ * padded with {@code ^} and {@code $}; their postings are plain ordinals.
+ * <p>
+ * A search binary-searches the mapped tables and decodes only the names it ranks, so nothing is loaded
+ * on open. Safe for concurrent readers.
+ */
+public final class TypeSearchIndex {
+
+    private static final int MAGIC = 0x41495453; // "AITS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int TYPE_BYTES = 8;
+    private static final int ENTRY_BYTES = 16;
+
+    private static final int NAME = 0;
+    private static final int HUMP = 1;
+    private static final int INITIALS = 2;
+    private static final int SEGMENT = 3;
+
+    private static final int MAX_SCORE = 2047;
+    private static final int GLOB_SCORE = 900;
+    private static final int CAMEL_SCORE = 550;
+    private static final int FUZZY_SCORE = 250;
+    private static final double MIN_SIMILARITY = 0.4;
+    /** Postings read per prefix search and per term; bounds one- and two-letter queries. */
+    private static final int MAX_CANDIDATES = 1 << 14;
+    private static final int MAX_TERM_POSTINGS = 512;
+    /** Trigrams more common than this say little about similarity and do not nominate candidates. */
+    private static final int MAX_GRAM_POSTINGS = 4096;
+    private static final int MAX_FUZZY_CANDIDATES = 256;
+    /** Distinct term prefixes compared when matching partial queries with a typo. */
+    private static final int MAX_FUZZY_TERMS = 4096;
+
+    private final ByteBuffer buf;
+    private final int typeCount;
+    private final int termCount;
+    private final int gramCount;
+    private final int termsOffset;
+    private final int gramsOffset;
+    private final int namesOffset;
+    private final int keysOffset;
+    private final int postingsOffset;
+
+    private TypeSearchIndex(ByteBuffer buf) {
+        this.buf = buf;
+        this.typeCount = buf.getInt(8);
+        this.termCount = buf.getInt(12);
+        this.gramCount = buf.getInt(16);
+        this.termsOffset = HEADER_BYTES + typeCount * TYPE_BYTES;
+        this.gramsOffset = termsOffset + termCount * ENTRY_BYTES;
+        this.namesOffset = gramsOffset + gramCount * ENTRY_BYTES;
+        this.keysOffset = namesOffset + buf.getInt(20);
+        this.postingsOffset = keysOffset + buf.getInt(24);
+    }
+
+    /**
+     * Writes the search index over {@code typeIds} ({@code t:<fqcn>}) to {@code file} in place;
+     * {@link GraphWriter} writes a temp file and moves it.
+     *
+     * @return false, writing nothing, if the file would exceed 2 GB (one mapping)
+     */
+    public static boolean write(Path file, Collection<String> typeIds) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(typeIds, "typeIds");
+
+        final List<byte[]> names = new ArrayList<>(typeIds.size());
+        for (String id : typeIds) {
+            names.add((id.startsWith("t:") ? id.substring(2) : id).getBytes(StandardCharsets.UTF_8));
+        }
+        names.sort(Arrays::compareUnsigned);
+
+        final Map<String, Postings> terms = new HashMap<>();
+        final Map<String, Postings> grams = new HashMap<>();
+        long namesLength = 0;
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            final byte[] name = names.get(ordinal);
+            namesLength += name.length;
+            final String fqcn = new String(name, StandardCharsets.UTF_8);
+            for (var e : termsOf(fqcn).entrySet()) {
+                terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(ordinal << 2 | e.getValue());
+            }
+            for (String gram : trigrams(lower(Ids.simpleNameOfFqcn(fqcn)))) {
+                grams.computeIfAbsent(gram, k -> new Postings()).add(ordinal);
+            }
+        }
+        final List<Entry> termEntries = entries(terms, names);
+        final List<Entry> gramEntries = entries(grams, null);
+
+        long keysLength = 0;
+        long postingCount = 0;
+        for (List<Entry> entries : List.of(termEntries, gramEntries)) {
+            for (Entry entry : entries) {
+                keysLength += entry.key().length;
+                postingCount += entry.postings().length;
+            }
+        }
+        final long total = HEADER_BYTES + (long) names.size() * TYPE_BYTES
+                + (long) (termEntries.size() + gramEntries.size()) * ENTRY_BYTES + namesLength + keysLength + postingCount * 4;
+        if (total > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(names.size());
+            out.writeInt(termEntries.size());
+            out.writeInt(gramEntries.size());
+            out.writeInt((int) namesLength);
+            out.writeInt((int) keysLength);
+            out.writeInt((int) postingCount);
+            int offset = 0;
+            for (byte[] name : names) {
+                out.writeInt(offset);
+                out.writeInt(name.length);
+                offset += name.length;
+            }
+            int keyOffset = 0;
+            int postingsStart = 0;
+            for (List<Entry> entries : List.of(termEntries, gramEntries)) {
+                for (Entry entry : entries) {
+                    out.writeInt(keyOffset);
+                    out.writeInt(entry.key().length);
+                    out.writeInt(postingsStart);
+                    out.writeInt(entry.postings().length);
+                    keyOffset += entry.key().length;
+                    postingsStart += entry.postings().length;
+                }
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            for (List<Entry> entries : List.of(termEntries, gramEntries)) {
+                for (Entry entry : entries) {
+                    out.write(entry.key());
+                }
+            }
+            final ByteBuffer postings = ByteBuffer.allocate((int) postingCount * 4);
+            for (List<Entry> entries : List.of(termEntries, gramEntries)) {
+                for (Entry entry : entries) {
+                    postings.asIntBuffer().put(entry.postings());
+                    postings.position(postings.position() + entry.postings().length * 4);
+                }
+            }
+            out.write(postings.array());
+        }
+        return true;
+    }
+
+    /**
+     * @return the search terms of one type and their kind; a term reached several ways keeps the best kind
+     */
+    private static Map<String, Integer> termsOf(String fqcn) {
+        final Map<String, Integer> terms = new LinkedHashMap<>();
+        final String simple = Ids.simpleNameOfFqcn(fqcn);
+        final String lower = lower(simple);
+        terms.put(lower, NAME);
+        final int[] humps = humps(simple);
+        for (int h = 2; h < humps.length; h += 2) {
+            terms.putIfAbsent(lower.substring(humps[h]), HUMP);
+        }
+        if (humps.length >= 4) {
+            final String initials = initials(lower, humps);
+            for (int i = 0; i + 2 <= initials.length(); i++) {
+                terms.putIfAbsent(initials.substring(i), INITIALS);
+            }
+        }
+        final int end = fqcn.length() - simple.length() - 1;
+        if (end > 0) {
+            for (String segment : lower(fqcn.substring(0, end)).split("\\.")) {
+                if (!segment.isEmpty()) {
+                    terms.putIfAbsent(segment, SEGMENT);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * @param names FQCN bytes by ordinal to order postings by name length, or null to keep ordinal order
+     */
+    private static List<Entry> entries(Map<String, Postings> postings, List<byte[]> names) {
+        final List<Entry> entries = new ArrayList<>(postings.size());
+        for (var e : postings.entrySet()) {
+            final int[] values = e.getValue().toArray();
+            if (names != null) {
+                final long[] ranked = new long[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    ranked[i] = (long) names.get(values[i] >>> 2).length << 32 | values[i];
+                }
+                Arrays.sort(ranked);
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = (int) ranked[i];
+                }
+            }
+            entries.add(new Entry(e.getKey().getBytes(StandardCharsets.UTF_8), values));
+        }
+        entries.sort((a, b) -> Arrays.compareUnsigned(a.key(), b.key()));
+        return entries;
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping stays valid after this method returns.
+     */
+    public static TypeSearchIndex open(Path file) throws IOException {
+        final MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Type search index too large: " + file);
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a type search index (or unsupported version): " + file);
+        }
+        final TypeSearchIndex index = new TypeSearchIndex(buf);
+        if ((long) index.postingsOffset + (long) buf.getInt(28) * 4 != buf.capacity()) {
+            throw new IOException("Truncated type search index: " + file);
+        }
+        return index;
+    }
+
+    /**
+     * Finds types by name, best first: exact simple name, name prefix, camel-hump suffix
+     * ({@code Service} for {@code OrderService}), camel-case abbreviation ({@code OrdSer}, {@code OS},
+     * {@code os}), package or outer-type segment, then names that share most trigrams with the query.
+     * Ties go to the shorter FQCN. Matching ignores case.
+     * <p>
+     * Segments before the last dot narrow the result: each must start a package or outer-type segment
+     * of the FQCN, in order ({@code billing.Order}, {@code acme.svc.*Bean}). A name containing {@code *}
+     * or {@code ?} is a glob over the simple name.
+     *
+     * @param query a name, an abbreviation or a glob, optionally qualified or prefixed with {@code t:}
+     * @return up to {@code k} type IDs ({@code t:<fqcn>})
+     */
+    public List<String> search(String query, int k) {
+        Objects.requireNonNull(query, "query");
+        String q = query.strip();
+        if (q.startsWith("t:")) {
+            q = q.substring(2);
+        }
+        final int dot = q.lastIndexOf('.');
+        final String name = q.substring(dot + 1);
+        if (k <= 0 || name.isEmpty()) {
+            return List.of();
+        }
+        final List<String> qualifiers = new ArrayList<>();
+        if (dot > 0) {
+            for (String part : lower(q.substring(0, dot)).split("\\.")) {
+                if (!part.isEmpty()) {
+                    qualifiers.add(part);
+                }
+            }
+        }
+
+        final Scores found = new Scores();
+        final String lower = lower(name);
+        if (name.indexOf('*') >= 0 || name.indexOf('?') >= 0) {
+            globMatches(lower, found);
+        } else {
+            prefixMatches(lower, found);
+            final int[] humps = queryHumps(name);
+            if (humps.length >= 4) {
+                camelMatches(name, humps, found);
+            }
+            if ((found.size() < k || !qualifiers.isEmpty()) && lower.length() >= 3) {
+                fuzzyMatches(lower, found);
+            }
+        }
+        return top(found, qualifiers, k);
+    }
+
+    public int size() {
+        return typeCount;
+    }
+
+    private void prefixMatches(String lower, Scores found) {
+        final byte[] prefix = lower.getBytes(StandardCharsets.UTF_8);
+        int visited = 0;
+        for (int t = lowerBound(termsOffset, termCount, prefix); t < termCount && visited < MAX_CANDIDATES; t++) {
+            final int e = termsOffset + t * ENTRY_BYTES;
+            if (!startsWith(e, prefix)) {
+                break;
+            }
+            final int extra = Math.min(buf.getInt(e + 4) - prefix.length, 99);
+            final int start = postingsOffset + buf.getInt(e + 8) * 4;
+            final int n = Math.min(buf.getInt(e + 12), MAX_TERM_POSTINGS);
+            for (int i = 0; i < n; i++) {
+                final int posting = buf.getInt(start + i * 4);
+                found.offer(posting >>> 2, score(posting & 3, extra));
+            }
+            visited += n;
+        }
+    }
+
+    private static int score(int kind, int extra) {
+        return switch (kind) {
+            case NAME -> extra == 0 ? 1000 : 800 - extra;
+            case HUMP -> extra == 0 ? 700 : 600 - extra;
+            case INITIALS -> extra == 0 ? 520 : 450 - extra;
+            default -> extra == 0 ? 350 : 300 - extra;
+        };
+    }
+
+    /**
+     * Looks up the query's hump initials, then checks its humps against consecutive humps of each
+     * candidate: each must start the type's hump ({@code Ord} of {@code Order}), or at least be a
+     * subsequence of it ({@code Svc} of {@code Service}), which ranks lower.
+     */
+    private void camelMatches(String name, int[] queryHumps, Scores found) {
+        final String lowerName = lower(name);
+        final byte[] prefix = initials(lowerName, queryHumps).getBytes(StandardCharsets.UTF_8);
+        int visited = 0;
+        for (int t = lowerBound(termsOffset, termCount, prefix); t < termCount && visited < MAX_CANDIDATES; t++) {
+            final int e = termsOffset + t * ENTRY_BYTES;
+            if (!startsWith(e, prefix)) {
+                break;
+            }
+            final int start = postingsOffset + buf.getInt(e + 8) * 4;
+            final int n = Math.min(buf.getInt(e + 12), MAX_TERM_POSTINGS);
+            for (int i = 0; i < n; i++) {
+                final int posting = buf.getInt(start + i * 4);
+                if ((posting & 3) != INITIALS) {
+                    continue;
+                }
+                final String simple = simpleName(posting >>> 2);
+                final int match = humpMatch(lower(simple), humps(simple), lowerName, queryHumps);
+                if (match > 0) {
+                    final int extra = Math.min(Math.max(simple.length() - name.length(), 0), 99);
+                    found.offer(posting >>> 2, CAMEL_SCORE - (match == 2 ? 0 : 50) - extra);
+                }
+            }
+            visited += n;
+        }
+    }
+
+    /**
+     * @return 2 if every query hump starts consecutive type humps, 1 if some are only subsequences, else 0
+     */
+    private static int humpMatch(String type, int[] typeHumps, String query, int[] queryHumps) {
+        int best = 0;
+        for (int j = 0; j + queryHumps.length <= typeHumps.length && best < 2; j += 2) {
+            int match = 2;
+            for (int i = 0; i < queryHumps.length && match > 0; i += 2) {
+                final String q = query.substring(queryHumps[i], queryHumps[i + 1]);
+                final String h = type.substring(typeHumps[j + i], typeHumps[j + i + 1]);
+                if (!h.startsWith(q)) {
+                    match = isSubsequence(q, h) ? 1 : 0;
+                }
+            }
+            best = Math.max(best, match);
+        }
+        return best;
+    }
+
+    private static boolean isSubsequence(String q, String s) {
+        if (q.isEmpty() || s.isEmpty() || q.charAt(0) != s.charAt(0)) {
+            return false;
+        }
+        int i = 0;
+        for (int j = 0; j < s.length() && i < q.length(); j++) {
+            if (s.charAt(j) == q.charAt(i)) {
+                i++;
+            }
+        }
+        return i == q.length();
+    }
+
+    /**
+     * Scores names by the Dice coefficient of their trigram sets with the query's, or by the edit
+     * distance of the query to the name's prefix of query length if that is better, so a partial query
+     * with a typo ({@code Ordr}) still finds the names it starts ({@code OrderService}). Candidates are
+     * the names sharing the most of the query's less common trigrams, plus the names and hump suffixes
+     * found by {@link #prefixTypoMatches}.
+     */
+    private void fuzzyMatches(String lower, Scores found) {
+        final Set<String> grams = trigrams(lower);
+        final Scores shared = new Scores();
+        for (String gram : grams) {
+            final int g = find(gramsOffset, gramCount, gram.getBytes(StandardCharsets.UTF_8));
+            if (g < 0 || postingCount(gramsOffset, g) > MAX_GRAM_POSTINGS) {
+                continue;
+            }
+            final int e = gramsOffset + g * ENTRY_BYTES;
+            final int start = postingsOffset + buf.getInt(e + 8) * 4;
+            for (int i = 0, n = buf.getInt(e + 12); i < n; i++) {
+                shared.add(buf.getInt(start + i * 4));
+            }
+        }
+        final long[] queryGrams = gramCodes("^" + lower + "$");
+        final byte[] query = lower.getBytes(StandardCharsets.UTF_8);
+        final PrefixDistance distance = new PrefixDistance(query);
+        // lowest shared count that keeps at most MAX_FUZZY_CANDIDATES, but always the best ones
+        final int[] histogram = new int[grams.size() + 1];
+        for (int slot = 0; slot < shared.keys.length; slot++) {
+            if (shared.keys[slot] != 0) {
+                histogram[shared.values[slot]]++;
+            }
+        }
+        int threshold = grams.size();
+        for (int kept = histogram[threshold]; threshold > 1 && kept + histogram[threshold - 1] <= MAX_FUZZY_CANDIDATES; ) {
+            kept += histogram[--threshold];
+        }
+        for (int slot = 0; slot < shared.keys.length; slot++) {
+            if (shared.keys[slot] == 0 || shared.values[slot] < threshold) {
+                continue;
+            }
+            final int ordinal = shared.keys[slot] - 1;
+            final String name = lower(simpleName(ordinal));
+            final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            final int edits = distance.of(key, Math.min(key.length, query.length + 1));
+            final double similarity = Math.max(dice(queryGrams, gramCodes("^" + name + "$")),
+                    edits > distance.max ? 0 : 1.0 - (double) edits / query.length);
+            if (similarity >= MIN_SIMILARITY) {
+                found.offer(ordinal, (int) (FUZZY_SCORE * similarity));
+            }
+        }
+        if (lower.length() >= 4) {
+            prefixTypoMatches(lower, found);
+        }
+    }
+
+    /**
+     * Walks the terms starting with the query's first letter in key order, like a trie: distance rows
+     * for a shared key prefix are reused, and once a prefix needs more edits than allowed, every term
+     * sharing it is skipped with one binary search. Simple names and hump suffixes within the allowed
+     * edits are scored by {@code 1 - edits / query length}.
+     */
+    private void prefixTypoMatches(String lower, Scores found) {
+        final byte[] query = lower.getBytes(StandardCharsets.UTF_8);
+        final PrefixDistance distance = new PrefixDistance(query);
+        final byte[] first = {query[0]};
+        final byte[] key = new byte[query.length + 1];
+        final byte[] previous = new byte[key.length];
+        int previousLength = 0;
+        int visited = 0;
+        for (int t = lowerBound(termsOffset, termCount, first); t < termCount && visited < MAX_FUZZY_TERMS; t++) {
+            final int e = termsOffset + t * ENTRY_BYTES;
+            if (!startsWith(e, first)) {
+                break;
+            }
+            final int n = Math.min(buf.getInt(e + 4), key.length);
+            buf.get(keysOffset + buf.getInt(e), key, 0, n);
+            // terms differing only past the compared bytes, like Order0Entity and Order1Entity, count once
+            if (!Arrays.equals(key, 0, n, previous, 0, previousLength)) {
+                System.arraycopy(key, 0, previous, 0, n);
+                previousLength = n;
+                visited++;
+            }
+            final int edits = distance.of(key, n);
+            if (edits > distance.max) {
+                if (distance.deadRow() > 0) {
+                    final byte[] next = successor(key, distance.deadRow());
+                    t = next == null ? termCount : lowerBound(termsOffset, termCount, next) - 1;
+                }
+                continue;
+            }
+            final int score = (int) (FUZZY_SCORE * (1.0 - (double) edits / query.length));
+            final int postings = postingsOffset + buf.getInt(e + 8) * 4;
+            for (int i = 0, count = Math.min(buf.getInt(e + 12), MAX_TERM_POSTINGS); i < count; i++) {
+                final int posting = buf.getInt(postings + i * 4);
+                if ((posting & 3) == NAME || (posting & 3) == HUMP) {
+                    found.offer(posting >>> 2, score - ((posting & 3) == HUMP ? 50 : 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the smallest key greater than every key starting with {@code key[0..length)}, or
+     * {@code null} if there is none
+     */
+    private static byte[] successor(byte[] key, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (key[i] != (byte) 0xFF) {
+                final byte[] next = Arrays.copyOf(key, i + 1);
+                next[i]++;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private static double dice(long[] a, long[] b) {
+        return a.length + b.length == 0 ? 0 : 2.0 * common(a, b) / (a.length + b.length);
+    }
+
+    /**
+     * Candidates come from the rarest trigram of the glob's literal runs (anchored with {@code ^} and
+     * {@code $} like the indexed names), else from simple names starting with the literal prefix,
+     * else from all types; each is checked against the glob.
+     */
+    private void globMatches(String glob, Scores found) {
+        int rarest = -1;
+        for (String literal : ("^" + glob + "$").split("[*?]")) {
+            for (int i = 0; i + 3 <= literal.length(); i++) {
+                final int g = find(gramsOffset, gramCount, literal.substring(i, i + 3).getBytes(StandardCharsets.UTF_8));
+                if (g < 0) {
+                    return;
+                }
+                if (rarest < 0 || postingCount(gramsOffset, g) < postingCount(gramsOffset, rarest)) {
+                    rarest = g;
+                }
+            }
+        }
+        final int first = Math.min(glob.indexOf('*') & Integer.MAX_VALUE, glob.indexOf('?') & Integer.MAX_VALUE);
+        if (rarest >= 0) {
+            final int e = gramsOffset + rarest * ENTRY_BYTES;
+            final int start = postingsOffset + buf.getInt(e + 8) * 4;
+            for (int i = 0, n = buf.getInt(e + 12); i < n; i++) {
+                globMatch(glob, buf.getInt(start + i * 4), found);
+            }
+        } else if (first > 0) {
+            final byte[] prefix = glob.substring(0, first).getBytes(StandardCharsets.UTF_8);
+            for (int t = lowerBound(termsOffset, termCount, prefix); t < termCount; t++) {
+                final int e = termsOffset + t * ENTRY_BYTES;
+                if (!startsWith(e, prefix)) {
+                    break;
+                }
+                final int start = postingsOffset + buf.getInt(e + 8) * 4;
+                for (int i = 0, n = buf.getInt(e + 12); i < n; i++) {
+                    final int posting = buf.getInt(start + i * 4);
+                    if ((posting & 3) == NAME) {
+                        globMatch(glob, posting >>> 2, found);
+                    }
+                }
+            }
+        } else {
+            for (int ordinal = 0; ordinal < typeCount; ordinal++) {
+                globMatch(glob, ordinal, found);
+            }
+        }
+    }
+
+    private void globMatch(String glob, int ordinal, Scores found) {
+        if (matchesGlob(glob, lower(simpleName(ordinal)))) {
+            found.offer(ordinal, GLOB_SCORE);
+        }
+    }
+
+    private static boolean matchesGlob(String glob, String s) {
+        int g = 0;
+        int i = 0;
+        int star = -1;
+        int mark = 0;
+        while (i < s.length()) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == s.charAt(i))) {
+                g++;
+                i++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                star = g++;
+                mark = i;
+            } else if (star >= 0) {
+                g = star + 1;
+                i = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    /**
+     * Keeps the {@code k} best candidates whose FQCN passes the qualifiers: highest score, then
+     * shortest FQCN, then FQCN order.
+     */
+    private List<String> top(Scores found, List<String> qualifiers, int k) {
+        final long[] heap = new long[Math.min(k, found.size())];
+        int size = 0;
+        for (int slot = 0; slot < found.keys.length; slot++) {
+            if (found.keys[slot] == 0) {
+                continue;
+            }
+            final int ordinal = found.keys[slot] - 1;
+            if (!qualifiers.isEmpty() && !matchesQualifiers(lower(fqcn(ordinal)), qualifiers)) {
+                continue;
+            }
+            final int length = Math.min(buf.getInt(HEADER_BYTES + ordinal * TYPE_BYTES + 4), 0xFFFF);
+            final long key = (long) (MAX_SCORE - Math.min(found.values[slot], MAX_SCORE)) << 46 | (long) length << 30 | ordinal;
+            if (size < heap.length) {
+                heap[size++] = key;
+                siftUp(heap, size - 1);
+            } else if (size > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        final List<String> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(Ids.typeId(fqcn((int) (heap[i] & ((1 << 30) - 1)))));
+        }
+        return out;
+    }
+
+    private static boolean matchesQualifiers(String fqcn, List<String> qualifiers) {
+        final String[] segments = fqcn.split("\\.");
+        int q = 0;
+        for (int s = 0; s < segments.length - 1 && q < qualifiers.size(); s++) {
+            if (segments[s].startsWith(qualifiers.get(q))) {
+                q++;
+            }
+        }
+        return q == qualifiers.size();
+    }
+
+    // max-heap, so the worst kept key is at the root
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0 && heap[(i - 1) / 2] < heap[i]) {
+            swap(heap, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            final int l = 2 * i + 1;
+            final int r = l + 1;
+            int largest = i;
+            if (l < size && heap[l] > heap[largest]) {
+                largest = l;
+            }
+            if (r < size && heap[r] > heap[largest]) {
+                largest = r;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(heap, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        final long t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+    }
+
+    private String fqcn(int ordinal) {
+        final int e = HEADER_BYTES + ordinal * TYPE_BYTES;
+        final byte[] b = new byte[buf.getInt(e + 4)];
+        buf.get(namesOffset + buf.getInt(e), b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private String simpleName(int ordinal) {
+        final int e = HEADER_BYTES + ordinal * TYPE_BYTES;
+        final int off = namesOffset + buf.getInt(e);
+        final int len = buf.getInt(e + 4);
+        int i = len;
+        while (i > 0 && buf.get(off + i - 1) != '.') {
+            i--;
+        }
+        final byte[] b = new byte[len - i];
+        buf.get(off + i, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private int postingCount(int tableOffset, int entry) {
+        return buf.getInt(tableOffset + entry * ENTRY_BYTES + 12);
+    }
+
+    /**
+     * @return the first entry whose key is not less than {@code needle}
+     */
+    private int lowerBound(int tableOffset, int count, byte[] needle) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (compareKey(tableOffset + mid * ENTRY_BYTES, needle) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int find(int tableOffset, int count, byte[] key) {
+        final int i = lowerBound(tableOffset, count, key);
+        return i < count && compareKey(tableOffset + i * ENTRY_BYTES, key) == 0 ? i : -1;
+    }
+
+    private int compareKey(int entry, byte[] needle) {
+        final int off = keysOffset + buf.getInt(entry);
+        final int len = buf.getInt(entry + 4);
+        final int n = Math.min(len, needle.length);
+        for (int i = 0; i < n; i++) {
+            final int c = Byte.compareUnsigned(buf.get(off + i), needle[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(len, needle.length);
+    }
+
+    private boolean startsWith(int entry, byte[] prefix) {
+        if (buf.getInt(entry + 4) < prefix.length) {
+            return false;
+        }
+        final int off = keysOffset + buf.getInt(entry);
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.get(off + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- names ---
+
+    /**
+     * Splits a name into camel humps: a hump starts after a lower-case letter or digit, at the last
+     * capital of a run of capitals followed by a lower-case letter ({@code HTTPServer}), and after
+     * {@code _} or {@code $}, which belong to no hump. Digits continue the current hump.
+     *
+     * @return {@code [start0, end0, start1, end1, ...]}
+     */
+    static int[] humps(String name) {
+        final int[] bounds = new int[name.length() * 2];
+        int n = 0;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c == '_' || c == '$') {
+                if (n % 2 == 1) {
+                    bounds[n++] = i;
+                }
+                continue;
+            }
+            if (n % 2 == 0) {
+                bounds[n++] = i;
+            } else if (Character.isUpperCase(c) && isHumpStart(name, i)) {
+                bounds[n++] = i;
+                bounds[n++] = i;
+            }
+        }
+        if (n % 2 == 1) {
+            bounds[n++] = name.length();
+        }
+        return Arrays.copyOf(bounds, n);
+    }
+
+    private static boolean isHumpStart(String name, int i) {
+        final char prev = name.charAt(i - 1);
+        if (!Character.isUpperCase(prev)) {
+            return true;
+        }
+        return i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1));
+    }
+
+    /**
+     * Like {@link #humps}, but an all-capitals query such as {@code OSI} is read as one hump per letter.
+     */
+    private static int[] queryHumps(String name) {
+        if (name.length() < 2 || !name.chars().allMatch(Character::isUpperCase)) {
+            return humps(name);
+        }
+        final int[] bounds = new int[name.length() * 2];
+        for (int i = 0; i < name.length(); i++) {
+            bounds[2 * i] = i;
+            bounds[2 * i + 1] = i + 1;
+        }
+        return bounds;
+    }
+
+    private static String initials(String lower, int[] humps) {
+        final StringBuilder sb = new StringBuilder(humps.length / 2);
+        for (int h = 0; h < humps.length; h += 2) {
+            sb.append(lower.charAt(humps[h]));
+        }
+        return sb.toString();
+    }
+
+    private static Set<String> trigrams(String lower) {
+        final String padded = "^" + lower + "$";
+        final Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * @return the distinct trigrams of an already padded lowercase name, packed into sorted longs
+     */
+    private static long[] gramCodes(String padded) {
+        final long[] codes = new long[Math.max(padded.length() - 2, 0)];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        Arrays.sort(codes);
+        int n = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (n == 0 || codes[n - 1] != codes[i]) {
+                codes[n++] = codes[i];
+            }
+        }
+        return Arrays.copyOf(codes, n);
+    }
+
+    private static int common(long[] a, long[] b) {
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                n++;
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(byte[] key, int[] postings) {
+    }
+
+    /**
+     * Edit distance, counting an adjacent transposition as one edit, between a query and the prefixes
+     * of a key one shorter than, as long as and one longer than the query; one edit is allowed from four
+     * bytes. Row {@code r} holds the distances of the key's first {@code r} bytes to each query prefix, so
+     * consecutive keys only recompute the rows past their common prefix.
+     */
+    private static final class PrefixDistance {
+        final int max;
+        private final byte[] query;
+        private final int[][] rows;
+        private final byte[] key;
+        private int computed;
+        private int dead = -1;
+
+        PrefixDistance(byte[] query) {
+            this.query = query;
+            this.max = query.length >= 4 ? 1 : 0;
+            this.rows = new int[query.length + 2][query.length + 1];
+            this.key = new byte[query.length + 1];
+            for (int i = 0; i <= query.length; i++) {
+                rows[0][i] = i;
+            }
+        }
+
+        /**
+         * @param next the key's first {@code length} bytes, at most one more than the query's
+         * @return the smallest distance, or {@code max + 1}
+         */
+        int of(byte[] next, int length) {
+            int common = 0;
+            while (common < Math.min(computed, length) && key[common] == next[common]) {
+                common++;
+            }
+            computed = common;
+            if (dead > common) {
+                dead = -1;
+            }
+            if (dead > 0) {
+                return max + 1;
+            }
+            for (int r = common + 1; r <= length; r++) {
+                key[r - 1] = next[r - 1];
+                final int[] row = rows[r];
+                row[0] = r;
+                int rowMin = r;
+                for (int i = 1; i <= query.length; i++) {
+                    int d = Math.min(Math.min(rows[r - 1][i] + 1, row[i - 1] + 1),
+                            rows[r - 1][i - 1] + (query[i - 1] == key[r - 1] ? 0 : 1));
+                    if (r > 1 && i > 1 && query[i - 1] == key[r - 2] && query[i - 2] == key[r - 1]) {
+                        d = Math.min(d, rows[r - 2][i - 2] + 1);
+                    }
+                    row[i] = d;
+                    rowMin = Math.min(rowMin, d);
+                }
+                computed = r;
+                if (rowMin > max) {
+                    dead = r;
+                    return max + 1;
+                }
+            }
+            int best = max + 1;
+            for (int r = Math.max(query.length - 1, 1); r <= length; r++) {
+                best = Math.min(best, rows[r][query.length]);
+            }
+            return best;
+        }
+
+        /**
+         * @return if the last {@link #of} failed on a prefix every longer key shares, its length, else -1
+         */
+        int deadRow() {
+            return dead;
+        }
+    }
+
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Open-addressing map from ordinal to score (the best one offered) or to a count.
+     */
+    private static final class Scores {
+        private int[] keys = new int[64]; // ordinal + 1, 0 = empty
+        private int[] values = new int[64];
+        private int size;
+
+        void offer(int ordinal, int score) {
+            final int slot = slotOf(ordinal);
+            if (keys[slot] == 0) {
+                insert(slot, ordinal, score);
+            } else if (values[slot] < score) {
+                values[slot] = score;
+            }
+        }
+
+        void add(int ordinal) {
+            final int slot = slotOf(ordinal);
+            if (keys[slot] == 0) {
+                insert(slot, ordinal, 1);
+            } else {
+                values[slot]++;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int slotOf(int ordinal) {
+            final int mask = keys.length - 1;
+            final int h = ordinal * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != ordinal + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void insert(int slot, int ordinal, int value) {
+            keys[slot] = ordinal + 1;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                final int[] oldKeys = keys;
+                final int[] oldValues = values;
+                keys = new int[oldKeys.length * 2];
+                values = new int[oldValues.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        final int s = slotOf(oldKeys[i] - 1);
+                        keys[s] = oldKeys[i];
+                        values[s] = oldValues[i];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ai.indexer.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Timing and throughput of one indexing run, written to {@value #FILE_NAME} in the output directory.
+ * <p>
+ * Phases and modules record wall time, process CPU time (all threads, including GC and JIT) and heap
+ * allocation (all threads), where the JVM reports them; unavailable values are -1. Phases with the
+ * same name accumulate. Not thread-safe: phases and modules are recorded from the driving thread.
+ */
+public final class RunMetrics {
+
+    public static final String FILE_NAME = "metrics.json";
+
+    private final Sample start = Sample.now();
+    private final Map<String, long[]> phases = new LinkedHashMap<>(); // name -> wall, cpu, alloc (nanos/bytes)
+    private final Map<String, ModuleMetrics> modules = new TreeMap<>();
+    private final int[] fileCounts = new int[3]; // seen, parsed, lexed
+    private long bytesRead;
+    private List<FileTiming> slowestFiles = List.of();
+    private OutputMetrics outputs = new OutputMetrics(0, 0, 0);
+
+    /**
+     * Starts timing {@code name}; the phase is recorded when the returned timer is closed.
+     */
+    public Timer phase(String name) {
+        return new Timer(this, name, Sample.now());
+    }
+
+    /**
+     * Per-module figures; scan and build times accumulate across calls.
+     */
+    public ModuleMetrics module(String moduleId) {
+        return modules.computeIfAbsent(moduleId, ModuleMetrics::new);
+    }
+
+    public void files(int seen, int parsed, int lexed, long bytesRead, List<FileTiming> slowest) {
+        fileCounts[0] = seen;
+        fileCounts[1] = parsed;
+        fileCounts[2] = lexed;
+        this.bytesRead = bytesRead;
+        this.slowestFiles = List.copyOf(slowest);
+    }
+
+    /**
+     * Output files written, left unchanged (same content) and deleted by this run, metrics.json excluded.
+     */
+    public void outputs(int written, int unchanged, int deleted) {
+        this.outputs = new OutputMetrics(written, unchanged, deleted);
+    }
+
+    public void write(Path outDir, String generatedAt) throws IOException {
+        final Sample total = start.until(Sample.now());
+        final List<PhaseMetrics> phaseList = new ArrayList<>(phases.size());
+        for (var e : phases.entrySet()) {
+            final long[] v = e.getValue();
+            phaseList.add(new PhaseMetrics(e.getKey(), millis(v[0]), millis(v[1]), v[2]));
+        }
+        // files/sec over the scan phase only
+        final long scanNanos = phases.containsKey("scan") ? phases.get("scan")[0] : 0;
+        final long perSec = scanNanos > 0 ? Math.round(fileCounts[0] * 1e9 / scanNanos) : 0;
+        final Report report = new Report(
+                generatedAt,
+                millis(total.wallNanos()),
+                millis(total.cpuNanos()),
+                total.allocatedBytes(),
+                Runtime.getRuntime().availableProcessors(),
+                new FileMetrics(fileCounts[0], fileCounts[1], fileCounts[2], bytesRead, perSec),
+                outputs,
+                phaseList,
+                List.copyOf(modules.values()),
+                slowestFiles);
+        // always differs (timings), so no content check; the move keeps an interrupted run from truncating it
+        final Path file = outDir.resolve(FILE_NAME);
+        final Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(tmp.toFile(), report);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void add(String name, Sample delta) {
+        final long[] v = phases.computeIfAbsent(name, k -> new long[3]);
+        v[0] += delta.wallNanos();
+        v[1] = v[1] < 0 || delta.cpuNanos() < 0 ? -1 : v[1] + delta.cpuNanos();
+        v[2] = v[2] < 0 || delta.allocatedBytes() < 0 ? -1 : v[2] + delta.allocatedBytes();
+    }
+
+    static long millis(long nanos) {
+        return nanos < 0 ? -1 : nanos / 1_000_000;
+    }
+
+    /**
+     * Running phase started by {@link #phase}; {@link #close()} records it. Closing is not required on
+     * failure paths.
+     */
+    public static final class Timer implements AutoCloseable {
+        private final RunMetrics owner;
+        private final String name;
+        private final Sample start;
+
+        private Timer(RunMetrics owner, String name, Sample start) {
+            this.owner = owner;
+            this.name = name;
+            this.start = start;
+        }
+
+        /**
+         * @return wall, CPU and allocation since the timer was started
+         */
+        public Sample elapsed() {
+            return start.until(Sample.now());
+        }
+
+        @Override
+        public void close() {
+            owner.add(name, elapsed());
+        }
+    }
+
+    /**
+     * Point-in-time (or delta) reading of wall clock, process CPU time and total allocated bytes.
+     */
+    public record Sample(long wallNanos, long cpuNanos, long allocatedBytes) {
+
+        public static Sample now() {
+            return new Sample(System.nanoTime(), processCpuNanos(), totalAllocatedBytes());
+        }
+
+        public Sample until(Sample end) {
+            return new Sample(
+                    end.wallNanos - wallNanos,
+                    cpuNanos < 0 || end.cpuNanos < 0 ? -1 : end.cpuNanos - cpuNanos,
+                    allocatedBytes < 0 || end.allocatedBytes < 0 ? -1 : end.allocatedBytes - allocatedBytes);
+        }
+
+        private static long processCpuNanos() {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                return os.getProcessCpuTime();
+            }
+            return -1;
+        }
+
+        private static long totalAllocatedBytes() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getTotalThreadAllocatedBytes();
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Scan and build figures of one module.
+     */
+    public static final class ModuleMetrics {
+        private final String id;
+        private int files;
+        private long bytesRead;
+        private int types;
+        private int injections;
+        private long scanNanos;
+        private long scanCpuNanos;
+        private long buildNanos;
+        private long buildCpuNanos;
+
+        private ModuleMetrics(String id) {
+            this.id = id;
+        }
+
+        public void addScan(Sample delta, int files, long bytesRead) {
+            this.files += files;
+            this.bytesRead += bytesRead;
+            this.scanNanos += delta.wallNanos();
+            this.scanCpuNanos += Math.max(0, delta.cpuNanos());
+        }
+
+        public void addBuild(Sample delta, int types, int injections) {
+            this.types += types;
+            this.injections += injections;
+            this.buildNanos += delta.wallNanos();
+            this.buildCpuNanos += Math.max(0, delta.cpuNanos());
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public int getTypes() {
+            return types;
+        }
+
+        public int getInjections() {
+            return injections;
+        }
+
+        public long getScanMillis() {
+            return millis(scanNanos);
+        }
+
+        public long getScanCpuMillis() {
+            return millis(scanCpuNanos);
+        }
+
+        public long getBuildMillis() {
+            return millis(buildNanos);
+        }
+
+        public long getBuildCpuMillis() {
+            return millis(buildCpuNanos);
+        }
+    }
+
+    /**
+     * One file's read + scan time; {@code mode} is how it was handled (parsed, lexed, cached, unchanged).
+     */
+    public record FileTiming(String file, long bytes, double millis, String mode) {
+    }
+
+    public record FileMetrics(int seen, int parsed, int lexed, long bytesRead, long filesPerSec) {
+    }
+
+    public record OutputMetrics(int written, int unchanged, int deleted) {
+    }
+
+    public record PhaseMetrics(String name, long wallMillis, long cpuMillis, long allocatedBytes) {
+    }
+
+    public record Report(
+            String generatedAt,
+            long totalMillis,
+            long cpuMillis,
+            long allocatedBytes,
+            int availableProcessors,
+            FileMetrics files,
+            OutputMetrics outputs,
+            List<PhaseMetrics> phases,
+            List<ModuleMetrics> modules,
+            List<FileTiming> slowestFiles
+    ) {
+    }
+}
@@ -0,0 +1,40 @@
+package ai.indexer.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the N slowest {@link RunMetrics.FileTiming}s offered to it. Thread-safe.
+ */
+public final class SlowestFiles {
+
+    private static final Comparator<RunMetrics.FileTiming> BY_TIME =
+            Comparator.comparingDouble(RunMetrics.FileTiming::millis);
+
+    private final int limit;
+    private final PriorityQueue<RunMetrics.FileTiming> heap = new PriorityQueue<>(BY_TIME); // fastest on top
+
+    public SlowestFiles(int limit) {
+        this.limit = limit;
+    }
+
+    public synchronized void offer(RunMetrics.FileTiming timing) {
+        if (heap.size() < limit) {
+            heap.add(timing);
+        } else if (limit > 0 && BY_TIME.compare(timing, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(timing);
+        }
+    }
+
+    /**
+     * @return slowest first
+     */
+    public synchronized List<RunMetrics.FileTiming> toList() {
+        final List<RunMetrics.FileTiming> out = new ArrayList<>(heap);
+        out.sort(BY_TIME.reversed());
+        return out;
+    }
+}
@@ -0,0 +1,24 @@
+package ai.indexer.model;
+
+import java.util.List;
+
+/**
+ * JSONL line for inject.reverse.<module>.jsonl: every injection site of one injected type.
+ * The shard is the module declaring the type; types declared in no indexed module go to
+ * inject.reverse._external.jsonl.
+ */
+public record InjectReverseLine(
+        String type,            // t:<fqcn> (or t:<simple> if unresolved)
+        List<InjectSite> sites  // sorted by from, memberKind, member, via
+) {
+    /**
+     * One injection point of the line's type; the fields of {@link InjectLine} minus {@code type}.
+     */
+    public record InjectSite(
+            String from,        // t:<fqcn>
+            String memberKind,  // "field" | "method"
+            String member,
+            InjectionVia via
+    ) {
+    }
+}
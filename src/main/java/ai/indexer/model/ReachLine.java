@@ -0,0 +1,12 @@
+package ai.indexer.model;
+
+/**
+ * JSONL line for inject.reach.jsonl: transitive injection set sizes of one type.
+ * The sets themselves are in inject.closure.bin.
+ */
+public record ReachLine(
+        String type,       // t:<fqcn> (or t:<simple> if unresolved)
+        int dependencies,  // types it injects, directly or through injected types
+        int dependents     // types that inject it, directly or transitively
+) {
+}
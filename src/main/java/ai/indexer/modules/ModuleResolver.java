@@ -1,44 +1,31 @@
 package ai.indexer.modules;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * Resolves a file path to a moduleId.
  * Strategy:
- * 1) Longest-prefix match against known module dirs from settings.gradle
+ * 1) Longest-prefix match against known module dirs from settings.gradle (via {@link ModuleTrie})
  * 2) Fallback: directory segment before /src/(main|test|...)/... (your rule)
  * 3) "unknown"
  */
 public final class ModuleResolver {
 
     private final Path repoRoot;
-    private final Map<String, Path> moduleDirsById;
+    private final ModuleTrie trie;
 
     public ModuleResolver(Path repoRoot, Map<String, Path> moduleDirsById) {
         this.repoRoot = Objects.requireNonNull(repoRoot, "repoRoot");
-        this.moduleDirsById = Objects.requireNonNull(moduleDirsById, "moduleDirsById");
+        this.trie = new ModuleTrie(Objects.requireNonNull(moduleDirsById, "moduleDirsById"));
     }
 
     public String resolveModuleId(Path file) {
-        String best = null;
-        int bestLen = -1;
-
-        for (var e : moduleDirsById.entrySet()) {
-            final String moduleId = e.getKey();
-            final Path moduleDir = e.getValue();
-            if (file.startsWith(moduleDir)) {
-                final int len = moduleDir.getNameCount();
-                if (len > bestLen) {
-                    bestLen = len;
-                    best = moduleId;
-                }
-            }
-        }
-
-        if (best != null) {
-            return best;
+        final List<String> best = trie.longestMatch(file);
+        if (!best.isEmpty()) {
+            return best.getFirst();
         }
 
         // Fallback: folder before "src"
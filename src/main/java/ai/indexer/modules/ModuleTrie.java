@@ -0,0 +1,114 @@
+package ai.indexer.modules;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Path-segment trie over module directories. Finds the innermost module containing a path in
+ * O(path depth), independent of the number of modules.
+ * <p>
+ * Paths are made absolute and normalized; the first level is keyed by the file system root.
+ * Several module IDs may share one directory. Immutable after construction, so safe for concurrent readers.
+ */
+public final class ModuleTrie {
+
+    private final Node root = new Node();
+
+    public ModuleTrie(Map<String, Path> moduleDirsById) {
+        Objects.requireNonNull(moduleDirsById, "moduleDirsById");
+        for (var e : moduleDirsById.entrySet()) {
+            Node node = root;
+            for (String segment : segments(e.getValue())) {
+                node = node.children.computeIfAbsent(segment, k -> new Node());
+            }
+            node.moduleIds.add(e.getKey());
+        }
+        root.freeze();
+    }
+
+    /**
+     * @return IDs of the deepest module directory that contains (or is) {@code path}, sorted; empty if none
+     */
+    public List<String> longestMatch(Path path) {
+        Node node = root;
+        List<String> best = List.of();
+        for (String segment : segments(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+            if (!node.moduleIds.isEmpty()) {
+                best = node.moduleIds;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the node for exactly {@code dir}, or null if {@code dir} is neither a module directory nor
+     * an ancestor of one
+     */
+    public Node node(Path dir) {
+        Node node = root;
+        for (String segment : segments(dir)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static List<String> segments(Path path) {
+        final Path abs = path.toAbsolutePath().normalize();
+        final List<String> out = new ArrayList<>(abs.getNameCount() + 1);
+        out.add(abs.getRoot() != null ? abs.getRoot().toString() : "");
+        for (Path name : abs) {
+            out.add(name.toString());
+        }
+        return out;
+    }
+
+    /**
+     * One directory on the way to (or at) a module directory.
+     */
+    public static final class Node {
+        private Map<String, Node> children = new HashMap<>();
+        private List<String> moduleIds = new ArrayList<>();
+
+        private Node() {
+        }
+
+        /**
+         * @return the child node for directory entry {@code name}, or null
+         */
+        public Node child(String name) {
+            return children.get(name);
+        }
+
+        /**
+         * @return IDs of the modules rooted exactly at this directory, sorted (usually zero or one)
+         */
+        public List<String> moduleIds() {
+            return moduleIds;
+        }
+
+        public boolean hasChildren() {
+            return !children.isEmpty();
+        }
+
+        private void freeze() {
+            Collections.sort(moduleIds);
+            moduleIds = List.copyOf(moduleIds);
+            children = Map.copyOf(children);
+            for (Node child : children.values()) {
+                child.freeze();
+            }
+        }
+    }
+}
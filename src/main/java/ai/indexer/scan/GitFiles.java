@@ -0,0 +1,238 @@
+package ai.indexer.scan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Snapshot of the Java files git tracks under the repo root, read once per run.
+ * <p>
+ * {@code git ls-files -s} gives the blob ID of every tracked file and {@code git status} the files whose
+ * working copy differs from the index. A clean file's blob ID is a content hash git already maintains,
+ * so {@link TypeScanner} can match it against the scan manifest without stat'ing or reading the file.
+ * Untracked and ignored files are not listed and therefore not indexed.
+ * <p>
+ * With a {@code since} revision, {@code git diff --name-only <since>} (plus dirty files) selects the
+ * files to reparse; every other file keeps its manifest records as is.
+ */
+public final class GitFiles {
+
+    private static final String GITLINK_MODE = "160000";
+    private static final String SYMLINK_MODE = "120000";
+
+    private final String[] paths;          // repo-relative, '/'-separated, unsigned byte order
+    private final Map<String, String> blobIds;
+    private final Set<String> dirty;
+    private final String since;
+    private final Set<String> touched;
+
+    private GitFiles(String[] paths, Map<String, String> blobIds, Set<String> dirty, String since, Set<String> touched) {
+        this.paths = paths;
+        this.blobIds = blobIds;
+        this.dirty = dirty;
+        this.since = since;
+        this.touched = touched;
+    }
+
+    /**
+     * Reads the tracked files of the git work tree containing {@code repoRoot}.
+     *
+     * @param since revision or range for {@code git diff}, or null to compare blob IDs only
+     * @throws IOException if git is missing, {@code repoRoot} is not inside a work tree or {@code since}
+     *                     does not resolve
+     */
+    public static GitFiles load(Path repoRoot, String since) throws IOException {
+        Objects.requireNonNull(repoRoot, "repoRoot");
+
+        // Paths of ls-files and diff --relative are relative to (and limited to) repoRoot
+        final List<String> stage = run(repoRoot, "ls-files", "-s", "-z");
+        final Map<String, String> blobIds = new HashMap<>(Math.max(16, stage.size() * 4 / 3 + 1));
+        final Set<String> dirty = new HashSet<>();
+        for (String record : stage) {
+            // <mode> SP <object> SP <stage> TAB <path>
+            final int tab = record.indexOf('\t');
+            final String path = record.substring(tab + 1);
+            if (!isJavaFile(path)) {
+                continue;
+            }
+            final String[] meta = record.substring(0, tab).split(" ");
+            if (meta[0].equals(GITLINK_MODE) || meta[0].equals(SYMLINK_MODE)) {
+                continue;
+            }
+            if (!meta[2].equals("0")) {
+                dirty.add(path); // unmerged: the working copy is whatever the merge left behind
+            }
+            blobIds.put(path, meta[1]);
+        }
+
+        // Porcelain paths are relative to the top level; rebase them onto repoRoot
+        final String prefix = run(repoRoot, "rev-parse", "--show-prefix").stream().findFirst().orElse("").strip();
+        final List<String> status = run(repoRoot, "status", "--porcelain", "-z", "--untracked-files=no", "--", ".");
+        for (int i = 0; i < status.size(); i++) {
+            final String record = status.get(i);
+            // XY SP <path>; renames and copies are followed by a record with the source path
+            final char x = record.charAt(0);
+            final char y = record.charAt(1);
+            if (x == 'R' || x == 'C') {
+                i++;
+            }
+            if (y == ' ') {
+                continue; // staged only: the index blob matches the working copy
+            }
+            final String path = record.substring(3);
+            if (!path.startsWith(prefix)) {
+                continue;
+            }
+            final String rel = path.substring(prefix.length());
+            if (y == 'D') {
+                blobIds.remove(rel);
+                dirty.remove(rel);
+            } else if (blobIds.containsKey(rel)) {
+                dirty.add(rel);
+            }
+        }
+
+        Set<String> touched = null;
+        if (since != null) {
+            touched = new HashSet<>(dirty);
+            for (String path : run(repoRoot, "diff", "--name-only", "--relative", "-z", since, "--")) {
+                if (isJavaFile(path)) {
+                    touched.add(path);
+                }
+            }
+        }
+
+        final String[] paths = blobIds.keySet().toArray(new String[0]);
+        Arrays.sort(paths, GitFiles::compareUtf8);
+        return new GitFiles(paths, blobIds, dirty, since, touched);
+    }
+
+    private static List<String> run(Path dir, String... args) throws IOException {
+        final List<String> command = new ArrayList<>(args.length + 3);
+        command.add("git");
+        command.add("-C");
+        command.add(dir.toString());
+        command.addAll(List.of(args));
+        final Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        final CompletableFuture<byte[]> stderr = CompletableFuture.supplyAsync(() -> readQuietly(process.getErrorStream()));
+        final byte[] stdout;
+        try (InputStream in = process.getInputStream()) {
+            stdout = in.readAllBytes();
+        }
+        final int exit;
+        try {
+            exit = process.waitFor();
+        } catch (InterruptedException ex) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while running git " + args[0]);
+        }
+        if (exit != 0) {
+            final String message = new String(stderr.join(), StandardCharsets.UTF_8).strip();
+            throw new IOException("git " + args[0] + " failed (exit " + exit + "): " + message);
+        }
+        final String text = new String(stdout, StandardCharsets.UTF_8);
+        final List<String> records = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\0') {
+                records.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            records.add(text.substring(start));
+        }
+        return records;
+    }
+
+    private static byte[] readQuietly(InputStream in) {
+        try (in) {
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            return new byte[0];
+        }
+    }
+
+    private static boolean isJavaFile(String path) {
+        return path.endsWith(".java");
+    }
+
+    private static int compareUtf8(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return tracked Java files under {@code rootRel} ("" = everywhere), in git's order
+     */
+    public List<String> filesUnder(String rootRel) {
+        if (rootRel.isEmpty()) {
+            return List.of(paths);
+        }
+        final String prefix = rootRel.endsWith("/") ? rootRel : rootRel + "/";
+        int lo = 0;
+        int hi = paths.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (compareUtf8(paths[mid], prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        final List<String> out = new ArrayList<>();
+        for (int i = lo; i < paths.length && paths[i].startsWith(prefix); i++) {
+            out.add(paths[i]);
+        }
+        return out;
+    }
+
+    /**
+     * @return the blob ID of a tracked file whose working copy matches the index, otherwise null
+     */
+    public String cleanBlobId(String fileRel) {
+        return dirty.contains(fileRel) ? null : blobIds.get(fileRel);
+    }
+
+    /**
+     * @return whether {@code fileRel} must be reparsed in {@code --since} mode; always true without one
+     */
+    public boolean touched(String fileRel) {
+        return touched == null || touched.contains(fileRel);
+    }
+
+    public int trackedCount() {
+        return paths.length;
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * @return the {@code --since} revision, or null
+     */
+    public String since() {
+        return since;
+    }
+
+    /**
+     * @return number of files changed since {@link #since()}, or -1 without one
+     */
+    public int touchedCount() {
+        return touched != null ? touched.size() : -1;
+    }
+}
@@ -0,0 +1,68 @@
+package ai.indexer.scan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.ImportDeclaration;
+
+import ai.indexer.model.Ids;
+
+/**
+ * The non-static imports of one compilation unit, built once per file.
+ * <p>
+ * Single-type imports map simple names to FQCNs, so a type reference (or the outer type of a qualified
+ * reference such as {@code Outer.Inner}) resolves with one hash lookup. On-demand imports
+ * ({@code import pkg.*}) cannot be resolved without knowing what each package declares; their names are
+ * carried in the scanned records and resolved later by {@link ai.indexer.graph.SymbolTable}.
+ */
+final class ImportMap {
+
+    private final Map<String, String> bySimpleName = new HashMap<>();
+    private final List<String> onDemand = new ArrayList<>();
+
+    static ImportMap of(List<ImportDeclaration> imports) {
+        final ImportMap map = new ImportMap();
+        for (var imp : imports) {
+            if (!imp.isStatic()) {
+                map.add(imp.getNameAsString(), imp.isAsterisk());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @param name imported type, or the package (or type) of an on-demand import without {@code .*}
+     */
+    void add(String name, boolean onDemandImport) {
+        if (onDemandImport) {
+            onDemand.add(name);
+        } else {
+            // like a linear scan over the imports, the first one wins
+            bySimpleName.putIfAbsent(Ids.simpleNameOfFqcn(name), name);
+        }
+    }
+
+    /**
+     * @return {@code typeName} qualified through a single-type import, otherwise unchanged
+     */
+    String resolve(String typeName) {
+        if (typeName == null || typeName.isEmpty() || bySimpleName.isEmpty()) {
+            return typeName;
+        }
+        final int dot = typeName.indexOf('.');
+        if (dot < 0) {
+            return bySimpleName.getOrDefault(typeName, typeName);
+        }
+        final String outer = bySimpleName.get(typeName.substring(0, dot));
+        return outer != null ? outer + typeName.substring(dot) : typeName;
+    }
+
+    /**
+     * @return the on-demand imports in declaration order, as a new unmodifiable list
+     */
+    List<String> onDemand() {
+        return onDemand.isEmpty() ? List.of() : List.copyOf(onDemand);
+    }
+}
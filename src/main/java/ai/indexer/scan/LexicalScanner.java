@@ -0,0 +1,484 @@
+package ai.indexer.scan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Token-level fast path for files that carry none of the annotations {@link TypeScanner} cares about.
+ * <p>
+ * Reads the package, imports, member-level type declarations and their extends/implements clauses,
+ * producing the same {@link TypeScanner.ScannedType} records a full parse would. Returns null whenever the file
+ * needs member-level detail (a relevant annotation) or contains anything it does not fully understand
+ * (local types, unicode escapes, unbalanced braces, odd headers); the caller then parses it with JavaParser.
+ * <p>
+ * It does not validate statements, so syntax errors inside member bodies are not reported as parse warnings.
+ */
+final class LexicalScanner {
+
+    static final Set<String> RELEVANT_ANNOTATIONS = Set.of(
+            "EJB", "Inject", "PersistenceContext",
+            "Stateless", "Stateful", "Singleton",
+            "Local", "Remote");
+
+    private static final byte IDENT = 1;
+    private static final byte PUNCT = 2;
+    private static final byte LITERAL = 3;
+
+    private final String src;
+    private final String fileRel;
+
+    // token stream
+    private byte[] kinds = new byte[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+    private int count;
+
+    private String pkg = "";
+    private final ImportMap imports = new ImportMap();
+    private List<String> onDemandImports; // fixed once the first type is declared
+    // enclosing declarations; null marks a code block (method body, initializer, ...)
+    private final List<String> stack = new ArrayList<>();
+    private final List<TypeScanner.ScannedType> types = new ArrayList<>();
+
+    private LexicalScanner(String src, String fileRel) {
+        this.src = src;
+        this.fileRel = fileRel;
+    }
+
+    /**
+     * @return the scan result, or null if the file must be parsed in full
+     */
+    static TypeScanner.FileScan scan(String src, String fileRel) {
+        if (src.contains("\\u")) {
+            return null;
+        }
+        final LexicalScanner ls = new LexicalScanner(src, fileRel);
+        if (!ls.tokenize() || !ls.parse()) {
+            return null;
+        }
+        return new TypeScanner.FileScan(ls.types, List.of(), 0);
+    }
+
+    // --- tokenizer ---
+
+    private boolean tokenize() {
+        final int len = src.length();
+        int pos = 0;
+        while (pos < len) {
+            final char c = src.charAt(pos);
+            if (Character.isWhitespace(c) || c == '\uFEFF') {
+                pos++;
+            } else if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '/') {
+                while (pos < len && src.charAt(pos) != '\n' && src.charAt(pos) != '\r') {
+                    pos++;
+                }
+            } else if (c == '/' && pos + 1 < len && src.charAt(pos + 1) == '*') {
+                final int close = src.indexOf("*/", pos + 2);
+                if (close < 0) {
+                    return false;
+                }
+                pos = close + 2;
+            } else if (c == '"' || c == '\'') {
+                final int close = c == '"' && src.startsWith("\"\"\"", pos)
+                        ? skipTextBlock(pos + 3)
+                        : skipQuoted(pos + 1, c);
+                if (close < 0) {
+                    return false;
+                }
+                add(LITERAL, pos, close);
+                pos = close;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                final int start = pos++;
+                while (pos < len && Character.isJavaIdentifierPart(src.charAt(pos))) {
+                    pos++;
+                }
+                add(IDENT, start, pos);
+            } else if (c >= '0' && c <= '9') {
+                final int start = pos++;
+                while (pos < len && (Character.isLetterOrDigit(src.charAt(pos))
+                        || src.charAt(pos) == '_' || src.charAt(pos) == '.')) {
+                    pos++;
+                }
+                add(LITERAL, start, pos);
+            } else if (c == '\\' || c == '#' || c == '`') {
+                return false;
+            } else {
+                add(PUNCT, pos, pos + 1);
+                pos++;
+            }
+        }
+        return true;
+    }
+
+    private int skipQuoted(int pos, char quote) {
+        final int len = src.length();
+        while (pos < len) {
+            final char c = src.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == quote) {
+                return pos + 1;
+            } else if (c == '\n' || c == '\r') {
+                return -1;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    private int skipTextBlock(int pos) {
+        final int len = src.length();
+        while (pos < len) {
+            if (src.charAt(pos) == '\\') {
+                pos += 2;
+            } else if (src.startsWith("\"\"\"", pos)) {
+                return pos + 3;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    private void add(byte kind, int start, int end) {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    // --- declarations ---
+
+    private boolean parse() {
+        int parens = 0;
+        int i = 0;
+        while (i < count) {
+            if (kinds[i] == PUNCT) {
+                final char c = src.charAt(starts[i]);
+                switch (c) {
+                    case '{' -> stack.add(null);
+                    case '}' -> {
+                        if (stack.isEmpty()) {
+                            return false;
+                        }
+                        stack.removeLast();
+                    }
+                    case '(' -> parens++;
+                    case ')' -> {
+                        if (--parens < 0) {
+                            return false;
+                        }
+                    }
+                    case '@' -> {
+                        if (isIdent(i + 1, "interface")) {
+                            if (!atMemberLevel() || !isIdent(i + 2)) {
+                                return false;
+                            }
+                            i = openDeclaration(i + 3, text(i + 2));
+                            if (i < 0) {
+                                return false;
+                            }
+                            continue;
+                        }
+                        i = checkAnnotation(i);
+                        if (i < 0) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    default -> {
+                        // other punctuation is irrelevant here
+                    }
+                }
+                i++;
+                continue;
+            }
+
+            if (kinds[i] != IDENT || isPunct(i - 1, '.')) {
+                i++;
+                continue;
+            }
+
+            if (isIdent(i, "package")) {
+                if (!stack.isEmpty() || !types.isEmpty()) {
+                    return false;
+                }
+                final StringBuilder sb = new StringBuilder();
+                int j = i + 1;
+                while (j < count && !isPunct(j, ';')) {
+                    sb.append(src, starts[j], ends[j]);
+                    j++;
+                }
+                pkg = sb.toString();
+                i = j + 1;
+            } else if (isIdent(i, "import") && stack.isEmpty()) {
+                if (!types.isEmpty()) {
+                    return false;
+                }
+                i = importDeclaration(i + 1);
+                if (i < 0) {
+                    return false;
+                }
+            } else if (isIdent(i, "class") || isIdent(i, "interface")) {
+                if (!atMemberLevel()) {
+                    return false;
+                }
+                i = classHeader(i);
+                if (i < 0) {
+                    return false;
+                }
+            } else if (isIdent(i, "enum")
+                    || (isIdent(i, "record") && isIdent(i + 1) && (isPunct(i + 2, '(') || isPunct(i + 2, '<')))) {
+                if (!atMemberLevel() || !isIdent(i + 1)) {
+                    return false;
+                }
+                i = openDeclaration(i + 2, text(i + 1));
+                if (i < 0) {
+                    return false;
+                }
+            } else {
+                i++;
+            }
+        }
+        return stack.isEmpty() && parens == 0;
+    }
+
+    /**
+     * Reads the name after {@code import} into {@link #imports}; static imports are skipped.
+     */
+    private int importDeclaration(int j) {
+        final boolean isStatic = isIdent(j, "static");
+        if (isStatic) {
+            j++;
+        }
+        final StringBuilder name = new StringBuilder();
+        boolean onDemand = false;
+        while (j < count && !isPunct(j, ';')) {
+            final boolean expectIdent = name.isEmpty() || name.charAt(name.length() - 1) == '.';
+            if (expectIdent && isIdent(j)) {
+                name.append(src, starts[j], ends[j]);
+            } else if (!expectIdent && isPunct(j, '.') && !onDemand) {
+                name.append('.');
+            } else if (expectIdent && isPunct(j, '*') && !name.isEmpty()) {
+                name.setLength(name.length() - 1);
+                onDemand = true;
+            } else {
+                return -1;
+            }
+            j++;
+        }
+        if (j >= count || name.isEmpty() || name.charAt(name.length() - 1) == '.') {
+            return -1;
+        }
+        if (!isStatic) {
+            imports.add(name.toString(), onDemand);
+        }
+        return j + 1;
+    }
+
+    private boolean atMemberLevel() {
+        return stack.isEmpty() || stack.getLast() != null;
+    }
+
+    /**
+     * Class or interface header starting at the keyword; emits the type and enters its body.
+     */
+    private int classHeader(int i) {
+        final boolean isInterface = isIdent(i, "interface");
+        if (!isIdent(i + 1)) {
+            return -1;
+        }
+        final String name = text(i + 1);
+        int j = i + 2;
+        if (isPunct(j, '<')) {
+            j = skipAngles(j);
+        }
+
+        final List<String> extendsRaw = new ArrayList<>();
+        final List<String> implementsRaw = new ArrayList<>();
+        while (j >= 0 && j < count && !isPunct(j, '{')) {
+            if (isIdent(j, "extends")) {
+                j = typeList(j + 1, extendsRaw);
+            } else if (isIdent(j, "implements")) {
+                j = typeList(j + 1, implementsRaw);
+            } else if (isIdent(j, "permits")) {
+                j = typeList(j + 1, new ArrayList<>());
+            } else {
+                return -1;
+            }
+        }
+        if (j < 0 || j >= count) {
+            return -1;
+        }
+
+        final StringBuilder fqcn = new StringBuilder(pkg);
+        for (String outer : stack) {
+            if (!fqcn.isEmpty()) {
+                fqcn.append('.');
+            }
+            fqcn.append(outer);
+        }
+        if (!fqcn.isEmpty()) {
+            fqcn.append('.');
+        }
+        fqcn.append(name);
+
+        if (onDemandImports == null) {
+            onDemandImports = imports.onDemand();
+        }
+        types.add(new TypeScanner.ScannedType(
+                fqcn.toString(),
+                pkg,
+                onDemandImports,
+                fileRel,
+                isInterface,
+                false,
+                null,
+                false,
+                false,
+                implementsRaw,
+                extendsRaw,
+                new ArrayList<>()
+        ));
+        stack.add(name);
+        return j + 1;
+    }
+
+    /**
+     * Skips an enum/record/annotation header up to its body and enters it.
+     */
+    private int openDeclaration(int j, String name) {
+        int parens = 0;
+        while (j < count) {
+            if (isPunct(j, '@')) {
+                j = checkAnnotation(j);
+                if (j < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (isPunct(j, '(')) {
+                parens++;
+            } else if (isPunct(j, ')')) {
+                parens--;
+            } else if (parens == 0 && isPunct(j, '{')) {
+                stack.add(name);
+                return j + 1;
+            } else if (isPunct(j, ';') || isPunct(j, '}') || isPunct(j, '{')) {
+                return -1;
+            }
+            j++;
+        }
+        return -1;
+    }
+
+    private int typeList(int j, List<String> out) {
+        while (true) {
+            final StringBuilder name = new StringBuilder();
+            while (j < count) {
+                if (isPunct(j, '@')) {
+                    j = checkAnnotation(j);
+                    if (j < 0) {
+                        return -1;
+                    }
+                } else if (isIdent(j) && !isIdent(j, "extends") && !isIdent(j, "implements")
+                        && !isIdent(j, "permits")) {
+                    if (!name.isEmpty()) {
+                        name.append('.');
+                    }
+                    name.append(src, starts[j], ends[j]);
+                    j++;
+                    if (isPunct(j, '<')) {
+                        j = skipAngles(j);
+                        if (j < 0) {
+                            return -1;
+                        }
+                    }
+                    if (!isPunct(j, '.')) {
+                        break;
+                    }
+                    j++;
+                } else {
+                    return -1;
+                }
+            }
+            if (name.isEmpty()) {
+                return -1;
+            }
+            out.add(imports.resolve(name.toString()));
+            if (!isPunct(j, ',')) {
+                return j;
+            }
+            j++;
+        }
+    }
+
+    private int skipAngles(int j) {
+        int depth = 0;
+        while (j < count) {
+            if (isPunct(j, '@')) {
+                j = checkAnnotation(j);
+                if (j < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (isPunct(j, '<')) {
+                depth++;
+            } else if (isPunct(j, '>')) {
+                if (--depth == 0) {
+                    return j + 1;
+                }
+            } else if (isPunct(j, '{') || isPunct(j, ';')) {
+                return -1;
+            }
+            j++;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads an annotation name at '@'; fails if it is one the full scanner has to see.
+     * Arguments are left to the caller's token loop.
+     */
+    private int checkAnnotation(int at) {
+        int j = at + 1;
+        String last = null;
+        while (isIdent(j)) {
+            last = text(j++);
+            if (!isPunct(j, '.') || !isIdent(j + 1)) {
+                break;
+            }
+            j++;
+        }
+        if (last == null || RELEVANT_ANNOTATIONS.contains(last)) {
+            return -1;
+        }
+        return j;
+    }
+
+    private boolean isIdent(int i) {
+        return i >= 0 && i < count && kinds[i] == IDENT;
+    }
+
+    private boolean isIdent(int i, String word) {
+        return isIdent(i) && ends[i] - starts[i] == word.length()
+                && src.startsWith(word, starts[i]);
+    }
+
+    private boolean isPunct(int i, char c) {
+        return i >= 0 && i < count && kinds[i] == PUNCT && src.charAt(starts[i]) == c;
+    }
+
+    private String text(int i) {
+        return src.substring(starts[i], ends[i]);
+    }
+}
@@ -0,0 +1,56 @@
+package ai.indexer.scan;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+
+/**
+ * Built-in JavaParser setups. Both parse Java 21 with its validators, so they report the same parse
+ * problems and yield the same records.
+ */
+public enum ParseProfile implements ParserFactory {
+
+    /**
+     * Only what the scanner reads: no token list, no comment attribution, no line separator detection.
+     */
+    LEAN {
+        @Override
+        public JavaParser newParser() {
+            return new JavaParser(java21()
+                    .setStoreTokens(false)
+                    .setAttributeComments(false)
+                    .setDetectOriginalLineSeparator(false)
+                    .setLexicalPreservationEnabled(false));
+        }
+    },
+
+    /**
+     * JavaParser's defaults: tokens kept on every node and comments attributed, as needed for
+     * printing or rewriting sources.
+     */
+    FULL {
+        @Override
+        public JavaParser newParser() {
+            return new JavaParser(java21());
+        }
+    };
+
+    private static ParserConfiguration java21() {
+        return new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
+    }
+
+    /**
+     * @param name profile name, case-insensitive
+     */
+    public static ParseProfile of(String name) {
+        for (ParseProfile p : values()) {
+            if (p.name().equalsIgnoreCase(name)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Unknown parse profile '" + name + "', expected one of "
+                + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,14 @@
+package ai.indexer.scan;
+
+import com.github.javaparser.JavaParser;
+
+/**
+ * Creates the parsers {@link TypeScanner} runs, one per worker thread. Whatever the configuration, the
+ * AST must expose what the scanner reads (package, imports, type declarations with their annotations,
+ * fields and methods) and report parse problems; see {@link ParseProfile} for the built-in setups.
+ */
+@FunctionalInterface
+public interface ParserFactory {
+
+    JavaParser newParser();
+}
@@ -0,0 +1,55 @@
+package ai.indexer.scan;
+
+import java.util.Objects;
+
+import ai.indexer.cache.ParseCache;
+import ai.indexer.cache.ScanManifest;
+
+/**
+ * Tuning knobs for {@link TypeScanner}. None of them changes the produced records.
+ *
+ * @param threads    number of parser workers (1 = parse on the calling thread)
+ * @param manifest   fingerprints of the previous run, or null to parse every file without hashing
+ * @param parseCache content-addressed record cache shared between checkouts, or null
+ * @param prefilter  handle files without relevant annotations with the token-level scanner
+ * @param git        tracked files and blob IDs to scan instead of walking the source roots, or null
+ * @param parser     creates the JavaParser of each worker (see {@link ParseProfile})
+ */
+public record ScanOptions(int threads, ScanManifest manifest, ParseCache parseCache, boolean prefilter, GitFiles git,
+                          ParserFactory parser) {
+
+    public ScanOptions {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1: " + threads);
+        }
+        Objects.requireNonNull(parser, "parser");
+    }
+
+    public static ScanOptions defaults() {
+        return new ScanOptions(1, null, null, false, null, ParseProfile.LEAN);
+    }
+
+    public ScanOptions withThreads(int threads) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+
+    public ScanOptions withManifest(ScanManifest manifest) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+
+    public ScanOptions withParseCache(ParseCache parseCache) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+
+    public ScanOptions withPrefilter(boolean prefilter) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+
+    public ScanOptions withGit(GitFiles git) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+
+    public ScanOptions withParser(ParserFactory parser) {
+        return new ScanOptions(threads, manifest, parseCache, prefilter, git, parser);
+    }
+}
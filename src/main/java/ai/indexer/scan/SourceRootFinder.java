@@ -1,76 +1,216 @@
 package ai.indexer.scan;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ai.indexer.modules.ModuleTrie;
 
 /**
  * Finds all Java source roots for each module:
  * - <module>/src/main/java
  * - <module>/src/test/java
  * - <module>/src/* /java  (generic - covers integrationTest, etc.)
+ * <p>
+ * Every directory is listed once: the walk starts at the outermost module directories and each
+ * source root goes to the innermost module containing it (a {@link ModuleTrie} lookup), so nested
+ * modules are not walked again by their parents. A nested module below a skipped directory such as
+ * {@code out} gets a walk of its own. Directories are listed in parallel.
  */
 public final class SourceRootFinder {
 
+    /**
+     * Default number of concurrent directory listings; listing is I/O-bound, so this may exceed the core count.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
     private final Map<String, Path> moduleDirsById;
     private final boolean includeTests;
+    private final int parallelism;
 
     public SourceRootFinder(Map<String, Path> moduleDirsById, boolean includeTests) {
+        this(moduleDirsById, includeTests, DEFAULT_PARALLELISM);
+    }
+
+    public SourceRootFinder(Map<String, Path> moduleDirsById, boolean includeTests, int parallelism) {
         this.moduleDirsById = Objects.requireNonNull(moduleDirsById, "moduleDirsById");
         this.includeTests = includeTests;
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
     }
 
     public Map<String, List<Path>> findAllSourceRoots() throws IOException {
-        final Map<String, List<Path>> out = new HashMap<>();
-
+        final Map<String, Path> existing = new HashMap<>();
         for (var e : moduleDirsById.entrySet()) {
-            final String moduleId = e.getKey();
-            final Path moduleDir = e.getValue();
-            if (!Files.isDirectory(moduleDir)) {
+            if (Files.isDirectory(e.getValue())) {
+                existing.put(e.getKey(), e.getValue().toAbsolutePath().normalize());
+            }
+        }
+        final ModuleTrie trie = new ModuleTrie(existing);
+
+        final Map<String, ConcurrentLinkedQueue<Path>> found = new ConcurrentHashMap<>();
+        final List<ListDir> starts = new ArrayList<>();
+        for (var e : existing.entrySet()) {
+            final Path dir = e.getValue();
+            // outermost modules, and nested ones their parent's walk does not reach
+            if (reachedFromEnclosing(dir, trie, existing)) {
                 continue;
             }
+            final ModuleTrie.Node node = trie.node(dir);
+            if (!node.moduleIds().getFirst().equals(e.getKey())) {
+                continue; // several IDs share this directory; walk it once
+            }
+            final ListDir start = new ListDir(dir, node.hasChildren() ? node : null, node.moduleIds(), found);
+            start.visit();
+            if (!start.skip) {
+                starts.add(start);
+            }
+        }
 
-            final List<Path> roots = new ArrayList<>();
-            Files.walkFileTree(moduleDir, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    // Skip typical heavy dirs
-                    final Path fileName = dir.getFileName();
-                    final String name = fileName != null ? fileName.toString() : "";
-                    if (".git".equals(name)
-                            || ".idea".equals(name)
-                            || ".gradle".equals(name)
-                            || "build".equals(name)
-                            || "buildSrc".equals(name)
-                            || "dist".equals(name)
-                            || "out".equals(name)
-                            || "target".equals(name)
-                            || "node_modules".equals(name)) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            starts.forEach(pool::execute);
+            for (ListDir start : starts) {
+                start.join();
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
 
-                    // Match .../src/<something>/java
-                    if (looksLikeJavaSourceRoot(dir)) {
-                        roots.add(dir);
-                        return FileVisitResult.SKIP_SUBTREE; // no need to walk below; TypeScanner will handle files
-                    }
+        final Map<String, List<Path>> out = new HashMap<>();
+        for (String moduleId : existing.keySet()) {
+            final var roots = found.get(moduleId);
+            final List<Path> sorted = roots != null ? new ArrayList<>(roots) : new ArrayList<>();
+            Collections.sort(sorted);
+            out.put(moduleId, sorted);
+        }
+        return out;
+    }
 
-                    return FileVisitResult.CONTINUE;
+    /**
+     * Whether the walk of the innermost module enclosing {@code dir} lists it, i.e. none of the directories
+     * from that module's down to {@code dir}'s parent is skipped (a module in {@code tools/out/cli} is
+     * not reached from {@code tools}).
+     */
+    private static boolean reachedFromEnclosing(Path dir, ModuleTrie trie, Map<String, Path> moduleDirs) {
+        final Path parent = dir.getParent();
+        if (parent == null) {
+            return false;
+        }
+        final List<String> enclosing = trie.longestMatch(parent);
+        if (enclosing.isEmpty()) {
+            return false;
+        }
+        final Path enclosingDir = moduleDirs.get(enclosing.getFirst());
+        for (Path d = parent; d != null && d.startsWith(enclosingDir); d = d.getParent()) {
+            if (isSkippedDir(d)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists one directory and forks a task per subdirectory that may still hold source roots.
+     */
+    @SuppressWarnings("serial") // never serialized
+    private final class ListDir extends RecursiveAction {
+        private final Path dir;
+        private final ModuleTrie.Node node; // trie node of dir while nested module dirs lie below it, else null
+        private final List<String> owners;  // innermost modules containing dir
+        private final Map<String, ConcurrentLinkedQueue<Path>> found;
+        private boolean skip;
+
+        ListDir(Path dir, ModuleTrie.Node node, List<String> owners, Map<String, ConcurrentLinkedQueue<Path>> found) {
+            this.dir = dir;
+            this.node = node;
+            this.owners = owners;
+            this.found = found;
+        }
+
+        /**
+         * Applies the skip and source-root checks to this task's own directory; a source root is
+         * recorded and not descended into.
+         */
+        void visit() {
+            // Skip typical heavy dirs
+            if (isSkippedDir(dir)) {
+                skip = true;
+                return;
+            }
+            // Match .../src/<something>/java
+            if (looksLikeJavaSourceRoot(dir)) {
+                for (String moduleId : owners) {
+                    found.computeIfAbsent(moduleId, k -> new ConcurrentLinkedQueue<>()).add(dir);
                 }
-            });
+                skip = true; // no need to walk below; TypeScanner will handle files
+            }
+        }
 
-            out.put(moduleId, roots);
+        @Override
+        protected void compute() {
+            if (skip) {
+                return;
+            }
+            final List<ListDir> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path child : entries) {
+                    final BasicFileAttributes attrs = Files.readAttributes(
+                            child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (!attrs.isDirectory()) {
+                        continue;
+                    }
+                    final ModuleTrie.Node childNode = node != null ? node.child(child.getFileName().toString()) : null;
+                    final List<String> childOwners = childNode != null && !childNode.moduleIds().isEmpty()
+                            ? childNode.moduleIds()
+                            : owners;
+                    final ListDir task = new ListDir(child, childNode != null && childNode.hasChildren() ? childNode : null,
+                            childOwners, found);
+                    task.visit();
+                    if (!task.skip) {
+                        subdirs.add(task);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            invokeAll(subdirs);
         }
+    }
 
-        return out;
+    /**
+     * Typical heavy dirs (VCS, IDE, build output) that never contain source roots.
+     */
+    public static boolean isSkippedDir(Path dir) {
+        final Path fileName = dir.getFileName();
+        final String name = fileName != null ? fileName.toString() : "";
+        return ".git".equals(name)
+                || ".idea".equals(name)
+                || ".gradle".equals(name)
+                || "build".equals(name)
+                || "buildSrc".equals(name)
+                || "dist".equals(name)
+                || "out".equals(name)
+                || "target".equals(name)
+                || "node_modules".equals(name);
     }
 
     private boolean looksLikeJavaSourceRoot(Path dir) {
@@ -1,21 +1,31 @@
 package ai.indexer.scan;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.PackageDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
@@ -24,20 +34,76 @@ import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
 
+import ai.indexer.cache.ParseCache;
+import ai.indexer.cache.ScanManifest;
 import ai.indexer.graph.SymbolTable;
+import ai.indexer.metrics.RunMetrics;
+import ai.indexer.metrics.SlowestFiles;
 import ai.indexer.model.Ids;
 import ai.indexer.model.InjectionVia;
 
-public final class TypeScanner {
+/**
+ * Extracts types and injection points from Java sources.
+ * <p>
+ * With {@code threads > 1} files are parsed on a bounded worker pool (one JavaParser per worker, made by
+ * the {@link ParserFactory} of the options).
+ * Results are still merged on the calling thread in file-walk order, so output does not depend on
+ * the number of threads.
+ * <p>
+ * With a {@link ScanManifest} from the previous run, files with unchanged size/mtime (or content
+ * hash) are not parsed again; their cached records are reused and a fresh manifest is collected.
+ * Files missing from the manifest are looked up by content hash in the {@link ParseCache}, if any.
+ * With {@link GitFiles}, only tracked files are scanned and a clean file whose blob ID matches the
+ * manifest is reused without being stat'ed or read.
+ * With the prefilter enabled, files without relevant annotations skip JavaParser (see {@link LexicalScanner}).
+ */
+public final class TypeScanner implements AutoCloseable {
+
+    /**
+     * Version of the records produced by this scanner; bump when extraction logic changes.
+     */
+    public static final int SCANNER_VERSION = 2;
+
+    /**
+     * Number of slowest files kept for {@link #slowestFiles()}.
+     */
+    public static final int SLOWEST_FILES = 20;
 
     private final Path repoRoot;
     private final JavaParser parser;
-    private int parseWarnings;
+    private final ExecutorService workers;
+    private final ThreadLocal<JavaParser> workerParser;
+    private final ScanManifest previous;
+    private final ScanManifest manifest;
+    private final ParseCache parseCache;
+    private final boolean prefilter;
+    private final GitFiles git;
+    private final AtomicInteger parseWarnings = new AtomicInteger();
+    private final AtomicInteger filesParsed = new AtomicInteger();
+    private final AtomicInteger filesLexed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final SlowestFiles slowestFiles = new SlowestFiles(SLOWEST_FILES);
+    private int filesSeen;
 
     public TypeScanner(Path repoRoot) {
+        this(repoRoot, ScanOptions.defaults());
+    }
+
+    public TypeScanner(Path repoRoot, ScanOptions options) {
         this.repoRoot = Objects.requireNonNull(repoRoot, "repoRoot");
-        this.parser = new JavaParser(new ParserConfiguration()
-                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21));
+        Objects.requireNonNull(options, "options");
+        this.parser = options.parser().newParser();
+        this.workerParser = ThreadLocal.withInitial(options.parser()::newParser);
+        this.workers = options.threads() > 1 ? Executors.newFixedThreadPool(options.threads(), r -> {
+            final Thread t = new Thread(r, "ai-indexer-scan");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        this.previous = options.manifest();
+        this.manifest = previous != null ? previous.next() : null;
+        this.parseCache = options.parseCache();
+        this.prefilter = options.prefilter();
+        this.git = options.git();
     }
 
     public void scan(Path sourceRoot,
@@ -46,50 +112,255 @@ public final class TypeScanner {
                      Map<String, List<ScannedInjection>> injectionsByModule,
                      SymbolTable symbols) throws IOException {
 
-        Objects.requireNonNull(sourceRoot, "sourceRoot");
         Objects.requireNonNull(moduleId, "moduleId");
         Objects.requireNonNull(scannedByModule, "scannedByModule");
         Objects.requireNonNull(injectionsByModule, "injectionsByModule");
-        Objects.requireNonNull(symbols, "symbols");
 
         final var types = scannedByModule.computeIfAbsent(moduleId, k -> new ArrayList<>());
         final var injections = injectionsByModule.computeIfAbsent(moduleId, k -> new ArrayList<>());
+        scan(sourceRoot, symbols, scan -> {
+            types.addAll(scan.types());
+            injections.addAll(scan.injections());
+        });
+    }
 
+    /**
+     * Scans {@code sourceRoot} and hands each file's records to {@code sink} in file-walk order, so
+     * callers can spill them instead of collecting a whole module.
+     */
+    public void scan(Path sourceRoot, SymbolTable symbols, FileSink sink) throws IOException {
+        Objects.requireNonNull(sourceRoot, "sourceRoot");
+        Objects.requireNonNull(symbols, "symbols");
+        Objects.requireNonNull(sink, "sink");
+
+        final List<SourceFile> files = new ArrayList<>();
+        if (git != null) {
+            // size and mtime are read later, and only if the blob ID does not settle it
+            for (String fileRel : git.filesUnder(relativize(sourceRoot))) {
+                files.add(new SourceFile(repoRoot.resolve(fileRel), fileRel, -1, -1, git.cleanBlobId(fileRel)));
+            }
+        } else {
+            Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isJavaFile(file)) {
+                        files.add(new SourceFile(file, relativize(file), attrs.size(), attrs.lastModifiedTime().toMillis(), null));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        filesSeen += files.size();
+
+        if (workers == null) {
+            for (SourceFile sf : files) {
+                collect(sf, scanFile(sf, parser), sink, symbols);
+            }
+            return;
+        }
+
+        final List<Future<ScanManifest.Entry>> pending = new ArrayList<>(files.size());
+        for (SourceFile sf : files) {
+            pending.add(workers.submit(() -> scanFile(sf, workerParser.get())));
+        }
+        // Merge in walk order (not completion order) to keep output identical to the sequential mode
+        for (int i = 0; i < files.size(); i++) {
+            collect(files.get(i), await(pending.get(i)), sink, symbols);
+        }
+    }
+
+    /**
+     * Counts the Java files under {@code sourceRoot} that {@link #scan} would take from {@code previous}
+     * without reading them: same git blob ID, untouched in {@code --since} mode, or same size and mtime.
+     * Files are only listed and stat'ed.
+     *
+     * @param git as in {@link ScanOptions#git()}, or null
+     * @return the count, or -1 as soon as a file would be read
+     */
+    public static int countUnchanged(Path repoRoot, Path sourceRoot, ScanManifest previous, GitFiles git) throws IOException {
+        Objects.requireNonNull(previous, "previous");
+        final Path root = repoRoot.toAbsolutePath().normalize();
+        final String sourceRootRel = root.relativize(sourceRoot.toAbsolutePath().normalize()).toString().replace('\\', '/');
+        if (git != null) {
+            int n = 0;
+            for (String fileRel : git.filesUnder(sourceRootRel)) {
+                final ScanManifest.Stat prev = previous.stat(fileRel);
+                if (prev == null) {
+                    return -1;
+                }
+                final String blobId = git.cleanBlobId(fileRel);
+                if ((blobId == null || !blobId.equals(prev.blobId())) && git.touched(fileRel)) {
+                    if (blobId != null && prev.blobId() != null) {
+                        return -1; // both known and different
+                    }
+                    final var attrs = Files.readAttributes(repoRoot.resolve(fileRel), BasicFileAttributes.class);
+                    if (attrs.size() != prev.size() || attrs.lastModifiedTime().toMillis() != prev.mtimeMillis()) {
+                        return -1;
+                    }
+                }
+                n++;
+            }
+            return n;
+        }
+        final int[] n = {0};
         Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                if (attrs.isRegularFile() && isJavaFile(file)) {
-                    parseFile(file, types, injections, symbols);
+                if (!attrs.isRegularFile() || !isJavaFile(file)) {
+                    return FileVisitResult.CONTINUE;
                 }
+                final String fileRel = root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+                final ScanManifest.Stat prev = previous.stat(fileRel);
+                if (prev == null || attrs.size() != prev.size() || attrs.lastModifiedTime().toMillis() != prev.mtimeMillis()) {
+                    n[0] = -1;
+                    return FileVisitResult.TERMINATE;
+                }
+                n[0]++;
                 return FileVisitResult.CONTINUE;
             }
         });
+        return n[0];
     }
 
-    private void parseFile(Path file,
-                           List<ScannedType> typesOut,
-                           List<ScannedInjection> injectionsOut,
-                           SymbolTable symbols) {
+    private void collect(SourceFile sf, ScanManifest.Entry entry, FileSink sink, SymbolTable symbols) throws IOException {
+        final FileScan scan = entry.scan();
+        for (var st : scan.types()) {
+            symbols.registerType(st.fqcn());
+        }
+        sink.accept(scan);
+        parseWarnings.addAndGet(scan.warnings());
+        // Unreadable files have no hash; leave them out so they are retried next run
+        if (manifest != null && entry.sha256() != null) {
+            manifest.put(sf.fileRel(), entry);
+        }
+    }
 
+    private static <T> T await(Future<T> f) throws IOException {
         try {
-            final var res = parser.parse(file);
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning sources");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private ScanManifest.Entry scanFile(SourceFile sf, JavaParser parser) {
+        final var prev = previous != null ? previous.get(sf.fileRel()) : null;
+        if (prev != null && git != null) {
+            if (sf.blobId() != null && sf.blobId().equals(prev.blobId())) {
+                return prev;
+            }
+            if (!git.touched(sf.fileRel())) {
+                return prev; // --since: not changed in the range
+            }
+        }
+
+        final long t0 = System.nanoTime();
+        final byte[] content;
+        try {
+            if (sf.size() < 0) {
+                final var attrs = Files.readAttributes(sf.file(), BasicFileAttributes.class);
+                sf = new SourceFile(sf.file(), sf.fileRel(), attrs.size(), attrs.lastModifiedTime().toMillis(), sf.blobId());
+            }
+            // Two different known blob IDs mean different content, whatever size and mtime say
+            final boolean blobChanged = prev != null && sf.blobId() != null && prev.blobId() != null;
+            if (prev != null && !blobChanged && prev.size() == sf.size() && prev.mtimeMillis() == sf.mtimeMillis()) {
+                return sf.blobId() != null
+                        ? new ScanManifest.Entry(prev.size(), prev.mtimeMillis(), prev.sha256(), sf.blobId(), prev.scan())
+                        : prev;
+            }
+            content = Files.readAllBytes(sf.file());
+        } catch (IOException ex) {
+            return new ScanManifest.Entry(sf.size(), sf.mtimeMillis(), null, null, failed(sf.file(), ex));
+        }
+        bytesRead.addAndGet(content.length);
+
+        final String hash = manifest != null || parseCache != null ? sha256(content) : null;
+        if (prev != null && hash != null && hash.equals(prev.sha256())) {
+            // touched but not modified
+            return timed(sf, content, t0, "unchanged", hash, prev.scan());
+        }
+        if (prefilter) {
+            final FileScan lexed = LexicalScanner.scan(new String(content, StandardCharsets.UTF_8), sf.fileRel());
+            if (lexed != null) {
+                filesLexed.incrementAndGet();
+                return timed(sf, content, t0, "lexed", hash, lexed);
+            }
+        }
+        if (parseCache != null) {
+            final FileScan cached = parseCache.get(hash, sf.fileRel());
+            if (cached != null) {
+                return timed(sf, content, t0, "cached", hash, cached);
+            }
+        }
+
+        filesParsed.incrementAndGet();
+        final FileScan scan = parseFile(sf, content, parser);
+        if (parseCache != null) {
+            parseCache.put(hash, scan);
+        }
+        return timed(sf, content, t0, "parsed", hash, scan);
+    }
+
+    private ScanManifest.Entry timed(SourceFile sf, byte[] content, long t0, String mode, String hash, FileScan scan) {
+        slowestFiles.offer(new RunMetrics.FileTiming(sf.fileRel(), content.length, (System.nanoTime() - t0) / 1e6, mode));
+        return new ScanManifest.Entry(sf.size(), sf.mtimeMillis(), hash, sf.blobId(), scan);
+    }
+
+    private static FileScan failed(Path file, Exception ex) {
+        System.err.println("WARN: failed to parse " + file + " -> "
+                + ex.getClass().getSimpleName() + ": " + safeMsg(ex.getMessage()));
+        return new FileScan(List.of(), List.of(), 1);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private String relativize(Path file) {
+        return repoRoot.relativize(file.toAbsolutePath().normalize())
+                .toString().replace('\\', '/');
+    }
+
+    // package-private for benchmarks
+    FileScan parseFile(SourceFile sf, byte[] content, JavaParser parser) {
+        final Path file = sf.file();
+        final List<ScannedType> typesOut = new ArrayList<>();
+        final List<ScannedInjection> injectionsOut = new ArrayList<>();
+        int warnings = 0;
+
+        try {
+            final var res = parser.parse(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
             if (!res.getProblems().isEmpty()) {
-                parseWarnings++;
+                warnings++;
                 final String msg = safeMsg(res.getProblems().getFirst().getMessage());
                 System.err.println("WARN: parse problems in " + file + " -> " + msg);
             }
             final var cuOpt = res.getResult();
             if (cuOpt.isEmpty()) {
-                return;
+                return new FileScan(typesOut, injectionsOut, warnings);
             }
 
             final var cu = cuOpt.get();
             final var pkg = cu.getPackageDeclaration().map(
                     PackageDeclaration::getNameAsString)
                     .orElse("");
-            final var imports = cu.getImports();
-            final var fileRel = repoRoot.relativize(file.toAbsolutePath().normalize())
-                    .toString().replace('\\', '/');
+            final var imports = ImportMap.of(cu.getImports());
+            final var onDemandImports = imports.onDemand();
+            final var fileRel = sf.fileRel();
 
             for (var cid : cu.findAll(ClassOrInterfaceDeclaration.class)) {
 
@@ -104,12 +375,12 @@ public final class TypeScanner {
 
                 final var implementsRaw = new ArrayList<String>(cid.getImplementedTypes().size());
                 for (var t : cid.getImplementedTypes()) {
-                    implementsRaw.add(t.getNameAsString());
+                    implementsRaw.add(imports.resolve(t.getNameWithScope()));
                 }
 
                 final var extendsRaw = new ArrayList<String>(cid.getExtendedTypes().size());
                 for (var t : cid.getExtendedTypes()) {
-                    extendsRaw.add(t.getNameAsString());
+                    extendsRaw.add(imports.resolve(t.getNameWithScope()));
                 }
 
                 final var injectedFields = new ArrayList<InjectedField>();
@@ -124,15 +395,14 @@ public final class TypeScanner {
                     }
                     final InjectionVia via = isEjb ? InjectionVia.EJB : (isCdi ? InjectionVia.CDI : InjectionVia.JPA);
 
-                    var typeRaw = Ids.normalizeTypeName(fd.getElementType().toString());
-                    typeRaw = resolveImportedType(typeRaw, imports);
+                    final var typeRaw = imports.resolve(Ids.normalizeTypeName(fd.getElementType().toString()));
 
                     for (var v : fd.getVariables()) {
                         final var fieldName = v.getNameAsString();
                         injectedFields.add(new InjectedField(fieldName, typeRaw, via));
 
                         injectionsOut.add(new ScannedInjection(
-                                fqcn, pkg,
+                                fqcn, pkg, onDemandImports,
                                 "field", fieldName,
                                 typeRaw, via
                         ));
@@ -159,12 +429,11 @@ public final class TypeScanner {
                     // We keep it simple: one edge per parameter (setter usually has 1 param)
                     for (int i = 0; i < params.size(); i++) {
                         final var p = params.get(i);
-                        var typeRaw = Ids.normalizeTypeName(p.getType().toString());
-                        typeRaw = resolveImportedType(typeRaw, imports);
+                        final var typeRaw = imports.resolve(Ids.normalizeTypeName(p.getType().toString()));
                         final var sig = methodSignature(md.getNameAsString(), params);
 
                         injectionsOut.add(new ScannedInjection(
-                                fqcn, pkg,
+                                fqcn, pkg, onDemandImports,
                                 "method", sig,
                                 typeRaw, via
                         ));
@@ -174,6 +443,7 @@ public final class TypeScanner {
                 final var st = new ScannedType(
                         fqcn,
                         pkg,
+                        onDemandImports,
                         fileRel,
                         isInterface,
                         isEjbBean,
@@ -186,14 +456,14 @@ public final class TypeScanner {
                 );
 
                 typesOut.add(st);
-                symbols.registerType(fqcn);
             }
 
         } catch (Exception ex) {
-            parseWarnings++;
-            System.err.println("WARN: failed to parse " + file + " -> "
-                    + ex.getClass().getSimpleName() + ": " + safeMsg(ex.getMessage()));
+            // keep what was extracted before the failure, like a partial parse
+            failed(file, ex);
+            return new FileScan(typesOut, injectionsOut, warnings + 1);
         }
+        return new FileScan(typesOut, injectionsOut, warnings);
     }
 
     private static String resolveFqcn(ClassOrInterfaceDeclaration cid, String pkg) {
@@ -246,37 +516,6 @@ public final class TypeScanner {
         return name.endsWith(".java");
     }
 
-    private static String resolveImportedType(String typeName, NodeList<ImportDeclaration> imports) {
-        if (typeName == null || typeName.isBlank()) {
-            return typeName;
-        }
-        if (typeName.indexOf('.') >= 0) {
-            return typeName;
-        }
-        if (isPrimitive(typeName)) {
-            return typeName;
-        }
-
-        for (var imp : imports) {
-            if (imp.isStatic() || imp.isAsterisk()) {
-                continue;
-            }
-            final String imported = imp.getNameAsString();
-            final String simple = Ids.simpleNameOfFqcn(imported);
-            if (simple.equals(typeName)) {
-                return imported;
-            }
-        }
-        return typeName;
-    }
-
-    private static boolean isPrimitive(String typeName) {
-        return switch (typeName) {
-            case "boolean", "byte", "short", "int", "long", "char", "float", "double", "void" -> true;
-            default -> false;
-        };
-    }
-
     private static boolean hasAnno(NodeWithAnnotations<?> n, String simpleName) {
         for (AnnotationExpr a : n.getAnnotations()) {
             if (simpleName.equals(annoSimpleName(a))) {
@@ -305,12 +544,35 @@ public final class TypeScanner {
         return lastDot >= 0 ? n.substring(lastDot + 1) : n;
     }
 
+    /**
+     * Receives the records of one source file (see {@link #scan(Path, SymbolTable, FileSink)}).
+     */
+    @FunctionalInterface
+    public interface FileSink {
+
+        void accept(FileScan scan) throws IOException;
+    }
+
+    /**
+     * @param size   -1 until read (git mode)
+     * @param blobId git blob ID of a clean tracked file, otherwise null
+     */
+    record SourceFile(Path file, String fileRel, long size, long mtimeMillis, String blobId) {
+    }
+
+    /**
+     * Everything extracted from one source file; warnings = parse problems reported for it.
+     */
+    public record FileScan(List<ScannedType> types, List<ScannedInjection> injections, int warnings) {
+    }
+
     public record InjectedField(String fieldName, String fieldTypeRaw, InjectionVia via) {
     }
 
     public record ScannedInjection(
             String fromFqcn,
             String fromPackageName,
+            List<String> onDemandImports, // import x.* of the declaring file, resolved by SymbolTable
             String memberKind,   // field | method
             String member,       // fieldName | methodSignature
             String injectedTypeRaw,
@@ -321,6 +583,7 @@ public final class TypeScanner {
     public record ScannedType(
             String fqcn,
             String packageName,
+            List<String> onDemandImports,
             String fileRel,
             boolean isInterface,
             boolean isEjbBean,
@@ -337,6 +600,43 @@ public final class TypeScanner {
     }
 
     public int parseWarningCount() {
-        return parseWarnings;
+        return parseWarnings.get();
+    }
+
+    public long bytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return the {@value #SLOWEST_FILES} files that took longest to read and scan, slowest first
+     */
+    public List<RunMetrics.FileTiming> slowestFiles() {
+        return slowestFiles.toList();
+    }
+
+    public int filesSeen() {
+        return filesSeen;
+    }
+
+    public int filesParsed() {
+        return filesParsed.get();
+    }
+
+    public int filesLexed() {
+        return filesLexed.get();
+    }
+
+    /**
+     * Fingerprints of every file scanned so far, or null when running without a manifest.
+     */
+    public ScanManifest manifest() {
+        return manifest;
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,107 @@
+package ai.indexer.serve;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ai.indexer.graph.Graph;
+import ai.indexer.model.EjbBindingLine;
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.TypeLine;
+
+/**
+ * Read-only lookup maps over a built {@link Graph}. All answers are precomputed and sorted,
+ * so every query is a single hash lookup. Safe for concurrent readers.
+ */
+public final class GraphQueryIndex {
+
+    private static final Comparator<InjectLine> LINE_ORDER = Comparator.comparing(InjectLine::from)
+            .thenComparing(InjectLine::memberKind)
+            .thenComparing(InjectLine::member)
+            .thenComparing(InjectLine::type)
+            .thenComparing(InjectLine::via);
+
+    private final Map<String, TypeLine> types = new HashMap<>();
+    private final Map<String, String> moduleOfType;
+    private final Map<String, List<String>> implementors = new HashMap<>();
+    private final Map<String, List<InjectLine>> injectorsOf = new HashMap<>();
+    private final Map<String, List<InjectLine>> membersOf = new HashMap<>();
+    private final Map<String, EjbBindingLine> ejbByIface = new HashMap<>();
+
+    public GraphQueryIndex(Graph graph) {
+        Objects.requireNonNull(graph, "graph");
+        this.moduleOfType = Map.copyOf(graph.typeIndex());
+
+        for (var e : graph.modules().entrySet()) {
+            final Graph.ModuleFiles files = e.getValue();
+            for (TypeLine tl : files.types()) {
+                types.put(tl.id(), tl);
+                for (String iface : tl.implementsIds()) {
+                    implementors.computeIfAbsent(iface, k -> new ArrayList<>()).add(tl.id());
+                }
+                // interfaces "implement" their super-interfaces via extends
+                for (String sup : tl.extendsIds()) {
+                    implementors.computeIfAbsent(sup, k -> new ArrayList<>()).add(tl.id());
+                }
+            }
+            for (InjectLine il : files.inject()) {
+                injectorsOf.computeIfAbsent(il.type(), k -> new ArrayList<>()).add(il);
+                membersOf.computeIfAbsent(il.from(), k -> new ArrayList<>()).add(il);
+            }
+            for (EjbBindingLine el : files.ejb()) {
+                ejbByIface.put(el.iface(), el);
+            }
+        }
+
+        for (var list : implementors.values()) {
+            Collections.sort(list);
+        }
+        for (var list : injectorsOf.values()) {
+            list.sort(LINE_ORDER);
+        }
+        for (var list : membersOf.values()) {
+            list.sort(LINE_ORDER);
+        }
+    }
+
+    public TypeLine type(String typeId) {
+        return types.get(typeId);
+    }
+
+    public String moduleOf(String typeId) {
+        return moduleOfType.get(typeId);
+    }
+
+    /**
+     * Types that list the given type in implementsIds or extendsIds.
+     */
+    public List<String> implementors(String typeId) {
+        return implementors.getOrDefault(typeId, List.of());
+    }
+
+    /**
+     * Injection sites whose injected type is the given type.
+     */
+    public List<InjectLine> injectors(String typeId) {
+        return injectorsOf.getOrDefault(typeId, List.of());
+    }
+
+    /**
+     * Injection members declared by the given type.
+     */
+    public List<InjectLine> members(String typeId) {
+        return membersOf.getOrDefault(typeId, List.of());
+    }
+
+    public EjbBindingLine ejb(String ifaceId) {
+        return ejbByIface.get(ifaceId);
+    }
+
+    public int typeCount() {
+        return types.size();
+    }
+}
@@ -0,0 +1,212 @@
+package ai.indexer.serve;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP endpoint answering graph queries from a {@link GraphQueryIndex}, one virtual thread per request.
+ * <p>
+ * Endpoints (ids may be given as {@code t:<fqcn>} or plain FQCN):
+ * <pre>
+ *   GET /type?id=...          type line + module
+ *   GET /implementors?id=...  types implementing/extending the type
+ *   GET /injectors?id=...     injection sites that inject the type
+ *   GET /members?id=...       injection members declared by the type
+ *   GET /ejb?id=...           EJB binding of a local/remote interface
+ *   GET /stats                request count and p50/p99 latency per endpoint
+ * </pre>
+ * Other paths answer 404, a query that throws answers 500. Binds to the loopback interface only.
+ */
+public final class QueryServer {
+
+    private static final int LATENCY_SAMPLES = 1 << 14;
+
+    private final GraphQueryIndex index;
+    private final int port;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    public QueryServer(GraphQueryIndex index, int port) {
+        this.index = Objects.requireNonNull(index, "index");
+        this.port = port;
+        endpoints.put("type", new Endpoint(id -> {
+            final var type = index.type(id);
+            return type == null ? null : new TypeAnswer(index.moduleOf(id), type);
+        }));
+        endpoints.put("implementors", new Endpoint(index::implementors));
+        endpoints.put("injectors", new Endpoint(index::injectors));
+        endpoints.put("members", new Endpoint(index::members));
+        endpoints.put("ejb", new Endpoint(index::ejb));
+    }
+
+    /**
+     * Starts serving and blocks until the JVM shuts down.
+     */
+    public void run() throws IOException, InterruptedException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        // contexts match by prefix; handle() and the /stats handler only answer their exact path
+        for (var e : endpoints.entrySet()) {
+            final String path = "/" + e.getKey();
+            final Endpoint endpoint = e.getValue();
+            server.createContext(path, exchange -> {
+                if (exactPath(exchange, path)) {
+                    handle(exchange, endpoint);
+                }
+            });
+        }
+        server.createContext("/stats", exchange -> {
+            if (exactPath(exchange, "/stats")) {
+                respond(exchange, 200, stats());
+            }
+        });
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            executor.shutdown();
+            stopped.countDown();
+        }));
+
+        server.start();
+        System.out.println("Serving " + index.typeCount() + " types on http://"
+                + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        stopped.await();
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        final long t0 = System.nanoTime();
+        try {
+            final String id = queryParam(exchange, "id");
+            if (id == null || id.isBlank()) {
+                respond(exchange, 400, Map.of("error", "missing query parameter 'id'"));
+                return;
+            }
+            final Object answer;
+            try {
+                answer = endpoint.query().apply(id.startsWith("t:") ? id : "t:" + id);
+            } catch (RuntimeException ex) {
+                respond(exchange, 500, Map.of("error", "query failed: " + ex.getClass().getSimpleName(), "id", id));
+                return;
+            }
+            if (answer == null) {
+                respond(exchange, 404, Map.of("error", "not found", "id", id));
+            } else {
+                respond(exchange, 200, answer);
+            }
+        } finally {
+            endpoint.record(System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * Whether the request is for exactly {@code path}; answers 404 if not.
+     */
+    private boolean exactPath(HttpExchange exchange, String path) throws IOException {
+        final String requested = exchange.getRequestURI().getPath();
+        if (path.equals(requested)) {
+            return true;
+        }
+        respond(exchange, 404, Map.of("error", "unknown endpoint", "path", String.valueOf(requested)));
+        return false;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        final byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private Map<String, Object> stats() {
+        final Map<String, Object> out = new LinkedHashMap<>();
+        for (var e : endpoints.entrySet()) {
+            out.put(e.getKey(), e.getValue().stats());
+        }
+        return out;
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            final int eq = pair.indexOf('=');
+            final String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            if (name.equals(key)) {
+                return eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            }
+        }
+        return null;
+    }
+
+    public record TypeAnswer(String module, Object type) {
+    }
+
+    public record LatencyStats(long requests, double p50Micros, double p99Micros) {
+    }
+
+    /**
+     * Query function plus a ring buffer of the most recent latencies.
+     */
+    private static final class Endpoint {
+        private final Function<String, Object> query;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+
+        Endpoint(Function<String, ?> query) {
+            this.query = query::apply;
+        }
+
+        Function<String, Object> query() {
+            return query;
+        }
+
+        void record(long nanos) {
+            final long n = requests.getAndIncrement();
+            latencies.set((int) (n % LATENCY_SAMPLES), nanos);
+        }
+
+        LatencyStats stats() {
+            final long n = requests.get();
+            final int samples = (int) Math.min(n, LATENCY_SAMPLES);
+            if (samples == 0) {
+                return new LatencyStats(0, 0, 0);
+            }
+            final long[] copy = new long[samples];
+            for (int i = 0; i < samples; i++) {
+                copy[i] = latencies.get(i);
+            }
+            Arrays.sort(copy);
+            return new LatencyStats(n, percentile(copy, 0.50), percentile(copy, 0.99));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            final int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, idx)] / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ai.indexer.watch;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import ai.indexer.cache.ScanManifest;
+import ai.indexer.graph.Graph;
+import ai.indexer.graph.GraphBuilder;
+import ai.indexer.graph.InjectClosure;
+import ai.indexer.io.GraphWriter;
+import ai.indexer.modules.ModuleLayout;
+import ai.indexer.scan.ScanOptions;
+import ai.indexer.scan.SourceRootFinder;
+
+/**
+ * Keeps the output dir in sync with the sources.
+ * <p>
+ * Watches settings.gradle(.kts) and every module directory tree. Bursts of events are debounced;
+ * each burst triggers an incremental rebuild (the in-memory scan manifest makes only changed files
+ * parse again) and only output files whose content changed are rewritten. A settings change reloads
+ * the module layout; new and deleted directories (and therefore source roots) are picked up as well.
+ */
+public final class IndexWatcher {
+
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Path repoRoot;
+    private final Path outDir;
+    private final boolean includeTests;
+    private final Set<String> moduleFilter;
+    private final ScanOptions scanOptions;
+    private final boolean compress;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> registered = new HashSet<>();
+
+    public IndexWatcher(Path repoRoot, Path outDir, boolean includeTests, Set<String> moduleFilter,
+                        ScanOptions scanOptions, boolean compress) {
+        this.repoRoot = Objects.requireNonNull(repoRoot, "repoRoot");
+        this.outDir = Objects.requireNonNull(outDir, "outDir");
+        this.includeTests = includeTests;
+        this.moduleFilter = Set.copyOf(Objects.requireNonNull(moduleFilter, "moduleFilter"));
+        this.scanOptions = Objects.requireNonNull(scanOptions, "scanOptions");
+        this.compress = compress;
+    }
+
+    /**
+     * Builds and writes the graph, then blocks and re-indexes on changes until interrupted.
+     */
+    public void run() throws Exception {
+        ModuleLayout layout = loadLayout();
+        ScanManifest manifest = ScanManifest.load(outDir);
+
+        GraphBuilder builder = new GraphBuilder(repoRoot, layout, includeTests, scanOptions.withManifest(manifest));
+        Graph graph = builder.build();
+        final String generatedAt = Instant.now().toString();
+        final GraphWriter writer = new GraphWriter(outDir, compress);
+        writer.writeAll(graph, generatedAt);
+        writer.writeClosure(InjectClosure.compute(graph, scanOptions.threads()));
+        manifest = builder.scanManifest();
+        manifest.save(outDir);
+        builder.metrics().outputs(writer.filesWritten(), writer.filesUnchanged(), writer.filesDeleted());
+        builder.metrics().write(outDir, generatedAt);
+        System.out.println("AI graph written to: " + outDir + " (watching for changes)");
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            register(watcher, repoRoot);
+            registerModules(watcher, layout);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                final Burst burst = new Burst();
+                drain(watcher, watcher.take(), burst);
+
+                // debounce: keep collecting until the burst is over
+                WatchKey next;
+                while ((next = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(watcher, next, burst);
+                }
+                if (!burst.sources && !burst.settings) {
+                    continue;
+                }
+
+                final boolean settingsChanged = burst.settings;
+                final long t0 = System.nanoTime();
+                if (settingsChanged) {
+                    layout = loadLayout();
+                    registerModules(watcher, layout);
+                }
+
+                builder = new GraphBuilder(repoRoot, layout, includeTests, scanOptions.withManifest(manifest));
+                final Graph updated = builder.build();
+                final String updatedAt = Instant.now().toString();
+                final GraphWriter updater = new GraphWriter(outDir, compress);
+                updater.writeChanged(updated, graph, updatedAt);
+                if (!updated.injectReverse().equals(graph.injectReverse())) {
+                    updater.writeClosure(InjectClosure.compute(updated, scanOptions.threads()));
+                }
+                final int written = updater.filesWritten() + updater.filesDeleted();
+                graph = updated;
+                manifest = builder.scanManifest();
+                if (builder.filesParsed() > 0 || settingsChanged) {
+                    manifest.save(outDir);
+                }
+                if (written > 0) {
+                    builder.metrics().outputs(updater.filesWritten(), updater.filesUnchanged(), updater.filesDeleted());
+                    builder.metrics().write(outDir, updatedAt);
+                }
+
+                System.out.println("Re-indexed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0)
+                        + " ms: parsed " + builder.filesParsed() + " file(s), updated " + written + " output file(s)");
+                if (graph.parseWarnings() > 0) {
+                    System.err.println("WARN: parse warnings: " + graph.parseWarnings());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ModuleLayout loadLayout() throws IOException {
+        return ModuleLayout.load(repoRoot).filterModules(moduleFilter);
+    }
+
+    private void registerModules(WatchService watcher, ModuleLayout layout) throws IOException {
+        for (Path moduleDir : layout.moduleDirsById().values()) {
+            if (Files.isDirectory(moduleDir)) {
+                registerTree(watcher, moduleDir);
+            }
+        }
+    }
+
+    private void registerTree(WatchService watcher, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                if (SourceRootFinder.isSkippedDir(d) || d.startsWith(outDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                register(watcher, d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(WatchService watcher, Path dir) throws IOException {
+        if (!registered.add(dir)) {
+            return;
+        }
+        final WatchKey key = dir.register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirs.put(key, dir);
+    }
+
+    /**
+     * Consumes the key's events into the burst, registers new directories and resets the key.
+     * Only Java files, directories, settings files and overflows count as changes.
+     */
+    private void drain(WatchService watcher, WatchKey key, Burst burst) throws IOException {
+        final Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                burst.sources = true;
+                continue;
+            }
+            if (dir == null || !(event.context() instanceof Path name)) {
+                continue;
+            }
+            final Path child = dir.resolve(name);
+            final String fileName = name.toString();
+            if (child.startsWith(outDir)) {
+                continue;
+            }
+            if (dir.equals(repoRoot) && ("settings.gradle".equals(fileName) || "settings.gradle.kts".equals(fileName))) {
+                burst.settings = true;
+            } else if (fileName.endsWith(".java")) {
+                burst.sources = true;
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                if (!SourceRootFinder.isSkippedDir(child)) {
+                    registerTree(watcher, child);
+                    burst.sources = true;
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && registered.contains(child)) {
+                burst.sources = true;
+            }
+        }
+        if (!key.reset()) {
+            registered.remove(watchedDirs.remove(key));
+        }
+    }
+
+    private static final class Burst {
+        boolean sources;
+        boolean settings;
+    }
+}
@@ -0,0 +1,159 @@
+package ai.indexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ai.indexer.io.GraphWriter;
+import ai.indexer.metrics.RunMetrics;
+
+/**
+ * A default build, a {@code --maxHeapMb=1} build (whose sort buffers of about 128 KB spill the large
+ * module) and two merged shards must write the same files.
+ */
+class BuildModesTest {
+
+    private static final int CORE_BEANS = 200;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void maxHeapAndMergedShardsWriteTheDefaultOutput() throws Exception {
+        final Path repo = writeRepo(dir.resolve("repo"));
+        final Path plain = dir.resolve("plain");
+        final Path heap = dir.resolve("heap");
+        final Path shard1 = dir.resolve("shard1");
+        final Path shard2 = dir.resolve("shard2");
+        final Path merged = dir.resolve("merged");
+
+        Main.main(new String[] {repo.toString(), "--outDir=" + plain});
+        Main.main(new String[] {repo.toString(), "--outDir=" + heap, "--maxHeapMb=1"});
+        Main.main(new String[] {repo.toString(), "--outDir=" + shard1, "--shard=1/2"});
+        Main.main(new String[] {repo.toString(), "--outDir=" + shard2, "--shard=2/2"});
+        Main.main(new String[] {"merge", shard1.toString(), shard2.toString(), "--outDir=" + merged});
+
+        final Map<String, byte[]> expected = outputs(plain);
+        assertTrue(expected.containsKey("types.core.jsonl") && expected.containsKey(GraphWriter.CLOSURE_FILE),
+                expected.keySet().toString());
+        assertSameFiles(expected, outputs(heap), "--maxHeapMb=1");
+        assertSameFiles(expected, outputs(merged), "merge");
+    }
+
+    private static void assertSameFiles(Map<String, byte[]> expected, Map<String, byte[]> actual, String mode) {
+        assertEquals(expected.keySet(), actual.keySet(), mode);
+        for (var e : expected.entrySet()) {
+            assertTrue(Arrays.equals(e.getValue(), actual.get(e.getKey())), mode + ": " + e.getKey());
+        }
+    }
+
+    /**
+     * @return the output files by path relative to {@code outDir}, without metrics.json and with index.json's generatedAt removed
+     */
+    private static Map<String, byte[]> outputs(Path outDir) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final Map<String, byte[]> files = new TreeMap<>();
+        try (Stream<Path> walk = Files.walk(outDir)) {
+            for (Path file : walk.filter(Files::isRegularFile).toList()) {
+                final String name = outDir.relativize(file).toString().replace('\\', '/');
+                if (name.equals(RunMetrics.FILE_NAME)) {
+                    continue;
+                }
+                if (name.equals(GraphWriter.INDEX_FILE)) {
+                    final ObjectNode index = (ObjectNode) mapper.readTree(file.toFile());
+                    index.remove("generatedAt");
+                    files.put(name, mapper.writeValueAsBytes(index));
+                } else {
+                    files.put(name, Files.readAllBytes(file));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * core: EJB interfaces and beans that inject each other (and a nested type by setter); app and web
+     * inject them across modules, web through an on-demand import.
+     */
+    private static Path writeRepo(Path repo) throws IOException {
+        Files.createDirectories(repo);
+        Files.writeString(repo.resolve("settings.gradle"), "include ':core', ':app', ':web'\n");
+        final Path core = Files.createDirectories(repo.resolve("core/src/main/java/com/acme/core"));
+        for (int i = 0; i < CORE_BEANS; i++) {
+            Files.writeString(core.resolve("Repo" + i + ".java"), """
+                    package com.acme.core;
+
+                    public interface Repo%d {
+                    }
+                    """.formatted(i));
+            Files.writeString(core.resolve("Repo" + i + "Bean.java"), """
+                    package com.acme.core;
+
+                    import jakarta.ejb.EJB;
+                    import jakarta.ejb.Local;
+                    import jakarta.ejb.Stateless;
+                    import jakarta.inject.Inject;
+
+                    @Stateless
+                    @Local(Repo%1$d.class)
+                    public class Repo%1$dBean implements Repo%1$d {
+                        @Inject
+                        Repo%2$d next;
+
+                        @EJB
+                        Repo%3$d other;
+
+                        @Inject
+                        void setAudit(Audit audit) {
+                        }
+
+                        public static class Audit {
+                        }
+                    }
+                    """.formatted(i, (i + 1) % CORE_BEANS, (i * 7) % CORE_BEANS));
+        }
+        final Path app = Files.createDirectories(repo.resolve("app/src/main/java/com/acme/app"));
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(app.resolve("Order" + i + "Resource.java"), """
+                    package com.acme.app;
+
+                    import com.acme.core.Repo%1$d;
+                    import jakarta.inject.Inject;
+
+                    public class Order%1$dResource {
+                        @Inject
+                        Repo%1$d repo;
+                    }
+                    """.formatted(i));
+        }
+        final Path web = Files.createDirectories(repo.resolve("web/src/main/java/com/acme/web"));
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(web.resolve("Page" + i + ".java"), """
+                    package com.acme.web;
+
+                    import com.acme.app.Order%1$dResource;
+                    import com.acme.core.*;
+                    import jakarta.inject.Inject;
+
+                    public class Page%1$d extends Order%1$dResource {
+                        @Inject
+                        Repo%2$d repo;
+                    }
+                    """.formatted(i, i + 100));
+        }
+        return repo;
+    }
+}
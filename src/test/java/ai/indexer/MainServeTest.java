@@ -0,0 +1,113 @@
+package ai.indexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the indexer in a child JVM, since {@code --serve} blocks until the JVM shuts down.
+ */
+@Timeout(value = 120, unit = TimeUnit.SECONDS)
+class MainServeTest {
+
+    @TempDir
+    Path repo;
+
+    @Test
+    void servesAgainOnUnchangedTree() throws Exception {
+        writeRepo();
+
+        // the second run finds the index up to date
+        for (int run = 1; run <= 2; run++) {
+            final int port = freePort();
+            final Process process = startServing(port);
+            try {
+                assertTrue(awaitServing(process), "run " + run + " did not start serving");
+                assertEquals(200, get(port, "/type?id=com.acme.OrderService").statusCode());
+            } finally {
+                stop(process);
+            }
+        }
+    }
+
+    @Test
+    void answersOnlyExactEndpointPaths() throws Exception {
+        writeRepo();
+
+        final int port = freePort();
+        final Process process = startServing(port);
+        try {
+            assertTrue(awaitServing(process), "did not start serving");
+            assertEquals(200, get(port, "/type?id=com.acme.OrderService").statusCode());
+            assertEquals(200, get(port, "/stats").statusCode());
+            assertEquals(404, get(port, "/typefoo?id=com.acme.OrderService").statusCode());
+            assertEquals(404, get(port, "/type/x?id=com.acme.OrderService").statusCode());
+            assertEquals(404, get(port, "/stats/x").statusCode());
+        } finally {
+            stop(process);
+        }
+    }
+
+    private void writeRepo() throws IOException {
+        Files.writeString(repo.resolve("settings.gradle"), "include ':app'\n");
+        final Path pkg = Files.createDirectories(repo.resolve("app/src/main/java/com/acme"));
+        Files.writeString(pkg.resolve("OrderService.java"), "package com.acme;\n\npublic class OrderService {\n}\n");
+    }
+
+    private Process startServing(int port) throws IOException {
+        return new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                Main.class.getName(), repo.toString(), "--incremental=true", "--serve", "--port=" + port)
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        process.waitFor(30, TimeUnit.SECONDS);
+    }
+
+    private static HttpResponse<String> get(int port, String pathAndQuery) throws IOException, InterruptedException {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + pathAndQuery)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Reads the child's output until it reports serving (true) or exits (false).
+     */
+    private static boolean awaitServing(Process process) throws IOException {
+        final BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        for (String line = out.readLine(); line != null; line = out.readLine()) {
+            if (line.startsWith("Serving ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
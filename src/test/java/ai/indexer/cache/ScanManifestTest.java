@@ -0,0 +1,50 @@
+package ai.indexer.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ai.indexer.scan.TypeScanner;
+
+class ScanManifestTest {
+
+    @TempDir
+    Path outDir;
+
+    @Test
+    void replacesTheMappedManifestItWasCreatedFrom() throws Exception {
+        final ScanManifest first = ScanManifest.empty();
+        first.put("app/src/main/java/A.java", entry(10));
+        first.save(outDir, 7L);
+
+        final ScanManifest previous = ScanManifest.open(outDir);
+        assertEquals(7L, previous.options());
+        assertNotNull(previous.get("app/src/main/java/A.java"));
+
+        // nothing scanned, so A.java is carried over
+        final ScanManifest next = previous.next();
+        next.put("lib/src/main/java/B.java", entry(20));
+        next.carryOver(previous, List.of("lib/src/main/java"));
+        next.save(outDir, 8L);
+
+        assertThrows(IllegalStateException.class, () -> previous.get("app/src/main/java/A.java"));
+        assertFalse(Files.exists(outDir.resolve(ScanManifest.FILE_NAME + ".entries")));
+        final ScanManifest saved = ScanManifest.open(outDir);
+        assertEquals(8L, saved.options());
+        assertEquals(2, saved.size());
+        assertEquals(10L, saved.get("app/src/main/java/A.java").size());
+        assertEquals(20L, saved.get("lib/src/main/java/B.java").size());
+    }
+
+    private static ScanManifest.Entry entry(long size) {
+        return new ScanManifest.Entry(size, 1_000L, "sha", null, new TypeScanner.FileScan(List.of(), List.of(), 0));
+    }
+}
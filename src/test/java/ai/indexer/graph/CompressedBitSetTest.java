@@ -0,0 +1,99 @@
+package ai.indexer.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CompressedBitSetTest {
+
+    @Test
+    void arrayChunksAcrossWordAndChunkBoundaries() {
+        final int[] values = {0, 1, 63, 64, 65, 127, 128, 1023, 65535, 65536, 65599, 65600, 200_000};
+        final CompressedBitSet set = build(200_001, values);
+
+        assertEquals(values.length, set.cardinality());
+        assertEquals(Arrays.toString(values), Arrays.toString(set.toArray()));
+        for (int v : values) {
+            assertTrue(set.contains(v), String.valueOf(v));
+        }
+        for (int v : new int[] {2, 62, 66, 129, 65534, 65537, 131_072, 199_999, -1}) {
+            assertFalse(set.contains(v), String.valueOf(v));
+        }
+    }
+
+    @Test
+    void bitmapChunkCardinalityAndOrder() {
+        // every third value of chunk 1 is more than ARRAY_MAX values, so the chunk becomes a bitmap
+        final List<Integer> expected = new ArrayList<>();
+        final CompressedBitSet.Builder builder = new CompressedBitSet.Builder(3 << 16);
+        builder.add(7); // an array chunk before it
+        expected.add(7);
+        for (int v = 1 << 16; v < 2 << 16; v += 3) {
+            builder.add(v);
+            expected.add(v);
+        }
+        final CompressedBitSet set = builder.build();
+
+        assertTrue(expected.size() - 1 > CompressedBitSet.ARRAY_MAX);
+        assertEquals(expected.size(), set.cardinality());
+        final List<Integer> iterated = new ArrayList<>();
+        set.forEach(iterated::add);
+        assertEquals(expected, iterated);
+        assertTrue(set.contains((1 << 16) + 63));
+        assertFalse(set.contains((1 << 16) + 64));
+        assertTrue(set.contains((1 << 16) + 66));
+        assertFalse(set.contains((2 << 16) + 1));
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws Exception {
+        final CompressedBitSet.Builder builder = new CompressedBitSet.Builder(4 << 16);
+        for (int v = 0; v < 10_000; v += 2) {
+            builder.add(v); // bitmap chunk 0
+        }
+        builder.add(3 << 16); // array chunk 3
+        final CompressedBitSet set = builder.build();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(42); // the set does not start at 0
+        set.write(out);
+        out.flush();
+        assertEquals(4 + set.serializedSize(), bytes.size());
+
+        final CompressedBitSet read = CompressedBitSet.read(ByteBuffer.wrap(bytes.toByteArray()), 4);
+        assertEquals(set, read);
+        assertEquals(set.hashCode(), read.hashCode());
+        assertEquals(Arrays.toString(set.toArray()), Arrays.toString(read.toArray()));
+    }
+
+    @Test
+    void builderIsResetByBuild() {
+        final CompressedBitSet.Builder builder = new CompressedBitSet.Builder(1 << 17);
+        builder.add(5);
+        builder.add(70_000);
+        assertEquals(2, builder.build().cardinality());
+
+        builder.add(6);
+        builder.addAll(build(100, 9, 10));
+        assertEquals("[6, 9, 10]", Arrays.toString(builder.build().toArray()));
+        assertEquals(CompressedBitSet.empty(), builder.build());
+    }
+
+    private static CompressedBitSet build(int bound, int... values) {
+        final CompressedBitSet.Builder builder = new CompressedBitSet.Builder(bound);
+        for (int v : values) {
+            builder.add(v);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,55 @@
+package ai.indexer.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectionVia;
+import ai.indexer.modules.ModuleLayout;
+
+class GraphBuilderTest {
+
+    @TempDir
+    Path repo;
+
+    @Test
+    void setterInjectionOfNestedMemberTypeResolvesToFqcn() throws Exception {
+        Files.writeString(repo.resolve("settings.gradle"), "include ':app'\n");
+        final Path pkg = Files.createDirectories(repo.resolve("app/src/main/java/com/acme"));
+        Files.writeString(pkg.resolve("OrderServiceBean.java"), """
+                package com.acme;
+
+                import jakarta.inject.Inject;
+
+                public class OrderServiceBean {
+
+                    private Auditor<String> auditor;
+
+                    @Inject
+                    void setAuditor(Auditor<String> auditor) {
+                        this.auditor = auditor;
+                    }
+
+                    public interface Auditor<T> {
+                        void record(T value);
+                    }
+                }
+                """);
+
+        final Graph graph = new GraphBuilder(repo, ModuleLayout.load(repo), false).build();
+
+        final List<InjectLine> inject = graph.modules().get("app").inject();
+        assertEquals(1, inject.size(), inject.toString());
+        final InjectLine line = inject.get(0);
+        assertEquals("t:com.acme.OrderServiceBean", line.from());
+        assertEquals("method", line.memberKind());
+        assertEquals(InjectionVia.CDI, line.via());
+        assertEquals("t:com.acme.OrderServiceBean.Auditor", line.type());
+    }
+}
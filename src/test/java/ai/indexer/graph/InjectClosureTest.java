@@ -0,0 +1,99 @@
+package ai.indexer.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ai.indexer.model.InjectReverseLine;
+import ai.indexer.model.InjectionVia;
+
+class InjectClosureTest {
+
+    @Test
+    void cycleMembersReachEachOtherAndThemselves() throws Exception {
+        // A -> B -> C -> A, and C -> D
+        final InjectClosure closure = compute(1, "A", "B", "B", "C", "C", "A", "C", "D");
+
+        assertEquals(List.of("t:A", "t:B", "t:C", "t:D"), closure.nodes());
+        for (String member : List.of("A", "B", "C")) {
+            assertEquals(List.of("t:A", "t:B", "t:C", "t:D"), dependencies(closure, member), member);
+            assertEquals(List.of("t:A", "t:B", "t:C"), dependents(closure, member), member);
+        }
+        assertEquals(List.of(), dependencies(closure, "D"));
+        assertEquals(List.of("t:A", "t:B", "t:C"), dependents(closure, "D"));
+        assertEquals(closure.componentOf(0), closure.componentOf(2));
+        assertEquals(2, closure.componentCount());
+    }
+
+    @Test
+    void dagClosuresExcludeTheTypeItself() throws Exception {
+        // diamond A -> B -> D, A -> C -> D, plus the self-injection E -> E
+        final InjectClosure closure = compute(1, "A", "B", "A", "C", "B", "D", "C", "D", "E", "E");
+
+        assertEquals(List.of("t:B", "t:C", "t:D"), dependencies(closure, "A"));
+        assertEquals(List.of(), dependents(closure, "A"));
+        assertEquals(List.of("t:D"), dependencies(closure, "B"));
+        assertEquals(List.of("t:A"), dependents(closure, "B"));
+        assertEquals(List.of(), dependencies(closure, "D"));
+        assertEquals(List.of("t:A", "t:B", "t:C"), dependents(closure, "D"));
+        assertEquals(List.of("t:E"), dependencies(closure, "E"));
+        assertEquals(List.of("t:E"), dependents(closure, "E"));
+    }
+
+    @Test
+    void threadsDoNotChangeTheResult() throws Exception {
+        // 300 sinks below 100 sources: both levels are wide enough to run on the pool
+        final List<String> edges = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            edges.add("N" + (i % 100));
+            edges.add("N" + (100 + i));
+        }
+        final String[] pairs = edges.toArray(new String[0]);
+        final InjectClosure sequential = compute(1, pairs);
+        final InjectClosure parallel = compute(4, pairs);
+
+        assertEquals(sequential.nodes(), parallel.nodes());
+        for (String type : sequential.nodes()) {
+            final String name = type.substring(2);
+            assertEquals(dependencies(sequential, name), dependencies(parallel, name), name);
+            assertEquals(dependents(sequential, name), dependents(parallel, name), name);
+        }
+    }
+
+    /**
+     * @param edges pairs of simple names: the injecting type, then the injected one
+     */
+    static InjectClosure compute(int threads, String... edges) throws Exception {
+        final Map<String, List<InjectReverseLine.InjectSite>> sitesByType = new LinkedHashMap<>();
+        for (int i = 0; i < edges.length; i += 2) {
+            sitesByType.computeIfAbsent("t:" + edges[i + 1], k -> new ArrayList<>()).add(
+                    new InjectReverseLine.InjectSite("t:" + edges[i], "field", "f" + i, InjectionVia.CDI));
+        }
+        final List<InjectReverseLine> lines = new ArrayList<>();
+        sitesByType.forEach((type, sites) -> lines.add(new InjectReverseLine(type, sites)));
+        return InjectClosure.compute(lines::forEach, threads);
+    }
+
+    private static List<String> dependencies(InjectClosure closure, String name) {
+        return names(closure, closure.dependencies(component(closure, name)));
+    }
+
+    private static List<String> dependents(InjectClosure closure, String name) {
+        return names(closure, closure.dependents(component(closure, name)));
+    }
+
+    private static int component(InjectClosure closure, String name) {
+        return closure.componentOf(closure.nodes().indexOf("t:" + name));
+    }
+
+    private static List<String> names(InjectClosure closure, CompressedBitSet set) {
+        final List<String> out = new ArrayList<>();
+        set.forEach(node -> out.add(closure.nodes().get(node)));
+        return out;
+    }
+}
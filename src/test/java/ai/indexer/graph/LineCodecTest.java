@@ -0,0 +1,66 @@
+package ai.indexer.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ai.indexer.model.InjectLine;
+import ai.indexer.model.InjectionVia;
+import ai.indexer.model.TypeLine;
+
+class LineCodecTest {
+
+    @Test
+    void typeLinesRoundTrip() throws Exception {
+        final List<String> members = List.of("f:com.acme.OrderBean#repo", "m:com.acme.OrderBean#setAudit(Audit)");
+        assertRoundTrip(LineCodec.TYPE, List.of(
+                new TypeLine("t:com.acme.OrderBean", "class", "app/src/main/java/com/acme/OrderBean.java",
+                        List.of("t:com.acme.Order"), List.of("t:com.acme.Base"), "stateless",
+                        List.of("t:com.acme.Order"), List.of("t:com.acme.OrderRemote"),
+                        List.of("f:com.acme.OrderBean#repo"), members),
+                // null EJB kind, empty lists, lists equal to the previous line's and non-ASCII names
+                new TypeLine("t:com.acme.Bestellübersicht", "interface", "app/src/main/java/com/acme/Bestellübersicht.java",
+                        List.of(), List.of(), null, List.of(), List.of(), List.of(), members)));
+    }
+
+    @Test
+    void injectLinesRoundTrip() throws Exception {
+        final List<InjectLine> lines = new ArrayList<>();
+        for (InjectionVia via : InjectionVia.values()) {
+            lines.add(new InjectLine("t:com.acme.OrderBean", "field", "repo", "t:com.acme.Repo", via));
+        }
+        lines.add(new InjectLine("t:com.acme.OrderBean", "method", "setAudit(Audit)", "t:Audit", InjectionVia.CDI));
+        assertRoundTrip(LineCodec.INJECT, lines);
+    }
+
+    @Test
+    void reverseSitesRoundTrip() throws Exception {
+        final InjectLine line = new InjectLine("t:com.acme.OrderBean", "field", "repo", "t:com.acme.Repo", InjectionVia.EJB);
+        assertRoundTrip(LineCodec.REVERSE_SITE, List.of(new ReverseSite(0, line), new ReverseSite(Integer.MAX_VALUE, line)));
+    }
+
+    private static <T> void assertRoundTrip(LineCodec<T> codec, List<T> lines) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (T line : lines) {
+                codec.write(out, line);
+                assertTrue(codec.weight(line) > 0, line.toString());
+            }
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final List<T> read = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            read.add(codec.read(in));
+        }
+        assertEquals(lines, read);
+        assertEquals(-1, in.read()); // nothing left over
+    }
+}
@@ -0,0 +1,43 @@
+package ai.indexer.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardFileTest {
+
+    private static final List<String> MODULES = List.of("a", "b");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void includeTestsSurvivesSaveAndLoad() throws Exception {
+        final Path file = dir.resolve(ShardFile.fileName(1, 2));
+        shard(1, false).save(file);
+
+        final ShardFile loaded = ShardFile.load(file);
+        assertFalse(loaded.includeTests());
+        assertEquals(MODULES, loaded.moduleIds());
+    }
+
+    @Test
+    void rejectsShardsScannedWithDifferentIncludeTests() throws Exception {
+        assertNull(ShardFile.checkComplete(List.of(shard(1, true), shard(2, true))));
+
+        final String problem = ShardFile.checkComplete(List.of(shard(1, true), shard(2, false)));
+        assertTrue(problem != null && problem.contains("--includeTests"), String.valueOf(problem));
+    }
+
+    private static ShardFile shard(int index, boolean includeTests) {
+        return new ShardFile(index, 2, MODULES, includeTests, Map.of(), 0, 0, 0, 0);
+    }
+}
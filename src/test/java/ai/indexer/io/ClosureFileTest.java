@@ -0,0 +1,51 @@
+package ai.indexer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ai.indexer.graph.InjectClosure;
+import ai.indexer.model.InjectReverseLine;
+import ai.indexer.model.InjectionVia;
+
+class ClosureFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeAndOpenRoundTrip() throws Exception {
+        // A -> B -> A is a cycle, B -> C, D -> C
+        final List<InjectReverseLine> lines = List.of(
+                line("t:A", "t:B"),
+                line("t:B", "t:A"),
+                line("t:C", "t:B", "t:D"));
+        final InjectClosure closure = InjectClosure.compute(lines::forEach, 1);
+        final Path file = dir.resolve(GraphWriter.CLOSURE_FILE);
+        assertTrue(ClosureFile.write(file, closure));
+
+        final ClosureFile read = ClosureFile.open(file);
+        assertEquals(4, read.size());
+        assertEquals(List.of("t:A", "t:B", "t:C"), read.dependencies("t:A"));
+        assertEquals(List.of("t:A", "t:B"), read.dependents("t:B"));
+        assertEquals(List.of(), read.dependencies("t:C"));
+        assertEquals(List.of("t:A", "t:B", "t:D"), read.dependents("t:C"));
+        assertEquals(List.of("t:C"), read.dependencies("t:D"));
+        assertEquals(List.of(), read.dependents("t:D"));
+        assertNull(read.dependencies("t:Unknown"));
+        assertNull(read.dependents("t:0")); // sorts before every node
+    }
+
+    private static InjectReverseLine line(String type, String... from) {
+        return new InjectReverseLine(type, Arrays.stream(from)
+                .map(f -> new InjectReverseLine.InjectSite(f, "field", "f", InjectionVia.CDI))
+                .toList());
+    }
+}
@@ -0,0 +1,75 @@
+package ai.indexer.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TypeSearchIndexTest {
+
+    private static final List<String> TYPES = List.of(
+            "t:com.acme.order.OrderService",
+            "t:com.acme.order.OrderServiceImpl",
+            "t:com.acme.order.OrderSvcClient",
+            "t:com.acme.order.OrderRepository",
+            "t:com.acme.billing.InvoiceRepository",
+            "t:com.acme.billing.Invoice",
+            "t:com.acme.billing.Outer",
+            "t:com.acme.billing.Outer.Inner",
+            "t:com.acme.web.Inner");
+
+    @TempDir
+    Path dir;
+
+    private TypeSearchIndex index;
+
+    @BeforeEach
+    void writeAndOpen() throws Exception {
+        final Path file = dir.resolve("types.search.bin");
+        assertTrue(TypeSearchIndex.write(file, TYPES));
+        index = TypeSearchIndex.open(file);
+        assertEquals(TYPES.size(), index.size());
+    }
+
+    @Test
+    void prefixBeforeAbbreviation() {
+        assertEquals(List.of("t:com.acme.order.OrderSvcClient", "t:com.acme.order.OrderService",
+                "t:com.acme.order.OrderServiceImpl"), index.search("OrderSvc", 10));
+        assertEquals(List.of("t:com.acme.order.OrderSvcClient"), index.search("OrderSvc", 1));
+    }
+
+    @Test
+    void glob() {
+        assertEquals(List.of("t:com.acme.order.OrderRepository", "t:com.acme.billing.InvoiceRepository"),
+                index.search("*Repository", 10));
+    }
+
+    @Test
+    void humpInitials() {
+        assertEquals("t:com.acme.order.OrderServiceImpl", index.search("OSI", 10).get(0));
+    }
+
+    @Test
+    void typo() {
+        assertEquals("t:com.acme.order.OrderService", index.search("ordersrvice", 10).get(0));
+    }
+
+    @Test
+    void qualifiedByOuterType() {
+        assertEquals(List.of("t:com.acme.billing.Outer.Inner"), index.search("Outer.Inner", 10));
+        assertEquals(List.of("t:com.acme.billing.Outer.Inner"), index.search("t:billing.Outer.Inner", 10));
+    }
+
+    @Test
+    void emptyQueryAndZeroK() {
+        assertEquals(List.of(), index.search("", 10));
+        assertEquals(List.of(), index.search("  ", 10));
+        assertEquals(List.of(), index.search("com.acme.", 10));
+        assertEquals(List.of(), index.search("OrderService", 0));
+    }
+}
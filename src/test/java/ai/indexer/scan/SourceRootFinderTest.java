@@ -0,0 +1,56 @@
+package ai.indexer.scan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceRootFinderTest {
+
+    @TempDir
+    Path repo;
+
+    @Test
+    void assignsEachRootToTheInnermostModule() throws Exception {
+        final Path app = repo.resolve("app");
+        final Path api = app.resolve("api");
+        final Map<String, List<Path>> roots = find(Map.of("app", app, "app:api", api),
+                app.resolve("src/main/java"), api.resolve("src/main/java"), api.resolve("src/test/java"));
+
+        assertEquals(List.of(root(app, "main")), roots.get("app"));
+        assertEquals(List.of(root(api, "main"), root(api, "test")), roots.get("app:api"));
+    }
+
+    @Test
+    void findsNestedModulesBelowSkippedDirs() throws Exception {
+        final Path tools = repo.resolve("tools");
+        final Path cli = tools.resolve("out/cli");
+        final Path gen = repo.resolve("target/gen");
+        final Map<String, List<Path>> roots = find(Map.of("tools", tools, "tools:cli", cli, "gen", gen),
+                tools.resolve("src/main/java"), tools.resolve("out/src/main/java"),
+                cli.resolve("src/main/java"), gen.resolve("src/main/java"));
+
+        assertEquals(List.of(root(tools, "main")), roots.get("tools"));
+        assertEquals(List.of(root(cli, "main")), roots.get("tools:cli"));
+        assertEquals(List.of(root(gen, "main")), roots.get("gen"));
+    }
+
+    private static Map<String, List<Path>> find(Map<String, Path> modules, Path... sourceRoots) throws Exception {
+        for (Path dir : modules.values()) {
+            Files.createDirectories(dir);
+        }
+        for (Path dir : sourceRoots) {
+            Files.createDirectories(dir);
+        }
+        return new SourceRootFinder(modules, true, 2).findAllSourceRoots();
+    }
+
+    private static Path root(Path moduleDir, String sourceSet) {
+        return moduleDir.resolve("src").resolve(sourceSet).resolve("java").toAbsolutePath().normalize();
+    }
+}